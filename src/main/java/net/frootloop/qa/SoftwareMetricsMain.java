@@ -25,12 +25,18 @@ public class SoftwareMetricsMain implements InputHandler {
 
         } else if (userIntention == RequestType.ANALYSE_GIT_REPO) {
             Path repositoryPath = InputHandler.promptForGitRepositoryPath();
+            if(repositoryPath != null) InputHandler.promptForCaching();
             JavaRepositoryParser.analyseRepositoryAt(repositoryPath);
 
         } else if (userIntention == RequestType.PRINT_AMOUNT_COMMITS) {
             Path repositoryPath = InputHandler.promptForGitRepositoryPath();
             Path sourceFilePath = InputHandler.promptForFileInRepository(repositoryPath);
             System.out.println("\n[ RESULT ]\nNumber of commits made to source file '" + sourceFilePath.toFile().getName() + "' : " + GitGudder.getCommitCountTo(repositoryPath, sourceFilePath));
+
+        } else if (userIntention == RequestType.WATCH_GIT_REPO) {
+            Path repositoryPath = InputHandler.promptForGitRepositoryPath();
+            if(repositoryPath != null) InputHandler.promptForCaching();
+            JavaRepositoryParser.watchRepositoryAt(repositoryPath);
         }
     }
 }
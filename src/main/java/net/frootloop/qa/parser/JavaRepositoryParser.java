@@ -3,30 +3,78 @@ package net.frootloop.qa.parser;
 import net.frootloop.qa.parser.result.ParsedClass;
 import net.frootloop.qa.parser.result.ParsedRepository;
 import net.frootloop.qa.parser.result.ParsedSourceFile;
+import net.frootloop.qa.parser.util.files.GitGudder;
+import net.frootloop.qa.parser.util.stats.Metric;
+import net.frootloop.qa.parser.util.stats.MetricSketches;
+import net.frootloop.qa.parser.util.stats.MetricTable;
 import net.frootloop.qa.parser.util.stats.charts_boxplot.DrawnBoxPlotCD;
 import net.frootloop.qa.parser.util.stats.charts_boxplot.BoxPlotData;
 import net.frootloop.qa.parser.util.stats.charts_boxplot.DrawnBoxPlotNCH;
 import net.frootloop.qa.parser.util.stats.charts_boxplot.DrawnBoxPlotNCLOC;
 import net.frootloop.qa.parser.util.stats.charts_scatterplot.DrawnScatterPlot;
 import net.frootloop.qa.parser.util.stats.charts_scatterplot.ScatterPlotData;
-import net.frootloop.qa.parser.util.stats.comparators.ParsedClassComparator.CompareClassesBy;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class JavaRepositoryParser {
 
+    /***
+     * Number of threads used to parse source files when analysing a repository. Defaults to one per available core.
+     */
+    private static int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public static void setParallelism(int numThreads) {
+        parallelism = Math.max(1, numThreads);
+    }
+
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    /***
+     * Cache of the files parsed during previous runs, whose text hasn't changed since. Null to always parse every file.
+     * Off by default, since the cache is written outside of the analysed repository; see InputHandler.promptForCaching().
+     */
+    private static ParseCache parseCache = null;
+
+    public static void setParseCache(ParseCache cache) {
+        parseCache = cache;
+    }
+
+    public static ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    /***
+     * Whether to release the code tree of each source file as soon as it's parsed, keeping only the data needed by
+     * the metrics of its classes and methods. The memory needed then grows with the number of classes, rather than
+     * with the size of the source, at the cost of ParsedSourceFile.print(). Off by default.
+     */
+    private static boolean isMetricsOnly = false;
+
+    public static void setMetricsOnly(boolean metricsOnly) {
+        isMetricsOnly = metricsOnly;
+    }
+
+    public static boolean isMetricsOnly() {
+        return isMetricsOnly;
+    }
+
     public static void analyseRepositoryAt(Path directory) {
         if(directory == null) return;
 
         System.out.println("\n[ PARSING LOCAL REPOSITORY ]\nParsing the source files of repository at: \'" + directory + "\'...");
         ParsedRepository repo = JavaRepositoryParser.parse(directory);
         System.out.println("...Done!");
-
-        System.out.println("\n[ LINKING ]\nBuilding the reference maps between methods, classes, functions...");
-        repo.buildReferences();
-        System.out.println("...Done!");
+        if(parseCache != null) System.out.println(parseCache.getNumHits() + " files were unchanged since a previous run, and " + parseCache.getNumMisses() + " files were parsed.");
 
         System.out.println("\n======================================\n        ANALYSIS OF MODULARITY        \n======================================");
 
@@ -62,27 +110,48 @@ public class JavaRepositoryParser {
 
         System.out.println("\n\n======================================\n      DISTRIBUTIONS OF CLASS DATA     \n======================================");
         ParsedClass[] classes = repo.getClasses();
+        MetricTable table = new MetricTable(classes);
 
-        BoxPlotData bpNumLinesCode = new BoxPlotData(classes, CompareClassesBy.NUMBER_LINES_OF_CODES);
-        bpNumLinesCode.print();
-
-        BoxPlotData bpCommentDensity = new BoxPlotData(classes, CompareClassesBy.DENSITY_OF_COMMENTS);
-        bpCommentDensity.print();
-
-        BoxPlotData bpNumCommits = new BoxPlotData(classes, CompareClassesBy.NUMBER_OF_COMMITS);
-        bpNumCommits.print();
+        // One box plot per registered metric, computed in parallel, printed in order:
+        for(BoxPlotData boxPlot : BoxPlotData.GetBoxPlotsOf(table, table.getMetrics()))
+            boxPlot.print();
 
         System.out.println("\n\n======================================\n        ANALYSIS OF CLASS DATA        \n======================================");
-        ScatterPlotData scatterPlotData = new ScatterPlotData(classes);
+        ScatterPlotData scatterPlotData = new ScatterPlotData(table);
         scatterPlotData.print();
 
-        new DrawnBoxPlotNCLOC(repo.getClasses());
-        new DrawnBoxPlotNCH(repo.getClasses());
-        new DrawnBoxPlotCD(repo.getClasses());
+        new DrawnBoxPlotNCLOC(table.getValuesOf(Metric.NLOC));
+        new DrawnBoxPlotNCH(table.getValuesOf(Metric.NCH));
+        new DrawnBoxPlotCD(table.getValuesOf(Metric.CD));
+
+        new DrawnScatterPlot(table.getValuesOf(Metric.CD), table.getValuesOf(Metric.NLOC), Metric.CD, Metric.NLOC);
+        new DrawnScatterPlot(table.getValuesOf(Metric.NCH), table.getValuesOf(Metric.NLOC), Metric.NCH, Metric.NLOC);
+        new DrawnScatterPlot(table.getValuesOf(Metric.CD), table.getValuesOf(Metric.NCH), Metric.CD, Metric.NCH);
+    }
+
+    /***
+     * Parses a repository, then keeps watching its folders; every time .java files are saved, created or deleted,
+     * only those are parsed again, and the repository's CD, WMC, LCOM and CBO are printed. Runs until interrupted.
+     *
+     * @param directory : (Path) Root of the repository.
+     */
+    public static void watchRepositoryAt(Path directory) {
+        if(directory == null) return;
+
+        System.out.println("\n[ PARSING LOCAL REPOSITORY ]\nParsing the source files of repository at: \'" + directory + "\'...");
+        ParsedRepository repo = JavaRepositoryParser.parse(directory);
+        System.out.println("...Done!");
+        System.out.println("\n[ METRICS ]");
+        RepositoryWatcher.printMetricsOf(repo);
 
-        new DrawnScatterPlot(repo.getClasses(), CompareClassesBy.DENSITY_OF_COMMENTS, CompareClassesBy.NUMBER_LINES_OF_CODES);
-        new DrawnScatterPlot(repo.getClasses(), CompareClassesBy.NUMBER_OF_COMMITS, CompareClassesBy.NUMBER_LINES_OF_CODES);
-        new DrawnScatterPlot(repo.getClasses(), CompareClassesBy.DENSITY_OF_COMMENTS, CompareClassesBy.NUMBER_OF_COMMITS);
+        try {
+            System.out.println("\n[ WATCHING LOCAL REPOSITORY ]\nMetrics will be updated whenever a source file is saved. Press Ctrl+C to stop.");
+            new RepositoryWatcher(repo, RepositoryWatcher.DEFAULT_DEBOUNCE_MILLIS).run();
+        }
+        catch (IOException e) {
+            System.out.println("ERROR: Something went horribly wrong in function watchRepositoryAt when trying to watch the folders of directory :\n" + directory);
+            e.printStackTrace();
+        }
     }
 
     /***
@@ -92,14 +161,93 @@ public class JavaRepositoryParser {
      * @param directory : (Path) directory from which .java files will be analyzed and parsed.
      * @return ParsedRepository instance
      */
-    private static ParsedRepository parse(Path directory){
+    public static ParsedRepository parse(Path directory){
         if(directory == null) return null;
         ParsedRepository repo = new ParsedRepository(directory);
-        JavaRepositoryParser.walk(directory, repo);
+        JavaRepositoryParser.recordAnalysedCommit(repo);
+        JavaRepositoryParser.walk(directory, repo, parallelism);
         repo.buildReferences();
         return repo;
     }
 
+    /***
+     * Sketches the distributions of the NLOC, CD and NCH of the classes of several repositories, parsed one at a
+     * time. Each repository is let go once its classes are added to the sketches, so memory doesn't grow with the
+     * number of repositories. Box plots of the distributions are given by BoxPlotData(QuantileSketch, Metric).
+     *
+     * @param directories : (Collection) directories of the repositories.
+     * @param rankError : (double) Error allowed on the rank of the quantiles; see QuantileSketch.ForRankError().
+     * @return MetricSketches of the classes of all repositories.
+     */
+    public static MetricSketches sketchRepositoriesAt(Collection<Path> directories, double rankError) {
+        MetricSketches sketches = new MetricSketches(rankError);
+        for(Path directory : directories) {
+            ParsedRepository repo = JavaRepositoryParser.parse(directory);
+            if(repo != null) sketches.merge(MetricSketches.Of(repo.getClasses(), rankError));
+        }
+        return sketches;
+    }
+
+    /***
+     * Incrementally re-analyses a repository that was already parsed. Rather than walking the whole repository again,
+     * only the .java files that changed since the commit it was analysed at are parsed again, according to JGit.
+     * That includes the files changed by new commits, as well as those with uncommitted changes, either now or back
+     * when the repository was analysed. Deleted files are removed from the repository, and its references are rebuilt.
+     *
+     * Files ignored by git aren't tracked, so changes to those aren't picked up.
+     *
+     * @param repo : (ParsedRepository) Repository previously returned by parse(), or already updated by this function.
+     * @return Whether the repository could be updated. If not, it has to be parsed again from scratch.
+     */
+    public static boolean update(ParsedRepository repo) {
+        Path directory = repo.getFilePath();
+        String analysedCommitId = repo.getAnalysedCommitId();
+        String headCommitId = GitGudder.getHeadCommitIdOf(directory);
+        if(analysedCommitId == null || headCommitId == null) return false;
+
+        Set<String> changedPaths = new HashSet<>(repo.getAnalysedUncommittedPaths());
+        if(!analysedCommitId.equals(headCommitId)) {
+            Set<String> committedPaths = GitGudder.getPathsChangedBetween(directory, analysedCommitId, headCommitId);
+            if(committedPaths == null) return false;
+            changedPaths.addAll(committedPaths);
+        }
+        Set<String> uncommittedPaths = GitGudder.getUncommittedPathsOf(directory);
+        if(uncommittedPaths == null) return false;
+        changedPaths.addAll(uncommittedPaths);
+
+        List<Path> changedFilePaths = new ArrayList<>();
+        for(String changedPath : changedPaths) changedFilePaths.add(directory.resolve(changedPath));
+        changedFilePaths.sort(null);
+
+        JavaRepositoryParser.update(repo, changedFilePaths);
+        repo.setAnalysedCommit(headCommitId, uncommittedPaths);
+        return true;
+    }
+
+    /***
+     * Parses the given files again and replaces their previous version in the repository. Files that no longer
+     * exist are removed from the repository instead. The references between classes are then rebuilt.
+     *
+     * @param repo : (ParsedRepository) Repository to update.
+     * @param filePaths : (Collection) Paths of the files that changed. Paths without a .java extension are ignored.
+     */
+    public static void update(ParsedRepository repo, Collection<Path> filePaths) {
+        repo.refreshCommitCounts();
+        List<Path> filesToParse = new ArrayList<>();
+        for(Path filePath : filePaths) {
+            if(!filePath.toString().endsWith(".java")) continue;
+            if(Files.isRegularFile(filePath) && Files.isReadable(filePath)) filesToParse.add(filePath);
+            else repo.removeParsedFile(filePath);
+        }
+        JavaRepositoryParser.addFilesToRepository(filesToParse, repo, parallelism);
+        repo.rebuildReferences();
+    }
+
+    private static void recordAnalysedCommit(ParsedRepository repo) {
+        String headCommitId = GitGudder.getHeadCommitIdOf(repo.getFilePath());
+        if(headCommitId != null) repo.setAnalysedCommit(headCommitId, GitGudder.getUncommittedPathsOf(repo.getFilePath()));
+    }
+
     /***
      * Called by the parse() function. Checks what's inside a given folder; for each
      * file with a .java extension it finds, it parses the source file and adds its data to
@@ -112,27 +260,66 @@ public class JavaRepositoryParser {
      * @param repo
      */
     public static void walk(Path path, ParsedRepository repo) {
+        JavaRepositoryParser.walk(path, repo, 1);
+    }
+
+    /***
+     * Same as walk(path, repo), but reads and parses the source files with a SourceFilePipeline of 'numThreads'
+     * reader threads and 'numThreads' parser threads.
+     *
+     * Files are still added to the ParsedRepository in the order they were found by Files.walk(), so that
+     * the resulting totals are exactly the same as a sequential walk of the same folder.
+     *
+     * @param path
+     * @param repo
+     * @param numThreads : (int) Number of threads parsing files at once. A value of 1 or less parses on the calling thread.
+     */
+    public static void walk(Path path, ParsedRepository repo, int numThreads) {
         if(repo == null) return;
+        List<Path> filePaths;
         try {
-            Files.walk(path)
+            filePaths = Files.walk(path)
                     .filter(Files::isRegularFile)
                     .filter(Files::isReadable)
-                    .forEach((filePath) -> {
-                        ParsedSourceFile sourceFile = JavaSourceFileParser.parse(filePath);
-
-                        // Add to the repository:
-                        if (sourceFile != null) repo.addParsedFile(sourceFile);
-
-                    });
+                    .collect(Collectors.toList());
         }
         catch (IOException e) {
             System.out.println("ERROR: Something went horribly wrong in function visitFolder when trying to list the files of directory :\n" + path);
             e.printStackTrace();
+            return;
+        }
+        JavaRepositoryParser.addFilesToRepository(filePaths, repo, numThreads);
+
+        // Keep the cache within its maximum size. trim() goes through every entry of the cache, so it's only done
+        // after a walk of the whole repository, and not after every update():
+        if(parseCache != null) parseCache.trim();
+    }
+
+    private static void addFilesToRepository(List<Path> filePaths, ParsedRepository repo, int numThreads) {
+        // Sequential mode, everything on the calling thread:
+        if(numThreads <= 1) {
+            for(Path filePath : filePaths) JavaRepositoryParser.addFileToRepository(filePath, repo);
+        }
+
+        // Parallel mode; files are read and parsed by the two stages of the pipeline, then added in order:
+        else {
+            SourceFilePipeline pipeline = new SourceFilePipeline(numThreads, numThreads, 4 * numThreads, parseCache, isMetricsOnly);
+            try {
+                for(ParsedSourceFile sourceFile : pipeline.parse(filePaths))
+                    if (sourceFile != null) repo.addParsedFile(sourceFile);
+            }
+            catch (InterruptedException e) {
+                System.out.println("ERROR: Function addFilesToRepository was interrupted while parsing the files of repository :\n" + repo.getFilePath());
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
     }
 
     private static void addFileToRepository(Path filePath, ParsedRepository repo) {
-        ParsedSourceFile sourceFile = JavaSourceFileParser.parse(filePath);
-        if(sourceFile != null) repo.addParsedFile(sourceFile);
+        ParsedSourceFile sourceFile = parseCache != null ? parseCache.parse(filePath) : JavaSourceFileParser.parse(filePath);
+        if(sourceFile == null) return;
+        if(isMetricsOnly) sourceFile.releaseCodeTrees();
+        repo.addParsedFile(sourceFile);
     }
 }
@@ -5,10 +5,11 @@ import net.frootloop.qa.parser.result.ParsedSourceFile;
 import net.frootloop.qa.parser.util.strings.CodeParser;
 
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class JavaSourceFileParser implements InputHandler, CodeParser {
 
-    private static int numFilesParsed = 0;
+    private static final AtomicInteger numFilesParsed = new AtomicInteger();
 
 
     public static void analyseFileAt(Path sourceFilePath) {
@@ -57,7 +58,7 @@ public class JavaSourceFileParser implements InputHandler, CodeParser {
     }
 
     public static void announceParsedFile() {
-        System.out.print("Parsed " + ++numFilesParsed + " files.\r");
+        System.out.print("Parsed " + numFilesParsed.incrementAndGet() + " files.\r");
     }
 }
 
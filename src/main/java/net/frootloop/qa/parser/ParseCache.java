@@ -0,0 +1,197 @@
+package net.frootloop.qa.parser;
+
+import net.frootloop.qa.parser.result.ParsedSourceFile;
+import net.frootloop.qa.parser.util.files.CacheFileHandler;
+import net.frootloop.qa.parser.util.files.SourceFileReader;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/***
+ * On-disk cache of parsed source files, keyed by the SHA-256 hash of their text.
+ *
+ * When a file's text was already parsed during a previous run, its line counts, classes, methods, references
+ * and assert statements are restored from the cache instead, which skips cleaning up its text and building its
+ * code tree entirely. Each entry is a file of its own, written atomically, so that the parser threads of the
+ * SourceFilePipeline can all share the same cache.
+ *
+ * Entries are stored in a subfolder named after the cache's VERSION. Entries from other versions are never read,
+ * and are deleted by trim(), which also evicts the least recently used entries once the cache exceeds its size.
+ */
+public class ParseCache {
+
+    /***
+     * Version of the data stored in the cache. Must be incremented whenever a change to the parser changes the
+     * data extracted from a source file, or the format in which it's written, so that older entries are ignored.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC_NUMBER = 0x54503343;
+    private static final String ENTRY_EXTENSION = ".bin";
+    private static final long DEFAULT_MAX_SIZE = 256L << 20;
+
+    private final Path rootDirectory, directory;
+    private final long maxSizeInBytes;
+    private final AtomicInteger numHits = new AtomicInteger(), numMisses = new AtomicInteger();
+
+    /***
+     * @param rootDirectory : (Path) Folder in which the cache is stored. Created if it doesn't exist.
+     * @param maxSizeInBytes : (long) Size above which trim() starts evicting the least recently used entries.
+     */
+    public ParseCache(Path rootDirectory, long maxSizeInBytes) {
+        this.rootDirectory = rootDirectory;
+        this.directory = rootDirectory.resolve("v" + VERSION);
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /***
+     * Nothing is cached by default; this cache is only used once the user agrees to it, see InputHandler.promptForCaching().
+     *
+     * @return Cache of up to 256 MB, stored in the '.jbsm/parse-cache' folder of the user's home directory.
+     */
+    public static ParseCache getDefault() {
+        return new ParseCache(Path.of(System.getProperty("user.home"), ".jbsm", "parse-cache"), DEFAULT_MAX_SIZE);
+    }
+
+    /***
+     * Reads the given source file, then either restores it from the cache, or parses it and caches the result.
+     *
+     * @param filePath : (Path) Path of the .java file.
+     * @return ParsedSourceFile instance, or null if the file isn't a .java file or can't be read.
+     */
+    public ParsedSourceFile parse(Path filePath) {
+        if(!filePath.toString().endsWith(".java")) return null;
+        try {
+            return this.parse(filePath, SourceFileReader.read(filePath));
+        } catch (IOException e) {
+            System.out.println("\n[ ERROR ]\n Exception thrown by 'ParseCache'. Unable to read file " + filePath.toFile().getAbsolutePath() + "!");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /***
+     * Same as parse(filePath), for a file whose text was already read.
+     *
+     * @param filePath : (Path) Path of the .java file.
+     * @param sourceFileTextData : (CharSequence) Raw text contents of the file.
+     * @return ParsedSourceFile instance.
+     */
+    public ParsedSourceFile parse(Path filePath, CharSequence sourceFileTextData) {
+        Path entryPath = this.getEntryPath(CacheFileHandler.getHashOf(sourceFileTextData));
+
+        ParsedSourceFile cachedFile = this.read(entryPath, filePath);
+        if(cachedFile != null) {
+            this.numHits.incrementAndGet();
+            return cachedFile;
+        }
+
+        this.numMisses.incrementAndGet();
+        ParsedSourceFile parsedFile = new ParsedSourceFile(filePath, sourceFileTextData);
+        this.write(entryPath, parsedFile);
+        return parsedFile;
+    }
+
+    public int getNumHits() {
+        return this.numHits.get();
+    }
+
+    public int getNumMisses() {
+        return this.numMisses.get();
+    }
+
+    /***
+     * Deletes the entries of other versions of the cache, then deletes the least recently used entries
+     * of this version until the cache fits within its maximum size.
+     */
+    public void trim() {
+        if(!Files.isDirectory(this.rootDirectory)) return;
+        try {
+            // Outdated versions of the cache:
+            try (Stream<Path> folders = Files.list(this.rootDirectory)) {
+                for(Path folder : folders.filter(Files::isDirectory).filter(f -> f.getFileName().toString().matches("v\\d+") && !f.equals(this.directory)).collect(Collectors.toList()))
+                    ParseCache.deleteFolder(folder);
+            }
+            if(!Files.isDirectory(this.directory)) return;
+
+            // Least recently used entries; the last modified time of an entry is updated every time it's read:
+            List<Path> entries;
+            try (Stream<Path> files = Files.walk(this.directory)) {
+                entries = files.filter(f -> f.toString().endsWith(ENTRY_EXTENSION)).collect(Collectors.toList());
+            }
+            long totalSize = 0;
+            List<BasicFileAttributes> attributes = new ArrayList<>(entries.size());
+            for(Path entry : entries) {
+                BasicFileAttributes attr = Files.readAttributes(entry, BasicFileAttributes.class);
+                attributes.add(attr);
+                totalSize += attr.size();
+            }
+            if(totalSize <= this.maxSizeInBytes) return;
+
+            List<Integer> order = new ArrayList<>(entries.size());
+            for(int i = 0; i < entries.size(); i++) order.add(i);
+            order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+            for(int i : order) {
+                if(totalSize <= this.maxSizeInBytes) break;
+                Files.deleteIfExists(entries.get(i));
+                totalSize -= attributes.get(i).size();
+            }
+        } catch (IOException e) {
+            System.out.println("\n[ ERROR ]\n Exception thrown in 'ParseCache.trim()'. Unable to evict the outdated entries of cache " + this.rootDirectory.toFile().getAbsolutePath() + "!");
+            e.printStackTrace();
+        }
+    }
+
+    private ParsedSourceFile read(Path entryPath, Path filePath) {
+        if(!Files.isRegularFile(entryPath)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryPath)))) {
+            if(in.readInt() != MAGIC_NUMBER || in.readInt() != VERSION) return null;
+            ParsedSourceFile cachedFile = new ParsedSourceFile(filePath, in);
+
+            // Mark the entry as recently used, so that trim() doesn't evict it:
+            Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+            return cachedFile;
+        } catch (IOException | RuntimeException e) {
+            // Truncated or otherwise unreadable entry; it's simply parsed again and overwritten.
+            return null;
+        }
+    }
+
+    private void write(Path entryPath, ParsedSourceFile parsedFile) {
+        try {
+            // Other threads and processes either see the whole entry, or no entry at all:
+            CacheFileHandler.writeAtomically(entryPath, out -> {
+                out.writeInt(MAGIC_NUMBER);
+                out.writeInt(VERSION);
+                parsedFile.writeTo(out);
+            });
+        } catch (IOException e) {
+            System.out.println("\n[ ERROR ]\n Exception thrown in 'ParseCache.write()'. Unable to cache the parsed data of " + parsedFile.getFilePath() + "!");
+            e.printStackTrace();
+        }
+    }
+
+    /***
+     * Entries are spread over subfolders named after the first two chars of their hash, to keep folders small.
+     */
+    private Path getEntryPath(String hash) {
+        return this.directory.resolve(hash.substring(0, 2)).resolve(hash + ENTRY_EXTENSION);
+    }
+
+    private static void deleteFolder(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package net.frootloop.qa.parser;
+
+import net.frootloop.qa.parser.result.ParsedRepository;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Keeps the metrics of a parsed repository up to date as its source files are saved.
+ *
+ * A WatchService is registered on every folder of the repository (except '.git'), and on every folder created
+ * within it afterwards. File events tend to come in bursts, such as when an IDE saves all of its open files, or when
+ * a branch gets checked out; events are gathered until none arrived for the debounce delay, then only the .java files
+ * they touched are parsed again, through JavaRepositoryParser.update().
+ */
+public class RepositoryWatcher {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    /***
+     * Longest a burst of events is gathered for before updating, so that a steady stream of events can't
+     * delay the update forever.
+     */
+    private static final long MAX_DEBOUNCE_MILLIS = 2000;
+
+    private final ParsedRepository repo;
+    private final Path directory;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final HashMap<WatchKey, Path> watchedFolders = new HashMap<>();
+
+    /***
+     * @param repo : (ParsedRepository) Repository to keep up to date, as returned by JavaRepositoryParser.parse().
+     * @param debounceMillis : (long) Delay without any new event after which the touched files are parsed again.
+     * @throws IOException if the folders of the repository can't be watched.
+     */
+    public RepositoryWatcher(ParsedRepository repo, long debounceMillis) throws IOException {
+        this.repo = repo;
+        this.directory = repo.getFilePath();
+        this.debounceMillis = Math.max(1, debounceMillis);
+        this.watchService = this.directory.getFileSystem().newWatchService();
+        this.registerFolders(this.directory, null);
+    }
+
+    /***
+     * Watches the repository until the calling thread is interrupted, printing its updated metrics after
+     * every burst of changes.
+     */
+    public void run() {
+        try (WatchService watchService = this.watchService) {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> touchedPaths = new TreeSet<>();
+                boolean isRescanNeeded = this.gatherEvents(watchService.take(), touchedPaths);
+
+                // Debounce; keep gathering until there's a long enough pause between two events:
+                long deadline = System.currentTimeMillis() + MAX_DEBOUNCE_MILLIS;
+                WatchKey key;
+                while (System.currentTimeMillis() < deadline && (key = watchService.poll(this.debounceMillis, TimeUnit.MILLISECONDS)) != null)
+                    isRescanNeeded |= this.gatherEvents(key, touchedPaths);
+
+                // Events were lost, so every file has to be checked again:
+                if(isRescanNeeded) {
+                    touchedPaths.addAll(this.repo.getSourceFilePaths());
+                    this.registerFolders(this.directory, touchedPaths);
+                }
+
+                touchedPaths.removeIf(path -> !path.toString().endsWith(".java"));
+                if(touchedPaths.isEmpty()) continue;
+
+                long startTime = System.nanoTime();
+                JavaRepositoryParser.update(this.repo, touchedPaths);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                System.out.println("\n[ UPDATE ] " + touchedPaths.size() + " file(s) changed, updated in " + elapsedMillis + " ms.");
+                RepositoryWatcher.printMetricsOf(this.repo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("\n[ ERROR ]\n Exception thrown by 'RepositoryWatcher'. Unable to keep watching repository " + this.directory.toFile().getAbsolutePath() + "!");
+            e.printStackTrace();
+        }
+    }
+
+    /***
+     * Prints the metrics of the repository that depend on its source files; CD, WMC, LCOM and CBO.
+     */
+    public static void printMetricsOf(ParsedRepository repo) {
+        System.out.println("Percentage of code dedicated to documentation (CD): " + String.format("%.2f", 100 * repo.getCommentDensity()) + "%" );
+        System.out.println("Weighted Methods per Class (WMC): " + String.format("%.2f", repo.getAverageWeightedMethods()));
+        System.out.println("Average Lack Of Cohesion in Methods (LCOM): " + String.format("%.2f", repo.getAverageLackOfCohesionInMethods()));
+        System.out.println("Average Couplage Between Objects (CBO): " + String.format("%.2f", repo.getAverageCouplageBetweenClasses()));
+    }
+
+    /***
+     * @return Whether events were lost, in which case the whole repository needs to be checked again.
+     */
+    private boolean gatherEvents(WatchKey key, Set<Path> touchedPaths) {
+        Path folder = this.watchedFolders.get(key);
+        boolean isOverflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || folder == null) {
+                isOverflow = true;
+                continue;
+            }
+            Path path = folder.resolve((Path) event.context());
+            touchedPaths.add(path);
+
+            // A new folder may already contain files by the time it's registered, so those are added as well:
+            // If it can't be watched, such as a temporary folder deleted right away, it's skipped:
+            if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    this.registerFolders(path, touchedPaths);
+                } catch (IOException e) {
+                    System.out.println("\n[ ERROR ]\n Exception thrown by 'RepositoryWatcher'. Unable to watch new folder " + path.toFile().getAbsolutePath() + "!");
+                    e.printStackTrace();
+                }
+            }
+
+            // A deleted folder only sends an event for itself, not for the files it contained:
+            if(event.kind() == StandardWatchEventKinds.ENTRY_DELETE)
+                for (Path filePath : this.repo.getSourceFilePaths())
+                    if (filePath.startsWith(path)) touchedPaths.add(filePath);
+        }
+
+        if(!key.reset()) this.watchedFolders.remove(key);
+        return isOverflow;
+    }
+
+    /***
+     * Registers a folder and all of its subfolders to the watch service.
+     *
+     * @param root : (Path) Folder to register.
+     * @param foundFiles : (Set) Set to which the files found in the folders are added. Null to ignore them.
+     */
+    private void registerFolders(Path root, Set<Path> foundFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path folder, BasicFileAttributes attrs) throws IOException {
+                if(folder.getFileName() != null && folder.getFileName().toString().equals(".git")) return FileVisitResult.SKIP_SUBTREE;
+                // Registering a folder twice returns the same key, so there's no need to check if it already is:
+                WatchKey key;
+                try {
+                    key = folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                } catch (NoSuchFileException e) {
+                    // Deleted or renamed since it was found; its parent's events will say so.
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                watchedFolders.put(key, folder);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if(foundFiles != null) foundFiles.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
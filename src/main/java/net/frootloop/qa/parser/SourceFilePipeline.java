@@ -0,0 +1,187 @@
+package net.frootloop.qa.parser;
+
+import net.frootloop.qa.parser.result.ParsedSourceFile;
+import net.frootloop.qa.parser.util.files.SourceFileReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/***
+ * Two-stage parsing pipeline for the source files of a repository.
+ *
+ * The first stage is a pool of reader threads which only read files from disk, and which push their contents into
+ * a bounded queue. The second stage is a fixed pool of parser threads which take the contents out of the queue and
+ * run the CPU-heavy part of the parsing (clean up, code tree, classes). Since the queue is bounded, readers block as
+ * soon as they get too far ahead of the parsers, which caps the amount of raw source text held in memory at once.
+ * Large ASCII files are memory-mapped by the SourceFileReader, in which case their text isn't on the heap at all.
+ */
+public class SourceFilePipeline {
+
+    /***
+     * Contents of a file read by the first stage, waiting to be parsed by the second.
+     */
+    private static class ReadSourceFile {
+        final int index;
+        final Path filePath;
+        final CharSequence textData;
+
+        ReadSourceFile(int index, Path filePath, CharSequence textData) {
+            this.index = index;
+            this.filePath = filePath;
+            this.textData = textData;
+        }
+    }
+
+    /***
+     * Put in the queue once per parser thread, after all files were read, to let them know they're done.
+     */
+    private static final ReadSourceFile END_OF_FILES = new ReadSourceFile(-1, null, null);
+
+    private final int numReaders, numParsers, queueCapacity;
+    private final ParseCache parseCache;
+    private final boolean isMetricsOnly;
+
+    /***
+     * @param numReaders : (int) Number of threads reading files from disk.
+     * @param numParsers : (int) Number of threads parsing the files that were read.
+     * @param queueCapacity : (int) Maximum number of files read but not yet parsed.
+     */
+    public SourceFilePipeline(int numReaders, int numParsers, int queueCapacity) {
+        this(numReaders, numParsers, queueCapacity, null);
+    }
+
+    /***
+     * Same as SourceFilePipeline(numReaders, numParsers, queueCapacity), but the parsers restore the files
+     * from the given cache whenever their text was already parsed before.
+     *
+     * @param parseCache : (ParseCache) Cache shared by the parser threads. Null to always parse.
+     */
+    public SourceFilePipeline(int numReaders, int numParsers, int queueCapacity, ParseCache parseCache) {
+        this(numReaders, numParsers, queueCapacity, parseCache, false);
+    }
+
+    /***
+     * Same as SourceFilePipeline(numReaders, numParsers, queueCapacity, parseCache), but if 'isMetricsOnly', the
+     * parsers release the code tree of each file as soon as it's parsed; see ParsedSourceFile.releaseCodeTrees().
+     *
+     * @param isMetricsOnly : (boolean) Whether to keep only the data needed by the metrics of the files.
+     */
+    public SourceFilePipeline(int numReaders, int numParsers, int queueCapacity, ParseCache parseCache, boolean isMetricsOnly) {
+        this.numReaders = Math.max(1, numReaders);
+        this.numParsers = Math.max(1, numParsers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.parseCache = parseCache;
+        this.isMetricsOnly = isMetricsOnly;
+    }
+
+    /***
+     * Reads and parses the given files.
+     *
+     * @param filePaths : (List) Paths of the files to parse. Files without a .java extension are skipped.
+     * @return Array of ParsedSourceFile in the same order as 'filePaths'. Skipped, unreadable or unparsable files are left null.
+     * @throws InterruptedException if the calling thread is interrupted while waiting on the pipeline.
+     * @throws Error thrown by a parser, other than a StackOverflowError, such as an OutOfMemoryError. The pipeline
+     *         is stopped, and the error is thrown again here.
+     */
+    public ParsedSourceFile[] parse(List<Path> filePaths) throws InterruptedException {
+        ParsedSourceFile[] parsedFiles = new ParsedSourceFile[filePaths.size()];
+        BlockingQueue<ReadSourceFile> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        ExecutorService readers = Executors.newFixedThreadPool(this.numReaders);
+
+        // A parser that hits an error it can't recover from wakes up the calling thread, then stops the readers. Only
+        // the first error does, so that no interrupt reaches the calling thread once it's done with the pipeline:
+        Thread caller = Thread.currentThread();
+        AtomicReference<Error> fatalError = new AtomicReference<>();
+        Consumer<Error> stopPipeline = e -> {
+            if(!fatalError.compareAndSet(null, e)) return;
+            caller.interrupt();
+            readers.shutdownNow();
+        };
+
+        // STAGE 2: Start the parsers first, so that they're ready to empty the queue as soon as it fills up:
+        List<Thread> parsers = new ArrayList<>(this.numParsers);
+        for(int i = 0; i < this.numParsers; i++) {
+            Thread parser = new Thread(() -> this.runParser(queue, parsedFiles, stopPipeline), "source-file-parser-" + i);
+            parsers.add(parser);
+            parser.start();
+        }
+
+        // STAGE 1: Read the files. put() blocks whenever the queue is full, which is what keeps memory in check:
+        try {
+            for(int i = 0; i < filePaths.size(); i++) {
+                final int index = i;
+                final Path filePath = filePaths.get(i);
+                if(!filePath.toString().endsWith(".java")) continue;
+
+                readers.submit(() -> {
+                    try {
+                        queue.put(new ReadSourceFile(index, filePath, SourceFileReader.read(filePath)));
+                    } catch (IOException | RuntimeException e) {
+                        // Anything thrown here would otherwise be lost in the Future returned by submit():
+                        System.out.println("\n[ ERROR ]\n " + e.getClass().getSimpleName() + " thrown by a reader of 'SourceFilePipeline'. Unable to read file " + filePath.toFile().getAbsolutePath() + "!");
+                        e.printStackTrace();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            readers.shutdown();
+            readers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+            // Let every parser know that there's nothing left to parse:
+            for(int i = 0; i < this.numParsers; i++) queue.put(END_OF_FILES);
+            for(Thread parser : parsers) parser.join();
+        }
+        catch (InterruptedException | RejectedExecutionException e) {
+            // Either wait was cut short, or a file was submitted to the readers after they were stopped:
+            if(fatalError.get() == null) throw e;
+        }
+        finally {
+            readers.shutdownNow();
+            for(Thread parser : parsers) parser.interrupt();
+        }
+
+        if(fatalError.get() != null) {
+            // Clear the interrupt sent by the parser, which was only meant to stop the waiting above:
+            Thread.interrupted();
+            throw fatalError.get();
+        }
+        return parsedFiles;
+    }
+
+    private void runParser(BlockingQueue<ReadSourceFile> queue, ParsedSourceFile[] parsedFiles, Consumer<Error> stopPipeline) {
+        try {
+            while(true) {
+                ReadSourceFile readFile = queue.take();
+                if(readFile == END_OF_FILES) return;
+
+                try {
+                    if(this.parseCache != null) parsedFiles[readFile.index] = this.parseCache.parse(readFile.filePath, readFile.textData);
+                    else parsedFiles[readFile.index] = new ParsedSourceFile(readFile.filePath, readFile.textData);
+                    if(this.isMetricsOnly && parsedFiles[readFile.index] != null) parsedFiles[readFile.index].releaseCodeTrees();
+                } catch (RuntimeException | StackOverflowError e) {
+                    // A StackOverflowError, such as on a huge expression, only costs this one file. Other errors leave
+                    // the JVM in no state to keep parsing, so those stop the whole pipeline instead:
+                    parsedFiles[readFile.index] = null;
+                    System.out.println("\n[ ERROR ]\n " + e.getClass().getSimpleName() + " thrown by a parser of 'SourceFilePipeline'. Unable to parse file " + readFile.filePath.toFile().getAbsolutePath() + "!");
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Error e) {
+            // If the thread simply died, the readers would eventually block forever on a full queue:
+            stopPipeline.accept(e);
+        }
+    }
+}
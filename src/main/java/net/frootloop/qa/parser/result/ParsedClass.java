@@ -1,12 +1,18 @@
 package net.frootloop.qa.parser.result;
 
 import net.frootloop.qa.parser.util.strings.CodeParser;
+import net.frootloop.qa.parser.result.internal.AttributeAccessSets;
+import net.frootloop.qa.parser.result.internal.BlocksOfCode;
+import net.frootloop.qa.parser.result.internal.CodeStatement;
 import net.frootloop.qa.parser.result.internal.CodeTree;
 import net.frootloop.qa.parser.result.internal.Visibility;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 
 public class ParsedClass extends CodeTree {
 
@@ -20,21 +26,31 @@ public class ParsedClass extends CodeTree {
     private ArrayList<String> parentClasses = new ArrayList<>();
     private ArrayList<String> classesReferenced = new ArrayList<>();
     private ArrayList<String> attributesDeclared;
-    private int numAssertStatements, numCommits = -1, numLinesComments = -1, numLinesCode = -1, lcom = -1, wmc = -1;
+    private AttributeAccessSets attributeAccessSets;
 
-    public ParsedClass(BlockOfCode classCodeBlock, String packageName, String[] importStatements, Path filePath){
-        super(classCodeBlock);
+    /***
+     * First method of each name, and first non-private method of each name, as returned by getMethodByName(). Built
+     * the first time a method is looked up, and again if methods were added since.
+     */
+    private HashMap<String, ParsedMethod> methodsByName, nonPrivateMethodsByName;
+    private int numMethodsIndexed;
+    private int numAssertStatements, numCommits = -1, numTimesReferenced = 0, numLinesComments = -1, numLinesCode = -1, lcom = -1, wmc = -1;
+    private int numLines = -1, numLinesEmpty = -1, numStatements = -1;
+
+    public ParsedClass(BlocksOfCode blocks, int classBlock, String packageName, String[] importStatements, Path filePath){
+        super(blocks, classBlock);
+        String leadingStatement = this.blocks.getLeadingStatement(this.root);
         this.filePath = filePath;
         this.packageName = packageName;
-        this.className = CodeParser.getDeclaredClassName(this.root.leadingStatement);
-        this.visibility = CodeParser.getDeclaredClassVisibility(this.root.leadingStatement);
-        this.cyclomaticComplexity = this.root.getCyclomaticComplexity();
+        this.className = CodeParser.getDeclaredClassName(leadingStatement);
+        this.visibility = CodeParser.getDeclaredClassVisibility(leadingStatement);
+        this.cyclomaticComplexity = this.blocks.getCyclomaticComplexity(this.root);
         this.importStatements = importStatements;
 
         // Get list of methods:
-        for (BlockOfCode child: this.root.children) {
-            if (CodeParser.isMethodDeclaration(child.leadingStatement)) {
-                ParsedMethod method = new ParsedMethod(child, this);
+        for (int child = this.blocks.getFirstChild(this.root); child != -1; child = this.blocks.getNextSibling(child)) {
+            if (this.blocks.isLeadingStatementOfKind(child, CodeStatement.METHOD_DECLARATION)) {
+                ParsedMethod method = new ParsedMethod(this.blocks, child, this);
                 this.methods.add(method);
                 this.numAssertStatements += method.getNumAssertStatements();
             }
@@ -47,23 +63,94 @@ public class ParsedClass extends CodeTree {
             m.incrementTestedMethodsNumTests();
 
         // Set attributes:
-        this.attributesDeclared = this.root.getDeclaredVariables();
+        this.attributesDeclared = this.blocks.getDeclaredVariables(this.root);
 
         // Check if the package name we're given refers to a class we'd be embedded in:
         if(CodeParser.getPackageClass(packageName) != null) this.addParent(packageName);
 
         // Set inheritance:
-        for(String name : CodeParser.getDeclaredClassInheritance(this.root.leadingStatement))
+        for(String name : CodeParser.getDeclaredClassInheritance(leadingStatement))
             this.addParent(this.getSignatureOfReferencedClass(name));
 
         // Set references to other classes:
-        String codeOfClass = this.root.getCodeAsString().replace("\n", "");
-        for(String name : CodeParser.getInitializedClassNames(codeOfClass))
+        for(String name : CodeParser.getInitializedClassNames(this.blocks.getCodeWithoutLineBreaks(this.root)))
             this.addReferenceTo(this.getSignatureOfReferencedClass(name));
     }
 
-    public ParsedClass(BlockOfCode classCodeBlock, String packageName, String[] importStatements){
-        this(classCodeBlock,packageName,importStatements, null);
+    public ParsedClass(BlocksOfCode blocks, int classBlock, String packageName, String[] importStatements){
+        this(blocks, classBlock, packageName, importStatements, null);
+    }
+
+    /***
+     * Restores a class from an entry of the ParseCache, as written by writeTo(). Such a class has no code tree,
+     * only the data that was extracted from it, such as its line counts, methods, parents and references.
+     *
+     * @param in : Stream positioned at the start of the class' data.
+     * @param importStatements : Import statements of the source file declaring the class.
+     * @param filePath : Path of the source file declaring the class.
+     */
+    ParsedClass(DataInputStream in, String[] importStatements, Path filePath) throws IOException {
+        super(null, -1);
+        this.filePath = filePath;
+        this.importStatements = importStatements;
+        this.packageName = ParsedResultStreams.readString(in);
+        this.className = ParsedResultStreams.readString(in);
+        this.visibility = ParsedResultStreams.readVisibility(in);
+        this.cyclomaticComplexity = in.readInt();
+        this.numAssertStatements = in.readInt();
+        this.numLines = in.readInt();
+        this.numLinesCode = in.readInt();
+        this.numLinesComments = in.readInt();
+        this.numLinesEmpty = in.readInt();
+        this.numStatements = in.readInt();
+        this.parentClasses = ParsedResultStreams.readStrings(in);
+        this.classesReferenced = ParsedResultStreams.readStrings(in);
+        this.attributesDeclared = ParsedResultStreams.readStrings(in);
+
+        int numMethods = in.readInt();
+        for(int i = 0; i < numMethods; i++) this.methods.add(new ParsedMethod(in, this));
+        for(ParsedMethod m : this.methods) m.restoreMethodsReferencedInScope();
+    }
+
+    /***
+     * Writes the data of the class and of its methods to an entry of the ParseCache. Must be called before
+     * the class is added to a ParsedRepository.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        ParsedResultStreams.writeString(out, this.packageName);
+        ParsedResultStreams.writeString(out, this.className);
+        ParsedResultStreams.writeVisibility(out, this.visibility);
+        out.writeInt(this.cyclomaticComplexity);
+        out.writeInt(this.numAssertStatements);
+        out.writeInt(this.getNumLines());
+        out.writeInt(this.getNumLinesCode());
+        out.writeInt(this.getNumLinesComments());
+        out.writeInt(this.getNumLinesEmpty());
+        out.writeInt(this.getNumStatements());
+        ParsedResultStreams.writeStrings(out, this.parentClasses);
+        ParsedResultStreams.writeStrings(out, this.classesReferenced);
+        ParsedResultStreams.writeStrings(out, this.attributesDeclared);
+
+        out.writeInt(this.methods.size());
+        for(ParsedMethod m : this.methods) m.writeTo(out);
+    }
+
+    /***
+     * Extracts all of the data that the metrics of the class and of its methods need from their code, then drops
+     * their code tree. The class is then the same as one restored from the ParseCache.
+     */
+    void releaseCodeTree() {
+        if(this.blocks == null) return;
+        for(ParsedMethod m : this.methods) m.releaseCodeTree();
+        this.getNumStatements();
+        this.getNumLines();
+        this.getNumLinesCode();
+        this.getNumLinesComments();
+        this.getNumLinesEmpty();
+        this.getWeightedMethods();
+        this.getLackOfCohesionInMethods();
+        this.blocks = null;
+        this.root = -1;
     }
 
     public boolean hasAttributeCalled(String variableName) {
@@ -118,18 +205,67 @@ public class ParsedClass extends CodeTree {
         return this.getNumMethods() - this.getNumMethodPairsSharingAttributes();
     }
 
+    /***
+     * @return Number of ordered pairs of methods that access the exact same attributes.
+     */
     private int getNumMethodPairsSharingAttributes() {
-        if(this.methods.size() < 2) return 0;
-
-        int number = 0;
-        for(ParsedMethod m1 : this.methods) {
-            for(ParsedMethod m2 : this.methods) {
-                if(m1 == m2) continue;
-                boolean bothAccessSameAttributes = new HashSet<>(m1.getReferencedAttributes()).equals(new HashSet<>(m2.getReferencedAttributes()));
-                if(bothAccessSameAttributes) number++;
-            }
-        }
-        return number;
+        return 2 * this.getAttributeAccessSets().getNumPairsWithSameAttributes();
+    }
+
+    /***
+     * @return LCOM1 (Chidamber & Kemerer, 1991); number of pairs of methods that access no attribute in common.
+     */
+    public int getLCOM1() {
+        return this.getAttributeAccessSets().getNumPairsSharingNoAttribute();
+    }
+
+    /***
+     * @return LCOM2 (Chidamber & Kemerer, 1994); pairs of methods that access no attribute in common, minus those
+     * that do, or 0 if there are more of the latter.
+     */
+    public int getLCOM2() {
+        AttributeAccessSets sets = this.getAttributeAccessSets();
+        return Math.max(0, sets.getNumPairsSharingNoAttribute() - sets.getNumPairsSharingAttributes());
+    }
+
+    /***
+     * @return LCOM3 (Li & Henry); number of groups of methods connected by the attributes they access in common.
+     */
+    public int getLCOM3() {
+        return this.getAttributeAccessSets().getNumComponentsSharingAttributes();
+    }
+
+    /***
+     * @return LCOM4 (Hitz & Montazeri); number of groups of methods connected by the attributes they access in
+     * common, or by calls from one to the other. A cohesive class has an LCOM4 of 1.
+     */
+    public int getLCOM4() {
+        return this.getAttributeAccessSets().getNumComponentsSharingAttributesOrCalls();
+    }
+
+    /***
+     * @return TCC (Bieman & Kang); ratio of pairs of methods that access an attribute in common. 1 if the class has
+     * less than two methods.
+     */
+    public float getTightClassCohesion() {
+        AttributeAccessSets sets = this.getAttributeAccessSets();
+        if(sets.getNumPairs() == 0) return 1;
+        return (float)sets.getNumPairsSharingAttributes() / (float)sets.getNumPairs();
+    }
+
+    /***
+     * @return LCC (Bieman & Kang); ratio of pairs of methods connected, directly or through other methods, by the
+     * attributes they access. 1 if the class has less than two methods.
+     */
+    public float getLooseClassCohesion() {
+        AttributeAccessSets sets = this.getAttributeAccessSets();
+        if(sets.getNumPairs() == 0) return 1;
+        return (float)sets.getNumPairsConnected() / (float)sets.getNumPairs();
+    }
+
+    private AttributeAccessSets getAttributeAccessSets() {
+        if(this.attributeAccessSets == null) this.attributeAccessSets = new AttributeAccessSets(this.methods);
+        return this.attributeAccessSets;
     }
 
     public ArrayList<ParsedMethod> getMethods() {
@@ -146,12 +282,19 @@ public class ParsedClass extends CodeTree {
      * @return (ParsedMethod) First function or method in the class with a matching name. Null if none.
      */
     public ParsedMethod getMethodByName(String name, boolean isAskingFromOutsideScope) {
-        // Check in current class:
-        for(ParsedMethod m : this.getMethods()) {
-            if (isAskingFromOutsideScope && m.isPrivate()) continue;
-            if (m.getMethodName().equals(name)) return m;
+        if(this.methodsByName == null || this.numMethodsIndexed != this.methods.size()) this.indexMethodsByName();
+        if(isAskingFromOutsideScope) return this.nonPrivateMethodsByName.get(name);
+        else return this.methodsByName.get(name);
+    }
+
+    private void indexMethodsByName() {
+        this.methodsByName = new HashMap<>();
+        this.nonPrivateMethodsByName = new HashMap<>();
+        for(ParsedMethod m : this.methods) {
+            this.methodsByName.putIfAbsent(m.getMethodName(), m);
+            if(!m.isPrivate()) this.nonPrivateMethodsByName.putIfAbsent(m.getMethodName(), m);
         }
-        return null;
+        this.numMethodsIndexed = this.methods.size();
     }
 
     public String getSignature() {
@@ -170,11 +313,25 @@ public class ParsedClass extends CodeTree {
         return this.getSignature();
     }
 
+    /***
+     * Prints the signature of the class and its line counts, which are kept once its code tree is released, so that
+     * it still works on classes restored from the ParseCache.
+     */
+    @Override
+    public void print() {
+        System.out.println(this.toString());
+        System.out.println("Has " + this.getNumLines() + " lines; " + this.getNumLinesCode() + " of which are code, " + this.getNumLinesComments() + " of which are comments, and " + this.getNumLinesEmpty() + " of which are empty.");
+    }
+
     public Path getFilePath() {
         if(this.filePath == null) return Path.of("./" + this.getSignature().replace(".", "/") + ".java");
         return filePath;
     }
 
+    public ArrayList<String> getDeclaredAttributes() {
+        return this.attributesDeclared;
+    }
+
     public ArrayList<String> getParentSignatures() {
         return this.parentClasses;
     }
@@ -220,13 +377,23 @@ public class ParsedClass extends CodeTree {
             if (m.isTest()) numStatementsForTesting += m.getNumStatements();
             else numStatementsForTesting += m.getNumAssertStatements();
         }
-        return 100 * (float)numStatementsForTesting / (float)root.getNumStatements();
+        return 100 * (float)numStatementsForTesting / (float)this.getNumStatements();
+    }
+
+    public int getNumStatements() {
+        if(this.numStatements == -1) this.numStatements = this.blocks.getNumStatements(this.root);
+        return this.numStatements;
     }
 
     public int getCyclomatcComplexity() {
         return cyclomaticComplexity;
     }
 
+    @Override
+    public int getCyclomaticComplexity() {
+        return 1 + this.cyclomaticComplexity;
+    }
+
     public int getNumAssertStatements() {
         return this.numAssertStatements;
     }
@@ -238,6 +405,34 @@ public class ParsedClass extends CodeTree {
         return this.numCommits;
     }
 
+    /***
+     * Set by ParsedRepository.buildReferences(), to the class's coupling between classes (CBO) within its repository.
+     * @param numTimesReferenced
+     */
+    public void setNumTimesReferenced(int numTimesReferenced) {
+        this.numTimesReferenced = numTimesReferenced;
+    }
+
+    /***
+     * @return Number of times the class is referenced by the classes of its repository, directly or indirectly, as
+     *         of the last time its references were built. Same as ParsedRepository.getNumTimesReferenced().
+     */
+    public int getNumTimesReferenced() {
+        return this.numTimesReferenced;
+    }
+
+    @Override
+    public int getNumLines() {
+        if(this.numLines == -1) this.numLines = super.getNumLines();
+        return this.numLines;
+    }
+
+    @Override
+    public int getNumLinesEmpty() {
+        if(this.numLinesEmpty == -1) this.numLinesEmpty = super.getNumLinesEmpty();
+        return this.numLinesEmpty;
+    }
+
     @Override
     public int getNumLinesComments() {
         if(this.numLinesComments == -1) this.numLinesComments = super.getNumLinesComments();
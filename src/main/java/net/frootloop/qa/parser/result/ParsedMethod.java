@@ -1,9 +1,13 @@
 package net.frootloop.qa.parser.result;
 
 import net.frootloop.qa.parser.util.strings.CodeParser;
+import net.frootloop.qa.parser.result.internal.BlocksOfCode;
 import net.frootloop.qa.parser.result.internal.CodeTree;
 import net.frootloop.qa.parser.result.internal.Visibility;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -19,23 +23,118 @@ public class ParsedMethod extends CodeTree {
     private String[] assertStatements;
     private ArrayList<String> arguments;
     private ArrayList<ParsedMethod> methodsReferencedInScope = new ArrayList<>();
+    private ArrayList<String> namesOfMethodsReferencedInScope;
     private ArrayList<String> methodsNamesReferencedOutsideScope = new ArrayList<>();
+    private List<String> referencedAttributes, referencedClasses;
+    private int cyclomaticComplexity = -1, numStatements = -1, numLines = -1, numLinesCode = -1, numLinesComments = -1, numLinesEmpty = -1;
 
-    public ParsedMethod(BlockOfCode blockOfCode, ParsedClass parsedClass) {
-        super(blockOfCode);
+    public ParsedMethod(BlocksOfCode blocks, int methodBlock, ParsedClass parsedClass) {
+        super(blocks, methodBlock);
+        String leadingStatement = blocks.getLeadingStatement(methodBlock);
         this.homeClass = parsedClass;
-        this.methodName = CodeParser.getDeclaredMethodName(blockOfCode.leadingStatement);
-        this.visibility = CodeParser.getDeclaredMethodVisibility(blockOfCode.leadingStatement);
-        this.returnType = CodeParser.getDeclaredMethodReturnType(blockOfCode.leadingStatement);
-        this.arguments = CodeParser.getDeclaredMethodArguments(blockOfCode.leadingStatement);
-        this.isStatic = CodeParser.isMethodDeclarationStatic(blockOfCode.leadingStatement);
-        this.isAbstract = CodeParser.isMethodDeclarationAbstract(blockOfCode.leadingStatement);
-        this.isTest = CodeParser.isMethodDeclarationTest(blockOfCode.leadingStatement);
-        this.assertStatements = CodeParser.getAssertStatementsOf(blockOfCode.getCodeAsString());
+        this.methodName = CodeParser.getDeclaredMethodName(leadingStatement);
+        this.visibility = CodeParser.getDeclaredMethodVisibility(leadingStatement);
+        this.returnType = CodeParser.getDeclaredMethodReturnType(leadingStatement);
+        this.arguments = CodeParser.getDeclaredMethodArguments(leadingStatement);
+        this.isStatic = CodeParser.isMethodDeclarationStatic(leadingStatement);
+        this.isAbstract = CodeParser.isMethodDeclarationAbstract(leadingStatement);
+        this.isTest = CodeParser.isMethodDeclarationTest(leadingStatement);
+        this.assertStatements = CodeParser.getAssertStatementsOf(blocks.getCode(methodBlock));
+    }
+
+    /***
+     * Restores a method from an entry of the ParseCache, as written by writeTo(). Such a method has no code tree,
+     * only the data that was extracted from it. Its methods referenced within its class are only restored by name,
+     * and found once all of the methods of its class are restored; see restoreMethodsReferencedInScope().
+     *
+     * @param in : Stream positioned at the start of the method's data.
+     * @param homeClass : Class which declares the method.
+     */
+    ParsedMethod(DataInputStream in, ParsedClass homeClass) throws IOException {
+        super(null, -1);
+        this.homeClass = homeClass;
+        this.methodName = ParsedResultStreams.readString(in);
+        this.visibility = ParsedResultStreams.readVisibility(in);
+        this.returnType = ParsedResultStreams.readString(in);
+        this.arguments = ParsedResultStreams.readStrings(in);
+        this.isStatic = in.readBoolean();
+        this.isAbstract = in.readBoolean();
+        this.isTest = in.readBoolean();
+        this.assertStatements = ParsedResultStreams.readStringArray(in);
+        this.methodsNamesReferencedOutsideScope = ParsedResultStreams.readStrings(in);
+        this.numDedicatedUnitTests = in.readInt();
+        this.referencedAttributes = ParsedResultStreams.readStrings(in);
+        this.referencedClasses = ParsedResultStreams.readStrings(in);
+        this.cyclomaticComplexity = in.readInt();
+        this.numStatements = in.readInt();
+        this.numLines = in.readInt();
+        this.numLinesCode = in.readInt();
+        this.numLinesComments = in.readInt();
+        this.numLinesEmpty = in.readInt();
+        this.namesOfMethodsReferencedInScope = ParsedResultStreams.readStrings(in);
+    }
+
+    /***
+     * Finds the methods referenced within the class of a method restored from the ParseCache, once all of the
+     * methods of its class are restored.
+     */
+    void restoreMethodsReferencedInScope() {
+        if(this.namesOfMethodsReferencedInScope == null) return;
+        for(String methodName : this.namesOfMethodsReferencedInScope) {
+            ParsedMethod referenced = this.homeClass.getMethodByName(methodName, false);
+            if(referenced != null && !this.methodsReferencedInScope.contains(referenced)) this.methodsReferencedInScope.add(referenced);
+        }
+        this.namesOfMethodsReferencedInScope = null;
+    }
+
+    /***
+     * Writes the data of the method to an entry of the ParseCache. Must be called before the method's class
+     * is added to a ParsedRepository, since linking the repository changes its number of unit tests.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        ParsedResultStreams.writeString(out, this.methodName);
+        ParsedResultStreams.writeVisibility(out, this.visibility);
+        ParsedResultStreams.writeString(out, this.returnType);
+        ParsedResultStreams.writeStrings(out, this.arguments);
+        out.writeBoolean(this.isStatic);
+        out.writeBoolean(this.isAbstract);
+        out.writeBoolean(this.isTest);
+        ParsedResultStreams.writeStringArray(out, this.assertStatements);
+        ParsedResultStreams.writeStrings(out, this.methodsNamesReferencedOutsideScope);
+        out.writeInt(this.numDedicatedUnitTests);
+        ParsedResultStreams.writeStrings(out, this.getReferencedAttributes());
+        ParsedResultStreams.writeStrings(out, this.getReferencedClasses());
+        out.writeInt(this.getCyclomaticComplexity());
+        out.writeInt(this.getNumStatements());
+        out.writeInt(this.getNumLines());
+        out.writeInt(this.getNumLinesCode());
+        out.writeInt(this.getNumLinesComments());
+        out.writeInt(this.getNumLinesEmpty());
+        ArrayList<String> namesOfMethodsReferencedInScope = new ArrayList<>();
+        for(ParsedMethod m : this.methodsReferencedInScope) namesOfMethodsReferencedInScope.add(m.getMethodName());
+        ParsedResultStreams.writeStrings(out, namesOfMethodsReferencedInScope);
+    }
+
+    /***
+     * Extracts all of the data that the metrics of the method need from its code, then drops its code tree. The
+     * method is then the same as one restored from the ParseCache.
+     */
+    void releaseCodeTree() {
+        if(this.blocks == null) return;
+        this.getReferencedAttributes();
+        this.getReferencedClasses();
+        this.getNumStatements();
+        this.getCyclomaticComplexity();
+        this.getNumLines();
+        this.getNumLinesCode();
+        this.getNumLinesComments();
+        this.getNumLinesEmpty();
+        this.blocks = null;
+        this.root = -1;
     }
 
     public void setReferencedMethods() {
-        for (String methodName : CodeParser.getReferencedMethodNames(this.root.getCodeAsString())) {
+        for (String methodName : CodeParser.getReferencedMethodNames(this.blocks.getCode(this.root))) {
             if(methodName.equals(this.methodName)) continue;
 
             ParsedMethod referenced = this.homeClass.getMethodByName(methodName, false);
@@ -61,9 +160,14 @@ public class ParsedMethod extends CodeTree {
     }
 
     public List<String> getReferencedAttributes() {
+        if (this.referencedAttributes == null) this.referencedAttributes = this.findReferencedAttributes();
+        return this.referencedAttributes;
+    }
+
+    private List<String> findReferencedAttributes() {
         if (isStatic) return new ArrayList<>();
 
-        String code = this.root.getCodeAsString();
+        CharSequence code = this.blocks.getCode(this.root);
 
         // Get a list of our class' attributes that were referred to by using the "this.attributeName" format;
         ArrayList<String> referencedAttributeList = new ArrayList<>();
@@ -72,7 +176,7 @@ public class ParsedMethod extends CodeTree {
                 referencedAttributeList.add(attribute);
 
         // Try to find other times the class
-        ArrayList<String> declaredVariables = this.root.getDeclaredVariables();
+        ArrayList<String> declaredVariables = this.blocks.getDeclaredVariables(this.root);
         for (String word : CodeParser.getLowerCaseWordsOf(code)) {
             if (this.homeClass.hasAttributeCalled(word)) {
                 boolean isDeclaredInMethod = declaredVariables.contains(word);
@@ -118,12 +222,22 @@ public class ParsedMethod extends CodeTree {
     }
 
     public List<String> getReferencedClasses() {
+        if (this.referencedClasses != null) return this.referencedClasses;
+
         ArrayList<String> referencedClasses = new ArrayList<>();
-        for(String className: CodeParser.getInitializedClassNames(this.root.getCodeAsString()))
+        for(String className: CodeParser.getInitializedClassNames(this.blocks.getCode(this.root)))
             referencedClasses.add(this.homeClass.getSignatureOfReferencedClass(className));
+        this.referencedClasses = referencedClasses;
         return referencedClasses;
     }
 
+    /***
+     * @return Methods of the same class that this method calls.
+     */
+    public ArrayList<ParsedMethod> getMethodsReferencedInScope() {
+        return this.methodsReferencedInScope;
+    }
+
     public ArrayList<String> getReferencedMethodNames() {
         if(this.isTest) return this.methodsNamesReferencedOutsideScope;
         else if(this.assertStatements == null || this.assertStatements.length == 0) return new ArrayList<>();
@@ -154,6 +268,37 @@ public class ParsedMethod extends CodeTree {
     }
 
     public int getNumStatements() {
-        return this.root.getNumStatements();
+        if(this.numStatements == -1) this.numStatements = this.blocks.getNumStatements(this.root);
+        return this.numStatements;
+    }
+
+    @Override
+    public int getCyclomaticComplexity() {
+        if(this.cyclomaticComplexity == -1) this.cyclomaticComplexity = super.getCyclomaticComplexity();
+        return this.cyclomaticComplexity;
+    }
+
+    @Override
+    public int getNumLines() {
+        if(this.numLines == -1) this.numLines = super.getNumLines();
+        return this.numLines;
+    }
+
+    @Override
+    public int getNumLinesCode() {
+        if(this.numLinesCode == -1) this.numLinesCode = super.getNumLinesCode();
+        return this.numLinesCode;
+    }
+
+    @Override
+    public int getNumLinesComments() {
+        if(this.numLinesComments == -1) this.numLinesComments = super.getNumLinesComments();
+        return this.numLinesComments;
+    }
+
+    @Override
+    public int getNumLinesEmpty() {
+        if(this.numLinesEmpty == -1) this.numLinesEmpty = super.getNumLinesEmpty();
+        return this.numLinesEmpty;
     }
 }
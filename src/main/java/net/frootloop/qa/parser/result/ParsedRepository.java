@@ -1,10 +1,17 @@
 package net.frootloop.qa.parser.result;
 
+import net.frootloop.qa.parser.result.internal.ClassGraph;
+import net.frootloop.qa.parser.result.internal.SymbolTable;
+import net.frootloop.qa.parser.util.files.CommitCountIndex;
 import net.frootloop.qa.parser.util.files.GitGudder;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 public class ParsedRepository {
 
@@ -16,22 +23,55 @@ public class ParsedRepository {
     private HashMap<String, ParsedClass> classMap  = new HashMap<>(ESTIMATED_MAX_NUM_CLASSES);
 
     /***
-     * Map to store and fetch the amount of times a class has been referred (directly or indirectly) to by
-     * another class, with the key being the class's signature.
+     * Ids of the signatures of every class known to the repository, whether declared in it or only referenced by
+     * one of its classes, and of the names of the methods and attributes of its classes. Names are interned as
+     * classes are added, so that building the references between classes hashes no signature.
      */
-    private HashMap<String, Integer> mapNumTimesReferenced = new HashMap<>(ESTIMATED_MAX_NUM_CLASSES);
+    private SymbolTable classSignatures = new SymbolTable();
+    private SymbolTable methodNames = new SymbolTable();
+    private SymbolTable attributeNames = new SymbolTable();
 
     /***
-     * Map to store and fetch the amount of times a class has been directly referred to by
-     * another class, with the key being the class's signature.
+     * By id of signature: the class of the repository with that signature, the ids of its parents, and the ids of
+     * the classes it refers to directly. Null for the signatures of classes outside the repository.
      */
-    private HashMap<String, Integer> mapNumTimesReferencedDirectly = new HashMap<>(ESTIMATED_MAX_NUM_CLASSES);
+    private ParsedClass[] classesById = new ParsedClass[ESTIMATED_MAX_NUM_CLASSES];
+    private int[][] parentIdsById = new int[ESTIMATED_MAX_NUM_CLASSES][];
+    private int[][] referencedIdsById = new int[ESTIMATED_MAX_NUM_CLASSES][];
 
     /***
-     * Map to store and fetch the amount of times a parent class has been indirectly referred to by
-     * a child class, with the key being the parent's signature.
+     * By id of signature: the amount of times a class has been referred to by another class, either directly or
+     * indirectly, directly, and indirectly (i.e. a parent class by the references to its child class).
      */
-    private HashMap<String, Integer> mapNumTimesReferencedIndirectly = new HashMap<>(ESTIMATED_MAX_NUM_CLASSES);
+    private int[] numTimesReferenced = new int[ESTIMATED_MAX_NUM_CLASSES];
+    private int[] numTimesReferencedDirectly = new int[ESTIMATED_MAX_NUM_CLASSES];
+    private int[] numTimesReferencedIndirectly = new int[ESTIMATED_MAX_NUM_CLASSES];
+
+    /***
+     * Parsed source files of the repository by their path, in the order they were added. Adding a file with the same
+     * path as one already in the repository replaces it.
+     */
+    private LinkedHashMap<Path, ParsedSourceFile> sourceFiles = new LinkedHashMap<>();
+
+    /***
+     * Unit tests counted by buildReferences() for methods tested from outside their own class, so that they can be
+     * taken back before linking the classes again.
+     */
+    private HashMap<ParsedMethod, Integer> mapNumUnitTestsLinked = new HashMap<>();
+
+    /***
+     * Commit at the HEAD of the repository when it was analysed, along with the paths that had uncommitted
+     * changes at the time. Used by JavaRepositoryParser.update() to find which files changed since.
+     */
+    private String analysedCommitId;
+    private Set<String> analysedUncommittedPaths = new HashSet<>();
+
+    /***
+     * Commit counts of every .java file, built from the repository's history the first time a class is added.
+     * Null if not built yet, or if the history couldn't be indexed, in which case each class falls back to its own log.
+     */
+    private CommitCountIndex commitCountIndex;
+    private boolean isCommitCountIndexBuilt;
 
     private Path rootFilePath;
     private int totalLines, totalLinesComments, totalLinesEmpty, totalLinesCode, numAssertStatements, numSourceFiles, numMethods, numClasses, cyclomaticComplexity = 1;
@@ -42,7 +82,16 @@ public class ParsedRepository {
         this.rootFilePath = filePath;
     }
 
-    public void addParsedFile(ParsedSourceFile parsedFile) {
+    /***
+     * Adds a parsed source file and its classes to the repository's totals. Synchronized, so that
+     * the parsing threads of JavaRepositoryParser.walk() can all merge their results into the same instance.
+     *
+     * @param parsedFile
+     */
+    public synchronized void addParsedFile(ParsedSourceFile parsedFile) {
+        if(this.sourceFiles.containsKey(parsedFile.getFilePath())) this.removeParsedFile(parsedFile.getFilePath());
+        this.sourceFiles.put(parsedFile.getFilePath(), parsedFile);
+
         for (ParsedClass c: parsedFile.getClasses())
             this.addParsedClass(c);
 
@@ -55,10 +104,15 @@ public class ParsedRepository {
     }
 
     private void addParsedClass(ParsedClass parsedClass) {
-        classMap.put(parsedClass.getSignature(), parsedClass);
+        this.putClass(parsedClass);
 
         // Set the class' commit count:
-        parsedClass.setNumCommits(GitGudder.getCommitCountTo(this, parsedClass));
+        if(!this.isCommitCountIndexBuilt) {
+            this.commitCountIndex = GitGudder.getCommitCountIndexOf(this.rootFilePath);
+            this.isCommitCountIndexBuilt = true;
+        }
+        if(this.commitCountIndex != null) parsedClass.setNumCommits(this.commitCountIndex.getCommitCountTo(parsedClass.getFilePath()));
+        else parsedClass.setNumCommits(GitGudder.getCommitCountTo(this, parsedClass));
 
         // Add to repo's stats (NOM, NOC):
         this.numClasses += 1;
@@ -79,144 +133,324 @@ public class ParsedRepository {
             this.leastCohesiveClass = parsedClass;
     }
 
+    /***
+     * Removes a source file and its classes from the repository's totals. The class trackers (most complex,
+     * least cohesive, etc.) that pointed to one of its classes are recomputed from the remaining classes.
+     *
+     * References between classes aren't updated; call rebuildReferences() once done adding and removing files.
+     *
+     * @param filePath : (Path) Path of the file, as given by ParsedSourceFile.getFilePath().
+     * @return Whether the file was in the repository.
+     */
+    public synchronized boolean removeParsedFile(Path filePath) {
+        ParsedSourceFile parsedFile = this.sourceFiles.remove(filePath);
+        if(parsedFile == null) return false;
+
+        boolean isTrackedClassRemoved = false;
+        for (ParsedClass c: parsedFile.getClasses()) {
+            this.removeParsedClass(c);
+            isTrackedClassRemoved |= c == this.mostComplexClass || c == this.classWithHighestMethodComplexity || c == this.leastCohesiveClass;
+        }
+
+        this.numSourceFiles -= 1;
+        this.totalLines -= parsedFile.getNumLines();
+        this.totalLinesComments -= parsedFile.getNumLinesComments();
+        this.totalLinesEmpty -= parsedFile.getNumLinesEmpty();
+        this.totalLinesCode -= parsedFile.getNumLinesCode();
+
+        if(isTrackedClassRemoved) this.recomputeClassTrackers();
+        return true;
+    }
+
+    private void removeParsedClass(ParsedClass parsedClass) {
+        this.numClasses -= 1;
+        this.numMethods -= parsedClass.getNumMethods() + parsedClass.getNumFunctions();
+        this.numAssertStatements -= parsedClass.getNumAssertStatements();
+        this.cyclomaticComplexity -= parsedClass.getCyclomaticComplexity() - 1;
+
+        if(!this.classMap.remove(parsedClass.getSignature(), parsedClass)) return;
+        int id = this.classSignatures.getId(parsedClass.getSignature());
+        this.classesById[id] = null;
+        this.parentIdsById[id] = this.referencedIdsById[id] = null;
+
+        // Another file may have declared a class with the same signature, which was hidden by this one:
+        if(this.classMap.size() < this.numClasses) {
+            ParsedClass hiddenClass = null;
+            for (ParsedSourceFile f : this.sourceFiles.values())
+                for (ParsedClass c : f.getClasses())
+                    if (c.getSignature().equals(parsedClass.getSignature())) hiddenClass = c;
+            if(hiddenClass != null) this.putClass(hiddenClass);
+        }
+    }
+
+    /***
+     * Makes the class the one fetched by its signature, and interns its signature, those it refers to, and the
+     * names of its methods and attributes.
+     */
+    private void putClass(ParsedClass parsedClass) {
+        this.classMap.put(parsedClass.getSignature(), parsedClass);
+
+        int id = this.classSignatures.intern(parsedClass.getSignature());
+        int[] parentIds = this.classSignatures.intern(parsedClass.getParentSignatures());
+        int[] referencedIds = this.classSignatures.intern(parsedClass.getClassesReferencedDirectly());
+        for(ParsedMethod m : parsedClass.getMethods()) this.methodNames.intern(m.getMethodName());
+        for(String attribute : parsedClass.getDeclaredAttributes()) this.attributeNames.intern(attribute);
+
+        if(this.classesById.length < this.classSignatures.size()) {
+            int capacity = Math.max(2 * this.classesById.length, this.classSignatures.size());
+            this.classesById = Arrays.copyOf(this.classesById, capacity);
+            this.parentIdsById = Arrays.copyOf(this.parentIdsById, capacity);
+            this.referencedIdsById = Arrays.copyOf(this.referencedIdsById, capacity);
+            this.numTimesReferenced = Arrays.copyOf(this.numTimesReferenced, capacity);
+            this.numTimesReferencedDirectly = Arrays.copyOf(this.numTimesReferencedDirectly, capacity);
+            this.numTimesReferencedIndirectly = Arrays.copyOf(this.numTimesReferencedIndirectly, capacity);
+        }
+        this.classesById[id] = parsedClass;
+        this.parentIdsById[id] = parentIds;
+        this.referencedIdsById[id] = referencedIds;
+    }
+
+    private void recomputeClassTrackers() {
+        this.mostComplexClass = null;
+        this.classWithHighestMethodComplexity = null;
+        this.leastCohesiveClass = null;
+
+        for (ParsedSourceFile f : this.sourceFiles.values()) {
+            for (ParsedClass c : f.getClasses()) {
+                if(mostComplexClass == null || mostComplexClass.getCyclomaticComplexity() < c.getCyclomaticComplexity())
+                    mostComplexClass = c;
+                if(classWithHighestMethodComplexity == null || c.getWeightedMethods() > this.classWithHighestMethodComplexity.getWeightedMethods())
+                    this.classWithHighestMethodComplexity = c;
+                if(leastCohesiveClass == null || c.getLackOfCohesionInMethods() > this.leastCohesiveClass.getLackOfCohesionInMethods())
+                    this.leastCohesiveClass = c;
+            }
+        }
+    }
+
+    public synchronized boolean containsParsedFile(Path filePath) {
+        return this.sourceFiles.containsKey(filePath);
+    }
+
+    public synchronized ArrayList<Path> getSourceFilePaths() {
+        return new ArrayList<>(this.sourceFiles.keySet());
+    }
+
+    /***
+     * Drops the commit count index if the repository's HEAD moved since it was built, so that the classes added
+     * afterwards get the counts of the new HEAD.
+     */
+    public synchronized void refreshCommitCounts() {
+        if(this.commitCountIndex == null) return;
+        String headCommitId = GitGudder.getHeadCommitIdOf(this.rootFilePath);
+        if(headCommitId != null && headCommitId.equals(this.commitCountIndex.getCommitId())) return;
+        this.commitCountIndex = null;
+        this.isCommitCountIndexBuilt = false;
+    }
+
+    public void setAnalysedCommit(String commitId, Set<String> uncommittedPaths) {
+        this.analysedCommitId = commitId;
+        this.analysedUncommittedPaths = uncommittedPaths == null ? new HashSet<>() : uncommittedPaths;
+    }
+
+    public String getAnalysedCommitId() {
+        return this.analysedCommitId;
+    }
+
+    public Set<String> getAnalysedUncommittedPaths() {
+        return this.analysedUncommittedPaths;
+    }
+
     public ParsedClass getClassDataOf(String signature){
         return classMap.get(signature);
     }
 
+    public SymbolTable getClassSignatures() {
+        return this.classSignatures;
+    }
+
+    public SymbolTable getMethodNames() {
+        return this.methodNames;
+    }
+
+    public SymbolTable getAttributeNames() {
+        return this.attributeNames;
+    }
+
+    /***
+     * Counts the references between the classes of the repository, and the unit tests dedicated to each method.
+     * Whatever was counted by a previous call is taken back first, so calling it again gives the same counts.
+     */
     public void buildReferences() {
+        Arrays.fill(this.numTimesReferenced, 0);
+        Arrays.fill(this.numTimesReferencedDirectly, 0);
+        Arrays.fill(this.numTimesReferencedIndirectly, 0);
+        this.mostReferencedClass = this.mostDirectlyReferencedClass = this.mostIndirectlyReferencedClass = null;
+        this.mostAmountReferences = this.mostAmountDirectReferences = this.mostAmountIndirectReferences = 0;
+
+        for (ParsedMethod m : this.mapNumUnitTestsLinked.keySet())
+            m.numDedicatedUnitTests -= this.mapNumUnitTestsLinked.get(m);
+        this.mapNumUnitTestsLinked.clear();
 
-        // Add number of times each class is referenced by cycling through all ParsedClasses
+        this.countReferences();
+    }
+
+    /***
+     * Walks up the hierarchy of classes through a ClassGraph, so that each class is visited once whatever the depth
+     * of the hierarchy, and so that a cycle of inheritance can't loop forever.
+     */
+    private void countReferences() {
+        int numIds = this.classSignatures.size();
+        ClassGraph graph = new ClassGraph(numIds, this.parentIdsById);
+
+        // Add number of times each class is referenced by cycling through all ParsedClasses:
+        int[] numReferencesDirect = new int[numIds];
         for (ParsedClass c : this.classMap.values())
-            for (String referencedClass : c.getClassesReferencedDirectly())
-                this.addDirectReferenceTo(referencedClass);
+            for (int referencedId : this.referencedIdsById[this.classSignatures.getId(c.getSignature())])
+                numReferencesDirect[referencedId]++;
+
+        // Every reference to a class after its first is an indirect reference to each of its ancestors:
+        int[] numReferencesIndirect = new int[numIds];
+        for (int id = 0; id < numIds; id++) {
+            if(this.classesById[id] == null || numReferencesDirect[id] < 2) continue;
+            for (int parentId : this.parentIdsById[id])
+                numReferencesIndirect[parentId] += numReferencesDirect[id] - 1;
+        }
+        numReferencesIndirect = graph.getAmountsReceivedFromDescendants(numReferencesIndirect);
+
+        for (int id = 0; id < numIds; id++) {
+            this.numTimesReferencedDirectly[id] += numReferencesDirect[id];
+            this.numTimesReferencedIndirectly[id] += numReferencesIndirect[id];
+            this.numTimesReferenced[id] += numReferencesDirect[id] + numReferencesIndirect[id];
+            if(this.classesById[id] != null) this.classesById[id].setNumTimesReferenced(this.numTimesReferenced[id]);
+        }
+        this.updateMostReferencedClasses();
 
         // Add number of times each method was given a dedicated unit test:
+        int[][] classIdsByMethodNameId = this.getClassIdsByMethodNameId();
+        int[] numTimesCovered = new int[numIds], coveredIds = new int[numIds];
         for (ParsedClass c : this.classMap.values()) {
-            if(c.getMethodNamesTestedOutsideClass().size() == 0) continue;
-
             for (ParsedMethod m : c.getMethods()) {
                 ArrayList<String> testedMethodNames = m.getTestedMethodNamesOutsideClass();
-                ArrayList<ParsedClass> referencedClasses = this.getAllReferencedClassesOf(m);
+                if(testedMethodNames.isEmpty()) continue;
+
+                // The unit tests of a method cover the classes it refers to, and the ancestors of those:
+                int numCovered = 0;
+                for (String classSignature : m.getReferencedClasses()) {
+                    int id = this.classSignatures.getId(classSignature);
+                    if(id < 0 || this.classesById[id] == null) continue;
+
+                    if(numTimesCovered[id]++ == 0) coveredIds[numCovered++] = id;
+                    int[] ancestors = graph.getAncestors(id), multiplicities = graph.getAncestorMultiplicities(id);
+                    for (int a = 0; a < ancestors.length; a++)
+                        if((numTimesCovered[ancestors[a]] += multiplicities[a]) == multiplicities[a]) coveredIds[numCovered++] = ancestors[a];
+                }
 
-                for (ParsedClass referencedClass : referencedClasses) {
-                    for (String methodName : testedMethodNames) {
-                        ParsedMethod referencedMethod = referencedClass.getMethodByName(methodName, false);
-                        if(referencedMethod != null) referencedMethod.numDedicatedUnitTests++;
+                // Look each tested name up in the covered classes, or in the classes declaring it if there are fewer:
+                for (String methodName : testedMethodNames) {
+                    int nameId = this.methodNames.getId(methodName);
+                    if(nameId < 0 || classIdsByMethodNameId[nameId] == null) continue;
+
+                    int[] declaringIds = classIdsByMethodNameId[nameId];
+                    if(declaringIds.length < numCovered) {
+                        for (int id : declaringIds)
+                            if(numTimesCovered[id] > 0) this.addUnitTestsTo(this.classesById[id], methodName, numTimesCovered[id]);
+                    }
+                    else {
+                        for (int i = 0; i < numCovered; i++)
+                            this.addUnitTestsTo(this.classesById[coveredIds[i]], methodName, numTimesCovered[coveredIds[i]]);
                     }
                 }
+
+                for (int i = 0; i < numCovered; i++) numTimesCovered[coveredIds[i]] = 0;
             }
         }
     }
 
-    private ArrayList<ParsedClass> getAllParentsOf(ParsedClass c) {
-        ArrayList<ParsedClass> parents = new ArrayList<>();
+    /***
+     * Inverted index of the methods of the repository: for each method name, by id, the ids of the classes that
+     * declare a method with that name, or null if none does.
+     */
+    private int[][] getClassIdsByMethodNameId() {
+        int[] numDeclaringClasses = new int[this.methodNames.size()];
+        int[] lastDeclaringClass = new int[this.methodNames.size()];
+        Arrays.fill(lastDeclaringClass, -1);
+        ArrayList<int[]> declarations = new ArrayList<>();
 
-        for (String parentSignature: c.getParentSignatures()) {
-            if(this.classMap.containsKey(parentSignature)) {
-                parents.add(this.classMap.get(parentSignature));
-                parents.addAll(this.getAllParentsOf(this.classMap.get(parentSignature)));
+        for (ParsedClass c : this.classMap.values()) {
+            int classId = this.classSignatures.getId(c.getSignature());
+            for (ParsedMethod m : c.getMethods()) {
+                int nameId = this.methodNames.getId(m.getMethodName());
+                if(lastDeclaringClass[nameId] == classId) continue;
+                lastDeclaringClass[nameId] = classId;
+                numDeclaringClasses[nameId]++;
+                declarations.add(new int[]{nameId, classId});
             }
         }
-        return parents;
-    }
 
-    private ArrayList<ParsedClass> getAllReferencedClassesOf(ParsedClass c) {
-        ArrayList<ParsedClass> referenced = new ArrayList<>();
-        for (String classSignature: c.getAllClassesReferenced()) {
-            if (this.classMap.containsKey(classSignature)) {
-                referenced.add(this.classMap.get(classSignature));
-                referenced.addAll(this.getAllParentsOf(this.classMap.get(classSignature)));
-            }
+        int[][] classIdsByMethodNameId = new int[this.methodNames.size()][];
+        int[] filled = new int[this.methodNames.size()];
+        for (int[] declaration : declarations) {
+            int nameId = declaration[0];
+            if(classIdsByMethodNameId[nameId] == null) classIdsByMethodNameId[nameId] = new int[numDeclaringClasses[nameId]];
+            classIdsByMethodNameId[nameId][filled[nameId]++] = declaration[1];
         }
-        return referenced;
+        return classIdsByMethodNameId;
     }
 
-    private ArrayList<ParsedClass> getAllReferencedClassesOf(ParsedMethod m) {
-        ArrayList<ParsedClass> referenced = new ArrayList<>();
-        for (String classSignature: m.getReferencedClasses()) {
-            if (this.classMap.containsKey(classSignature)) {
-                referenced.add(this.classMap.get(classSignature));
-                referenced.addAll(this.getAllParentsOf(this.classMap.get(classSignature)));
-            }
+    private void addUnitTestsTo(ParsedClass referencedClass, String methodName, int numTimes) {
+        ParsedMethod referencedMethod = referencedClass.getMethodByName(methodName, false);
+        if(referencedMethod != null) {
+            referencedMethod.numDedicatedUnitTests += numTimes;
+            this.mapNumUnitTestsLinked.merge(referencedMethod, numTimes, Integer::sum);
         }
-        return referenced;
     }
 
-    private void incrementNumReferencesTotal(String classSignature) {
-
-        // Increment total number of references:
-        int numReferences = 1;
-        if(this.mapNumTimesReferenced.containsKey(classSignature))
-            numReferences = this.mapNumTimesReferenced.get(classSignature) + 1;
-
-        this.mapNumTimesReferenced.put(classSignature, numReferences);
-
-        // Update the repo's class with the most amount of references:
-        if(numReferences > mostAmountReferences && classMap.containsKey(classSignature)) {
-            mostAmountReferences = numReferences;
-            mostReferencedClass = this.classMap.get(classSignature);
-        }
+    /***
+     * Builds the references again, such as after files were added to or removed from a repository whose references
+     * were already built. Same as buildReferences().
+     */
+    public void rebuildReferences() {
+        this.buildReferences();
     }
 
-    private void addDirectReferenceTo(String classSignature) {
-
-        // Increment number of direct references:
-        int numReferences = 1;
-        if(this.mapNumTimesReferencedDirectly.containsKey(classSignature)) {
-            numReferences = this.mapNumTimesReferencedDirectly.get(classSignature) + 1;
+    /***
+     * Finds the classes of the repository with the most references, in total, directly, and indirectly. Among
+     * classes with as many references, the one whose signature was interned first is kept.
+     */
+    private void updateMostReferencedClasses() {
+        for (int id = 0; id < this.classSignatures.size(); id++) {
+            if(this.classesById[id] == null) continue;
 
-            // Increment parents' number of indirect references:
-            if(classMap.containsKey(classSignature)) {
-                for (String parentSignature : this.classMap.get(classSignature).getParentSignatures())
-                    this.addIndirectReferenceTo(parentSignature);
+            if(this.numTimesReferenced[id] > mostAmountReferences) {
+                mostAmountReferences = this.numTimesReferenced[id];
+                mostReferencedClass = this.classesById[id];
+            }
+            if(this.numTimesReferencedDirectly[id] > mostAmountDirectReferences) {
+                mostAmountDirectReferences = this.numTimesReferencedDirectly[id];
+                mostDirectlyReferencedClass = this.classesById[id];
+            }
+            if(this.numTimesReferencedIndirectly[id] > mostAmountIndirectReferences) {
+                mostAmountIndirectReferences = this.numTimesReferencedIndirectly[id];
+                mostIndirectlyReferencedClass = this.classesById[id];
             }
-        }
-        this.mapNumTimesReferencedDirectly.put(classSignature, numReferences);
-        this.incrementNumReferencesTotal(classSignature);
-
-        // Update the repo's class with the most amount of references:
-        if(numReferences > mostAmountDirectReferences && classMap.containsKey(classSignature)) {
-            mostAmountDirectReferences = numReferences;
-            mostDirectlyReferencedClass = this.classMap.get(classSignature);
-        }
-    }
-
-    private void addIndirectReferenceTo(String classSignature) {
-
-        // Increment number of indirect references:
-        int numReferences = 1;
-        if(this.mapNumTimesReferencedIndirectly.containsKey(classSignature))
-            numReferences = this.mapNumTimesReferencedIndirectly.get(classSignature) + 1;
-
-        this.mapNumTimesReferencedIndirectly.put(classSignature, numReferences);
-        this.incrementNumReferencesTotal(classSignature);
-
-        // Recursively add indirect references to the class's ancestors:
-        if(classMap.containsKey(classSignature)) {
-            for (String parentSignature : this.classMap.get(classSignature).getParentSignatures())
-                this.addIndirectReferenceTo(parentSignature);
-        }
-
-        // Update the repo's class with the most amount of indirect references:
-        if(numReferences > mostAmountIndirectReferences  && classMap.containsKey(classSignature)) {
-            mostAmountIndirectReferences = numReferences;
-            mostIndirectlyReferencedClass = this.classMap.get(classSignature);
         }
     }
 
     public int getNumTimesReferenced(ParsedClass parsedClass) {
-        if(!this.mapNumTimesReferenced.containsKey(parsedClass.getSignature())) return 0;
-        else return this.mapNumTimesReferenced.get(parsedClass.getSignature());
+        return this.getCountOf(this.numTimesReferenced, parsedClass);
     }
 
     public int getNumTimesReferencedDirectly(ParsedClass parsedClass) {
-        if(!this.mapNumTimesReferencedDirectly.containsKey(parsedClass.getSignature())) return 0;
-        else return this.mapNumTimesReferencedDirectly.get(parsedClass.getSignature());
+        return this.getCountOf(this.numTimesReferencedDirectly, parsedClass);
     }
 
     public int getNumTimesReferencedIndirectly(ParsedClass parsedClass) {
-        if(!this.mapNumTimesReferencedIndirectly.containsKey(parsedClass.getSignature())) return 0;
-        else return this.mapNumTimesReferencedIndirectly.get(parsedClass.getSignature());
+        return this.getCountOf(this.numTimesReferencedIndirectly, parsedClass);
+    }
+
+    private int getCountOf(int[] countsById, ParsedClass parsedClass) {
+        int id = this.classSignatures.getId(parsedClass.getSignature());
+        return id < 0 ? 0 : countsById[id];
     }
 
     public ParsedClass[] getClasses(){
@@ -349,8 +583,7 @@ public class ParsedRepository {
     public float getAverageCouplageBetweenClasses() {
         float average = 0;
         for (ParsedClass c : this.classMap.values())
-            if(this.mapNumTimesReferenced.containsKey(c.getSignature()))
-                average += this.mapNumTimesReferenced.get(c.getSignature());
+            average += this.getNumTimesReferenced(c);
 
         return average / (float)this.numClasses;
     }
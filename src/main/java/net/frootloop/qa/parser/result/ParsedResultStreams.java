@@ -0,0 +1,71 @@
+package net.frootloop.qa.parser.result;
+
+import net.frootloop.qa.parser.result.internal.Visibility;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Helpers used by ParsedSourceFile, ParsedClass and ParsedMethod to write their parsed data to, and read it back
+ * from, the entries of the ParseCache. Unlike writeUTF(), strings aren't limited to 64 KB, and may be null.
+ */
+interface ParsedResultStreams {
+
+    static void writeString(DataOutputStream out, String str) throws IOException {
+        if(str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        if(strings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(strings.size());
+        for(String str : strings) ParsedResultStreams.writeString(out, str);
+    }
+
+    static ArrayList<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if(size < 0) return null;
+        ArrayList<String> strings = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) strings.add(ParsedResultStreams.readString(in));
+        return strings;
+    }
+
+    static void writeStringArray(DataOutputStream out, String[] strings) throws IOException {
+        ParsedResultStreams.writeStrings(out, strings == null ? null : Arrays.asList(strings));
+    }
+
+    static String[] readStringArray(DataInputStream in) throws IOException {
+        ArrayList<String> strings = ParsedResultStreams.readStrings(in);
+        return strings == null ? null : strings.toArray(new String[0]);
+    }
+
+    static void writeVisibility(DataOutputStream out, Visibility visibility) throws IOException {
+        out.writeByte(visibility == null ? -1 : visibility.ordinal());
+    }
+
+    static Visibility readVisibility(DataInputStream in) throws IOException {
+        int ordinal = in.readByte();
+        return ordinal < 0 ? null : Visibility.values()[ordinal];
+    }
+}
@@ -2,11 +2,13 @@ package net.frootloop.qa.parser.result;
 
 import net.frootloop.qa.parser.JavaSourceFileParser;
 import net.frootloop.qa.parser.result.internal.CodeTree;
+import net.frootloop.qa.parser.util.files.SourceFileReader;
 import net.frootloop.qa.parser.util.strings.CodeParser;
 import net.frootloop.qa.parser.util.strings.SourceCodeFixerUpper;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 
@@ -43,16 +45,7 @@ public class ParsedSourceFile {
 
         try {
             // STEP 1: READ AND CLEAN UP THE TEXT DATA
-            //   Remove unnecessary spaces, null chars, normalize line breaks, replace string values with "text", replace comments with "// Comment":
-            String sourceFileTextData = SourceCodeFixerUpper.cleanUpSource(Files.readString(path));
-
-            // STEP 2: FETCH DATA RELATING TO CODE STATEMENTS, SUCH AS PACKAGE, IMPORTS, ETC.
-            this.importStatements = CodeParser.getImportStatementsOf(sourceFileTextData);
-            this.packageName = CodeParser.getPackageNameOf(sourceFileTextData);
-
-            // STEP 3: BUILD CODE TREE AND CLASSES
-            this.codeTree = new CodeTree(SourceCodeFixerUpper.getCodeStatementsOf(sourceFileTextData));
-            this.classes = this.codeTree.getListOfClasses(this.packageName, this.filePath, this.importStatements);
+            this.parseSource(SourceFileReader.read(path));
 
         } catch (IOException e) {
             System.out.println("\n[ ERROR ]\n Exception thrown in constructor of 'ParsedSourceFile'. Unable to read file " + path.toFile().getAbsolutePath() + "!");
@@ -63,23 +56,114 @@ public class ParsedSourceFile {
         JavaSourceFileParser.announceParsedFile();
     }
 
+    /***
+     * Parses the contents of a source file that was already read from disk, such as by the reader threads
+     * of the SourceFilePipeline.
+     *
+     * @param path : file path and extension.
+     * @param sourceFileTextData : raw text contents of the file.
+     */
+    public ParsedSourceFile(Path path, CharSequence sourceFileTextData) {
+        if(!path.toString().endsWith(".java")) return;
+        this.filePath = path;
+        this.parseSource(sourceFileTextData);
+
+        // Let the Parser (and user) know that a file was just successfully parsed:
+        JavaSourceFileParser.announceParsedFile();
+    }
+
+    private void parseSource(CharSequence rawSourceFileTextData) {
+        // STEP 1: CLEAN UP THE TEXT DATA
+        //   Remove unnecessary spaces, null chars, normalize line breaks, replace string values with "text", replace comments with "// Comment":
+        String sourceFileTextData = SourceCodeFixerUpper.cleanUpSource(rawSourceFileTextData);
+
+        // STEP 2: FETCH DATA RELATING TO CODE STATEMENTS, SUCH AS PACKAGE, IMPORTS, ETC.
+        this.importStatements = CodeParser.getImportStatementsOf(sourceFileTextData);
+        this.packageName = CodeParser.getPackageNameOf(sourceFileTextData);
+
+        // STEP 3: BUILD CODE TREE AND CLASSES
+        this.codeTree = new CodeTree(SourceCodeFixerUpper.getCodeStatementsOf(sourceFileTextData));
+        this.classes = this.codeTree.getListOfClasses(this.packageName, this.filePath, this.importStatements);
+
+        // STEP 4: KEEP THE FILE'S LINE COUNTS, WHICH ARE ALL THAT'S LEFT TO RESTORE WHEN IT'S READ FROM THE PARSE CACHE
+        this.numLines = this.codeTree.getNumLines();
+        this.numLinesCode = this.codeTree.getNumLinesCode();
+        this.numLinesComments = this.codeTree.getNumLinesComments();
+        this.numLinesEmpty = this.codeTree.getNumLinesEmpty();
+    }
+
+    /***
+     * Restores a parsed source file from an entry of the ParseCache, as written by writeTo(). The text of the
+     * file isn't cleaned up nor turned into a code tree, so print() isn't available for such a file.
+     *
+     * @param path : file path and extension.
+     * @param in : Stream positioned at the start of the file's data.
+     */
+    public ParsedSourceFile(Path path, DataInputStream in) throws IOException {
+        this.filePath = path;
+        this.packageName = ParsedResultStreams.readString(in);
+        this.importStatements = ParsedResultStreams.readStringArray(in);
+        this.numLines = in.readInt();
+        this.numLinesCode = in.readInt();
+        this.numLinesComments = in.readInt();
+        this.numLinesEmpty = in.readInt();
+
+        int numClasses = in.readInt();
+        for(int i = 0; i < numClasses; i++) this.classes.add(new ParsedClass(in, this.importStatements, path));
+
+        // Let the Parser (and user) know that a file was just successfully parsed:
+        JavaSourceFileParser.announceParsedFile();
+    }
+
+    /***
+     * Writes the parsed data of the file, its classes and their methods to an entry of the ParseCache. Must
+     * be called before the file is added to a ParsedRepository.
+     *
+     * @param out
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        ParsedResultStreams.writeString(out, this.packageName);
+        ParsedResultStreams.writeStringArray(out, this.importStatements);
+        out.writeInt(this.numLines);
+        out.writeInt(this.numLinesCode);
+        out.writeInt(this.numLinesComments);
+        out.writeInt(this.numLinesEmpty);
+
+        out.writeInt(this.classes.size());
+        for(ParsedClass c : this.classes) c.writeTo(out);
+    }
+
+    /***
+     * Drops the code tree of the file, of its classes and of their methods, once everything their metrics need was
+     * extracted from it. What's left is only as large as the number of classes, methods and names they refer to, no
+     * longer as large as the source. As for files restored from the ParseCache, print() isn't available afterwards.
+     */
+    public void releaseCodeTrees() {
+        for(ParsedClass c : this.classes) c.releaseCodeTree();
+        this.codeTree = null;
+    }
+
+    /***
+     * @throws IllegalStateException if the code tree was released, or the file was restored from the ParseCache.
+     */
     public void print() {
+        if(this.codeTree == null) throw new IllegalStateException("The code tree of " + this.filePath + " was released, so it can't be printed.");
         System.out.println("[ PRINTING CONTENTS OF SOURCE FILE ]\nLocation: " + this.filePath.toFile().getAbsolutePath() + "\n");
         System.out.println("(PACKAGE)\n" + this.packageName + "\n");
         System.out.println("(IMPORTED CLASSES)\n" + String.join(";\n", this.importStatements));
         codeTree.print();
     }
 
-    public int getNumLines() { return this.codeTree.getNumLines(); }
+    public int getNumLines() { return this.numLines; }
 
-    public int getNumLinesCode() { return this.codeTree.getNumLinesCode(); }
+    public int getNumLinesCode() { return this.numLinesCode; }
 
     public int getNumLinesEmpty() {
-        return this.codeTree.getNumLinesEmpty();
+        return this.numLinesEmpty;
     }
 
     public int getNumLinesComments(){
-        return this.codeTree.getNumLinesComments();
+        return this.numLinesComments;
     }
 
     public int getNumMethods(){
@@ -0,0 +1,173 @@
+package net.frootloop.qa.parser.result.internal;
+
+import net.frootloop.qa.parser.result.ParsedMethod;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/***
+ * Attributes accessed by each method of a class, as bitsets over the attributes of the class, from which the
+ * cohesion metrics of the class are derived.
+ *
+ * Each method's set is built once. Then every pair of methods is compared word by word, with AND to tell whether they
+ * share an attribute, rather than by building and comparing sets of names. Methods that share attributes, or that
+ * call one another, are grouped into connected components with a union-find.
+ *
+ * Static methods can't access the attributes of an instance, so all metrics but the original LCOM only count
+ * instance methods. The pairs of methods are unordered.
+ */
+public class AttributeAccessSets {
+
+    private final int numMethods, numWords;
+    private final long[] accesses;
+
+    private int numPairsWithSameAttributes = 0;
+    private int numInstanceMethods = 0, numPairs = 0, numPairsSharingAttributes = 0, numPairsConnected = 0;
+    private int numComponentsSharingAttributes = 0, numComponentsSharingAttributesOrCalls = 0;
+
+    public AttributeAccessSets(List<ParsedMethod> methods) {
+        this.numMethods = methods.size();
+
+        // Index every attribute accessed by a method:
+        HashMap<String, Integer> attributeIndices = new HashMap<>();
+        for(ParsedMethod m : methods)
+            for(String attribute : m.getReferencedAttributes())
+                attributeIndices.putIfAbsent(attribute, attributeIndices.size());
+
+        this.numWords = (attributeIndices.size() + 63) >>> 6;
+        this.accesses = new long[this.numMethods * this.numWords];
+        boolean[] isInstanceMethod = new boolean[this.numMethods];
+        IdentityHashMap<ParsedMethod, Integer> methodIndices = new IdentityHashMap<>();
+
+        for(int i = 0; i < this.numMethods; i++) {
+            ParsedMethod m = methods.get(i);
+            methodIndices.put(m, i);
+            isInstanceMethod[i] = !m.isStatic();
+            if(isInstanceMethod[i]) this.numInstanceMethods++;
+            for(String attribute : m.getReferencedAttributes()) {
+                int bit = attributeIndices.get(attribute);
+                this.accesses[i * this.numWords + (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        int[] componentsSharingAttributes = AttributeAccessSets.newUnionFind(this.numMethods);
+        int[] componentsSharingAttributesOrCalls = AttributeAccessSets.newUnionFind(this.numMethods);
+
+        for(int i = 0; i < this.numMethods; i++) {
+            for(int j = i + 1; j < this.numMethods; j++) {
+                if(this.haveSameAttributes(i, j)) this.numPairsWithSameAttributes++;
+                if(!isInstanceMethod[i] || !isInstanceMethod[j]) continue;
+
+                this.numPairs++;
+                if(this.shareAttributes(i, j)) {
+                    this.numPairsSharingAttributes++;
+                    AttributeAccessSets.union(componentsSharingAttributes, i, j);
+                    AttributeAccessSets.union(componentsSharingAttributesOrCalls, i, j);
+                }
+            }
+        }
+
+        // Methods of the class called by each method:
+        for(int i = 0; i < this.numMethods; i++) {
+            if(!isInstanceMethod[i]) continue;
+            for(ParsedMethod called : methods.get(i).getMethodsReferencedInScope()) {
+                Integer j = methodIndices.get(called);
+                if(j != null && isInstanceMethod[j]) AttributeAccessSets.union(componentsSharingAttributesOrCalls, i, j);
+            }
+        }
+
+        // Count the components, and the pairs of methods connected through a chain of shared attributes:
+        int[] componentSizes = new int[this.numMethods];
+        for(int i = 0; i < this.numMethods; i++) {
+            if(!isInstanceMethod[i]) continue;
+            if(AttributeAccessSets.find(componentsSharingAttributes, i) == i) this.numComponentsSharingAttributes++;
+            if(AttributeAccessSets.find(componentsSharingAttributesOrCalls, i) == i) this.numComponentsSharingAttributesOrCalls++;
+            componentSizes[AttributeAccessSets.find(componentsSharingAttributes, i)]++;
+        }
+        for(int size : componentSizes) this.numPairsConnected += size * (size - 1) / 2;
+    }
+
+    private boolean haveSameAttributes(int i, int j) {
+        for(int w = 0; w < this.numWords; w++)
+            if(this.accesses[i * this.numWords + w] != this.accesses[j * this.numWords + w]) return false;
+        return true;
+    }
+
+    private boolean shareAttributes(int i, int j) {
+        for(int w = 0; w < this.numWords; w++)
+            if((this.accesses[i * this.numWords + w] & this.accesses[j * this.numWords + w]) != 0) return true;
+        return false;
+    }
+
+    /***
+     * @return Number of pairs of methods, static or not, that access the exact same attributes.
+     */
+    public int getNumPairsWithSameAttributes() {
+        return this.numPairsWithSameAttributes;
+    }
+
+    public int getNumInstanceMethods() {
+        return this.numInstanceMethods;
+    }
+
+    /***
+     * @return Number of pairs of instance methods.
+     */
+    public int getNumPairs() {
+        return this.numPairs;
+    }
+
+    /***
+     * @return Number of pairs of instance methods that access at least one attribute in common.
+     */
+    public int getNumPairsSharingAttributes() {
+        return this.numPairsSharingAttributes;
+    }
+
+    /***
+     * @return Number of pairs of instance methods that access no attribute in common (LCOM1).
+     */
+    public int getNumPairsSharingNoAttribute() {
+        return this.numPairs - this.numPairsSharingAttributes;
+    }
+
+    /***
+     * @return Number of groups of instance methods connected by shared attributes (LCOM3).
+     */
+    public int getNumComponentsSharingAttributes() {
+        return this.numComponentsSharingAttributes;
+    }
+
+    /***
+     * @return Number of groups of instance methods connected by shared attributes or by calls (LCOM4).
+     */
+    public int getNumComponentsSharingAttributesOrCalls() {
+        return this.numComponentsSharingAttributesOrCalls;
+    }
+
+    /***
+     * @return Number of pairs of instance methods connected, directly or not, by shared attributes.
+     */
+    public int getNumPairsConnected() {
+        return this.numPairsConnected;
+    }
+
+    private static int[] newUnionFind(int size) {
+        int[] parents = new int[size];
+        for(int i = 0; i < size; i++) parents[i] = i;
+        return parents;
+    }
+
+    private static int find(int[] parents, int i) {
+        while(parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int i, int j) {
+        parents[AttributeAccessSets.find(parents, i)] = AttributeAccessSets.find(parents, j);
+    }
+}
@@ -0,0 +1,380 @@
+package net.frootloop.qa.parser.result.internal;
+
+import net.frootloop.qa.parser.util.strings.CodeParser;
+import net.frootloop.qa.parser.util.strings.CodeSpan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Every block of code (i.e. pair of curly braces) of a source file, stored as parallel arrays of primitives rather
+ * than as one object per block. A block is an index into those arrays; the root block, which holds the statements
+ * outside of any braces, is block 0.
+ *
+ * Blocks are numbered in the order their leading statements appear in the file, so that a block's parent always
+ * comes before it, and a block's descendants always come right after it. Their totals can then be summed up from
+ * the last block to the first, without any recursion.
+ *
+ * The code of every block is written once, in the single 'code' buffer, as the block's leading statement, then its
+ * own statements, then the code of its children. Leading statements and statements are spans of that buffer too,
+ * so no block holds a String of its own.
+ */
+public class BlocksOfCode {
+
+    private int numBlocks = 0, numStatements = 0;
+    private String code;
+
+    // Structure of the tree:
+    private int[] parents, firstChildren, nextSiblings;
+
+    // Data of each block itself:
+    private int[] leadingStatementKinds, numLines, numLinesCode, numLinesComments;
+
+    // Totals over each block and all of its descendants:
+    private int[] totalNumChildren, totalNumStatements, totalNumLines, totalNumLinesCode, totalNumLinesComments, totalCyclomaticComplexity;
+
+    // Spans within 'code'; the code of each block, and the end of its leading statement, which starts right after the block's first '\n':
+    private int[] codeStarts, codeEnds, leadingStatementEnds;
+
+    // Statements of the blocks, block after block; those of a block are [firstStatements[block], firstStatements[block + 1]):
+    private int[] firstStatements, statementStarts, statementEnds, statementKinds;
+
+    /***
+     * Builds the blocks from the statements of a source file.
+     *
+     * @param codeStatements : List of CodeStatement objects containing filtered data on the line of code, its comments, and its closing char ('{', '}', or ';')
+     */
+    public BlocksOfCode(List<CodeStatement> codeStatements) {
+        int capacity = 16;
+        this.parents = new int[capacity];
+        this.firstChildren = new int[capacity];
+        this.nextSiblings = new int[capacity];
+        this.leadingStatementKinds = new int[capacity];
+        this.numLines = new int[capacity];
+        this.numLinesCode = new int[capacity];
+        this.numLinesComments = new int[capacity];
+
+        // Only needed while building; each block's last child and chain of statements, as indices of 'codeStatements':
+        int[] lastChildren = new int[capacity], firstOwnStatements = new int[capacity], lastOwnStatements = new int[capacity];
+        int[] nextOwnStatements = new int[codeStatements.size()];
+        int[] leadingStatements = new int[capacity];
+
+        CodeStatement codeStatement = codeStatements.get(0);
+        int currentBlock = this.numBlocks++;
+        this.parents[0] = -1;
+        this.firstChildren[0] = lastChildren[0] = this.nextSiblings[0] = -1;
+        firstOwnStatements[0] = lastOwnStatements[0] = -1;
+        leadingStatements[0] = 0;
+        this.leadingStatementKinds[0] = codeStatement.getKinds();
+        this.numLines[0] += codeStatement.numLines;
+        this.numLinesCode[0] += codeStatement.numLinesCode;
+        this.numLinesComments[0] += codeStatement.numLinesComments;
+
+        for(int i = 1; i < codeStatements.size(); i++) {
+
+            codeStatement = codeStatements.get(i);
+
+            // If the current code statement opens a pair of curly braces, we set that as a new block of code:
+            if(codeStatement.isLeadingStatement) {
+
+                if(this.numBlocks == capacity) {
+                    capacity *= 2;
+                    this.grow(capacity);
+                    lastChildren = Arrays.copyOf(lastChildren, capacity);
+                    firstOwnStatements = Arrays.copyOf(firstOwnStatements, capacity);
+                    lastOwnStatements = Arrays.copyOf(lastOwnStatements, capacity);
+                    leadingStatements = Arrays.copyOf(leadingStatements, capacity);
+                }
+
+                // Start a new code block, imbedded in the previous one:
+                int newBlock = this.numBlocks++;
+                this.parents[newBlock] = currentBlock;
+                this.firstChildren[newBlock] = lastChildren[newBlock] = this.nextSiblings[newBlock] = -1;
+                firstOwnStatements[newBlock] = lastOwnStatements[newBlock] = -1;
+                if(lastChildren[currentBlock] == -1) this.firstChildren[currentBlock] = newBlock;
+                else this.nextSiblings[lastChildren[currentBlock]] = newBlock;
+                lastChildren[currentBlock] = newBlock;
+                currentBlock = newBlock;
+
+                // Add the current statement to the current code block as its leading statement;
+                leadingStatements[currentBlock] = i;
+                this.leadingStatementKinds[currentBlock] = codeStatement.getKinds();
+            }
+
+            // If the current code statement CLOSES a pair of curly braces, we return to the previous scope:
+            else {
+                // Add the statement to the current block of code:
+                if(codeStatement.numLinesCode > 0 && !codeStatement.getCode().equals("")) {
+                    nextOwnStatements[i] = -1;
+                    if(lastOwnStatements[currentBlock] == -1) firstOwnStatements[currentBlock] = i;
+                    else nextOwnStatements[lastOwnStatements[currentBlock]] = i;
+                    lastOwnStatements[currentBlock] = i;
+                    this.numStatements++;
+                }
+
+                // If the current code statement CLOSES a pair of curly braces, we return to the previous scope:
+                if(codeStatement.isClosingStatement && this.parents[currentBlock] != -1)
+                    currentBlock = this.parents[currentBlock];
+            }
+
+            // Increment the current code block's line counts with its new statement:
+            this.numLines[currentBlock] += codeStatement.numLines;
+            this.numLinesCode[currentBlock] += codeStatement.numLinesCode;
+            this.numLinesComments[currentBlock] += codeStatement.numLinesComments;
+        }
+
+        // The blocks won't change anymore, so their code and totals can be computed once:
+        this.grow(this.numBlocks);
+        this.writeCode(codeStatements, leadingStatements, firstOwnStatements, nextOwnStatements);
+        this.sumTotals();
+    }
+
+    private void grow(int capacity) {
+        this.parents = Arrays.copyOf(this.parents, capacity);
+        this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+        this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+        this.leadingStatementKinds = Arrays.copyOf(this.leadingStatementKinds, capacity);
+        this.numLines = Arrays.copyOf(this.numLines, capacity);
+        this.numLinesCode = Arrays.copyOf(this.numLinesCode, capacity);
+        this.numLinesComments = Arrays.copyOf(this.numLinesComments, capacity);
+    }
+
+    /***
+     * Writes the code of every block, in order, closing the braces of each block once all of its descendants are
+     * written; those are the blocks that follow it, until one that isn't its descendant.
+     */
+    private void writeCode(List<CodeStatement> codeStatements, int[] leadingStatements, int[] firstOwnStatements, int[] nextOwnStatements) {
+        this.codeStarts = new int[this.numBlocks];
+        this.codeEnds = new int[this.numBlocks];
+        this.leadingStatementEnds = new int[this.numBlocks];
+        this.firstStatements = new int[this.numBlocks + 1];
+        this.statementStarts = new int[this.numStatements];
+        this.statementEnds = new int[this.numStatements];
+        this.statementKinds = new int[this.numStatements];
+
+        StringBuilder code = new StringBuilder();
+        int[] openBlocks = new int[this.numBlocks];
+        int numOpenBlocks = 0, statement = 0;
+
+        for(int block = 0; block < this.numBlocks; block++) {
+            while(numOpenBlocks > 0 && openBlocks[numOpenBlocks - 1] != this.parents[block])
+                this.closeBlock(code, openBlocks[--numOpenBlocks]);
+            openBlocks[numOpenBlocks++] = block;
+
+            this.codeStarts[block] = code.length();
+            code.append('\n').append(codeStatements.get(leadingStatements[block]).getCode());
+            this.leadingStatementEnds[block] = code.length();
+            code.append(" {");
+
+            this.firstStatements[block] = statement;
+            for(int i = firstOwnStatements[block]; i != -1; i = nextOwnStatements[i], statement++) {
+                CodeStatement codeStatement = codeStatements.get(i);
+                code.append('\n');
+                this.statementStarts[statement] = code.length();
+                code.append(codeStatement.getCode());
+                this.statementEnds[statement] = code.length();
+                code.append(';');
+                this.statementKinds[statement] = codeStatement.getKinds();
+            }
+        }
+        while(numOpenBlocks > 0) this.closeBlock(code, openBlocks[--numOpenBlocks]);
+
+        this.firstStatements[this.numBlocks] = statement;
+        this.code = code.toString();
+    }
+
+    private void closeBlock(StringBuilder code, int block) {
+        code.append("\n}");
+        this.codeEnds[block] = code.length();
+    }
+
+    /***
+     * Sums up the totals of every block, from the last to the first, so that a block's children are done before it.
+     */
+    private void sumTotals() {
+        this.totalNumChildren = new int[this.numBlocks];
+        this.totalNumStatements = new int[this.numBlocks];
+        this.totalNumLines = Arrays.copyOf(this.numLines, this.numBlocks);
+        this.totalNumLinesCode = Arrays.copyOf(this.numLinesCode, this.numBlocks);
+        this.totalNumLinesComments = Arrays.copyOf(this.numLinesComments, this.numBlocks);
+        this.totalCyclomaticComplexity = new int[this.numBlocks];
+
+        for(int block = this.numBlocks - 1; block >= 0; block--) {
+            this.totalNumStatements[block] += 1 + this.firstStatements[block + 1] - this.firstStatements[block];
+            this.totalCyclomaticComplexity[block] += this.getOwnCyclomaticComplexity(block);
+
+            int parent = this.parents[block];
+            if(parent == -1) continue;
+            this.totalNumChildren[parent] += 1 + this.totalNumChildren[block];
+            this.totalNumStatements[parent] += this.totalNumStatements[block];
+            this.totalNumLines[parent] += this.totalNumLines[block];
+            this.totalNumLinesCode[parent] += this.totalNumLinesCode[block];
+            this.totalNumLinesComments[parent] += this.totalNumLinesComments[block];
+            this.totalCyclomaticComplexity[parent] += this.totalCyclomaticComplexity[block];
+        }
+    }
+
+    /***
+     * @return Cyclomatic complexity added by the block's own statements, excluding those of its children.
+     */
+    private int getOwnCyclomaticComplexity(int block) {
+        int complexity = this.isLeadingStatementOfKind(block, CodeStatement.BRANCH) ? 1 : 0;
+        boolean isSwitch = this.isLeadingStatementOfKind(block, CodeStatement.SWITCH);
+
+        for(int i = this.firstStatements[block]; i < this.firstStatements[block + 1]; i++) {
+            int kinds = this.statementKinds[i];
+            if((kinds & (CodeStatement.BRANCH | CodeStatement.TERNARY)) != 0)
+                complexity += 1;
+            else if(isSwitch && (kinds & CodeStatement.SWITCH_CASE) != 0)
+                complexity += 1;
+        }
+        return complexity;
+    }
+
+    public int getNumBlocks() {
+        return this.numBlocks;
+    }
+
+    /***
+     * @return Index of the block's parent, or -1 for the root block.
+     */
+    public int getParent(int block) {
+        return this.parents[block];
+    }
+
+    /***
+     * @return Index of the block's first child, or -1 if it has none.
+     */
+    public int getFirstChild(int block) {
+        return this.firstChildren[block];
+    }
+
+    /***
+     * @return Index of the block's next sibling, or -1 if it's the last child of its parent.
+     */
+    public int getNextSibling(int block) {
+        return this.nextSiblings[block];
+    }
+
+    public String getLeadingStatement(int block) {
+        return this.code.substring(this.codeStarts[block] + 1, this.leadingStatementEnds[block]);
+    }
+
+    /***
+     * @param kind : (int) Kind of statement, such as CodeStatement.CLASS_DECLARATION.
+     * @return Whether the block's leading statement is of that kind.
+     */
+    public boolean isLeadingStatementOfKind(int block, int kind) {
+        return (this.leadingStatementKinds[block] & kind) != 0;
+    }
+
+    /***
+     * @return Number of the block's own statements, excluding its leading statement and those of its children.
+     */
+    public int getNumOwnStatements(int block) {
+        return this.firstStatements[block + 1] - this.firstStatements[block];
+    }
+
+    /***
+     * @return The i-th of the block's own statements, without its ';'.
+     */
+    public CharSequence getOwnStatement(int block, int i) {
+        int statement = this.firstStatements[block] + i;
+        return new CodeSpan(this.code, this.statementStarts[statement], this.statementEnds[statement]);
+    }
+
+    /***
+     * @return Number of descendants of the block.
+     */
+    public int getNumChildren(int block) {
+        return this.totalNumChildren[block];
+    }
+
+    public int getNumStatements(int block) {
+        return this.totalNumStatements[block];
+    }
+
+    public int getNumLines(int block) {
+        return this.totalNumLines[block];
+    }
+
+    public int getNumLinesCode(int block) {
+        return this.totalNumLinesCode[block];
+    }
+
+    public int getNumLinesComments(int block) {
+        return this.totalNumLinesComments[block];
+    }
+
+    public int getNumLinesEmpty(int block) {
+        return this.totalNumLines[block] - this.totalNumLinesCode[block] - this.totalNumLinesComments[block];
+    }
+
+    public int getCyclomaticComplexity(int block) {
+        return this.totalCyclomaticComplexity[block];
+    }
+
+    public ArrayList<String> getDeclaredVariables(int block) {
+        ArrayList<String> listOfVariables = new ArrayList<>();
+        for (int i = this.firstStatements[block]; i < this.firstStatements[block + 1]; i++)
+            if((this.statementKinds[i] & CodeStatement.VARIABLE_DECLARATION) != 0)
+                listOfVariables.addAll(Arrays.asList(CodeParser.getDeclaredVariableNames(new CodeSpan(this.code, this.statementStarts[i], this.statementEnds[i]))));
+
+        return listOfVariables;
+    }
+
+    /***
+     * @return The block's code, i.e. its leading statement, then its own statements, then the code of its children,
+     * without copying it.
+     */
+    public CharSequence getCode(int block) {
+        return new CodeSpan(this.code, this.codeStarts[block], this.codeEnds[block]);
+    }
+
+    /***
+     * @return The block's code with its line breaks removed. Unlike getCode(), this is a copy.
+     */
+    public String getCodeWithoutLineBreaks(int block) {
+        StringBuilder code = new StringBuilder(this.codeEnds[block] - this.codeStarts[block]);
+        for(int i = this.codeStarts[block]; i < this.codeEnds[block]; i++)
+            if(this.code.charAt(i) != '\n') code.append(this.code.charAt(i));
+        return code.toString();
+    }
+
+    public String getCodeAsString(int block) {
+        return this.getCode(block).toString();
+    }
+
+    public String getCodeAsString(int block, boolean shouldBeautify) {
+        return shouldBeautify ? this.toString(block, "") : this.getCodeAsString(block);
+    }
+
+    public String toString(int block) {
+        return this.toString(block, "");
+    }
+
+    private String toString(int block, String indentation) {
+        StringBuilder str = new StringBuilder();
+        String leadingStatement = this.getLeadingStatement(block);
+
+        if(this.isLeadingStatementOfKind(block, CodeStatement.CLASS_DECLARATION)){
+            str.append("\n\n").append(indentation).append("(CLASS: ").append(CodeParser.getDeclaredClassName(leadingStatement));
+
+            List<String> inheritance = CodeParser.getDeclaredClassInheritance(leadingStatement);
+            if(inheritance.size() > 0) str.append("\n").append(indentation).append(" --> with parents: ").append(String.join(",", inheritance));
+
+            List<String> attributes = this.getDeclaredVariables(block);
+            if(attributes.size() > 0) str.append("\n").append(indentation).append(" --> with attributes: ").append(String.join(",", attributes));
+
+            str.append(")");
+        }
+
+        String childIndentation = indentation + "    ";
+        str.append("\n").append(indentation).append(leadingStatement).append(" {");
+        for(int i = 0; i < this.getNumOwnStatements(block); i++) str.append("\n").append(childIndentation).append(this.getOwnStatement(block, i)).append(";");
+        for(int child = this.firstChildren[block]; child != -1; child = this.nextSiblings[child]) str.append(this.toString(child, childIndentation));
+        str.append("\n").append(indentation).append("}");
+        return str.toString();
+    }
+}
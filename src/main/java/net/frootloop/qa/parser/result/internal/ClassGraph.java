@@ -0,0 +1,224 @@
+package net.frootloop.qa.parser.result.internal;
+
+import java.util.Arrays;
+
+/***
+ * Inheritance graph of the classes of a repository, by id of signature (see SymbolTable), where each class of the
+ * repository has an edge to each of its parents. The edges are stored as one flat array, with the edges of class
+ * 'id' found in [parentStarts[id], parentStarts[id + 1]).
+ *
+ * Classes that are parents of one another, directly or not, such as from signatures resolved to the wrong class, are
+ * grouped into a single strongly connected component. The components are visited in topological order, each once, so
+ * that walking up the hierarchy never loops: within a cycle, each class is the ancestor of every class of the cycle,
+ * itself included, once. Outside of cycles, a class is an ancestor of another as many times as there are paths from
+ * the latter to it, as if the hierarchy was walked recursively.
+ */
+public class ClassGraph {
+
+    private final int numClasses;
+    private final int[] parentStarts, parents;
+    private final boolean[] isInRepository;
+
+    /***
+     * Component of each class, and classes of each component. Components are numbered in topological order, from
+     * the top of the hierarchy down: the parents of a class are in the same component as it, or in one numbered lower.
+     */
+    private int numComponents;
+    private final int[] components;
+    private int[] memberStarts, members;
+
+    /***
+     * Ancestors of the classes of each component that are in the repository, along with the amount of paths to each.
+     * Built the first time they're needed.
+     */
+    private int[][] ancestors, ancestorMultiplicities;
+
+    /***
+     * @param numClasses : Number of ids, i.e. the size of the SymbolTable of the signatures.
+     * @param parentIdsById : Ids of the parents of each class of the repository, by id, and null for the ids of
+     *                        classes outside of the repository. May be longer than 'numClasses'.
+     */
+    public ClassGraph(int numClasses, int[][] parentIdsById) {
+        this.numClasses = numClasses;
+        this.isInRepository = new boolean[numClasses];
+        this.parentStarts = new int[numClasses + 1];
+        for(int id = 0; id < numClasses; id++) {
+            this.isInRepository[id] = parentIdsById[id] != null;
+            this.parentStarts[id + 1] = this.parentStarts[id] + (this.isInRepository[id] ? parentIdsById[id].length : 0);
+        }
+        this.parents = new int[this.parentStarts[numClasses]];
+        for(int id = 0; id < numClasses; id++)
+            if(this.isInRepository[id]) System.arraycopy(parentIdsById[id], 0, this.parents, this.parentStarts[id], parentIdsById[id].length);
+
+        this.components = new int[numClasses];
+        this.findComponents();
+    }
+
+    /***
+     * Tarjan's algorithm, with an explicit stack so that deep hierarchies can't overflow the call stack. Components
+     * are completed parents first, which numbers them in topological order.
+     */
+    private void findComponents() {
+        int[] indices = new int[this.numClasses], lowLinks = new int[this.numClasses];
+        Arrays.fill(indices, -1);
+        boolean[] isOnStack = new boolean[this.numClasses];
+        int[] stack = new int[this.numClasses], callStack = new int[this.numClasses], nextEdges = new int[this.numClasses];
+        int stackSize = 0, nextIndex = 0;
+
+        for(int root = 0; root < this.numClasses; root++) {
+            if(indices[root] != -1) continue;
+
+            int depth = 0;
+            callStack[depth] = root;
+            nextEdges[root] = this.parentStarts[root];
+            indices[root] = lowLinks[root] = nextIndex++;
+            stack[stackSize++] = root;
+            isOnStack[root] = true;
+
+            while(depth >= 0) {
+                int id = callStack[depth];
+
+                // Visit the next parent of the class, if any:
+                if(nextEdges[id] < this.parentStarts[id + 1]) {
+                    int parent = this.parents[nextEdges[id]++];
+                    if(indices[parent] == -1) {
+                        callStack[++depth] = parent;
+                        nextEdges[parent] = this.parentStarts[parent];
+                        indices[parent] = lowLinks[parent] = nextIndex++;
+                        stack[stackSize++] = parent;
+                        isOnStack[parent] = true;
+                    }
+                    else if(isOnStack[parent]) lowLinks[id] = Math.min(lowLinks[id], indices[parent]);
+                    continue;
+                }
+
+                // All parents visited; the class is the root of a component if none of them leads back to the stack:
+                if(lowLinks[id] == indices[id]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        isOnStack[member] = false;
+                        this.components[member] = this.numComponents;
+                    } while(member != id);
+                    this.numComponents++;
+                }
+                depth--;
+                if(depth >= 0) lowLinks[callStack[depth]] = Math.min(lowLinks[callStack[depth]], lowLinks[id]);
+            }
+        }
+
+        // Group the classes by component:
+        this.memberStarts = new int[this.numComponents + 1];
+        for(int id = 0; id < this.numClasses; id++) this.memberStarts[this.components[id] + 1]++;
+        for(int c = 0; c < this.numComponents; c++) this.memberStarts[c + 1] += this.memberStarts[c];
+        this.members = new int[this.numClasses];
+        int[] filled = Arrays.copyOf(this.memberStarts, this.numComponents);
+        for(int id = 0; id < this.numClasses; id++) this.members[filled[this.components[id]]++] = id;
+    }
+
+    public int getNumClasses() {
+        return this.numClasses;
+    }
+
+    /***
+     * @return Whether the class is its own ancestor, i.e. part of a cycle of inheritance.
+     */
+    public boolean isInCycle(int id) {
+        int c = this.components[id];
+        if(this.memberStarts[c + 1] - this.memberStarts[c] > 1) return true;
+        for(int e = this.parentStarts[id]; e < this.parentStarts[id + 1]; e++)
+            if(this.parents[e] == id) return true;
+        return false;
+    }
+
+    /***
+     * Propagates amounts up the hierarchy, in a single pass over the components from the bottom of the hierarchy up:
+     * each class receives its own amount, plus what each of its children receives, once per edge.
+     *
+     * @param amounts : Amount for each class, by id.
+     * @return Amount received by each class, by id.
+     */
+    public int[] getAmountsReceivedFromDescendants(int[] amounts) {
+        int[] received = new int[this.numComponents];
+        for(int id = 0; id < this.numClasses; id++) received[this.components[id]] += amounts[id];
+
+        for(int c = this.numComponents - 1; c >= 0; c--) {
+            for(int m = this.memberStarts[c]; m < this.memberStarts[c + 1]; m++) {
+                int id = this.members[m];
+                for(int e = this.parentStarts[id]; e < this.parentStarts[id + 1]; e++) {
+                    int parentComponent = this.components[this.parents[e]];
+                    if(parentComponent != c) received[parentComponent] += received[c];
+                }
+            }
+        }
+
+        int[] receivedById = new int[this.numClasses];
+        for(int id = 0; id < this.numClasses; id++) receivedById[id] = received[this.components[id]];
+        return receivedById;
+    }
+
+    /***
+     * @return Ids of the ancestors of the class that are in the repository, each once.
+     */
+    public int[] getAncestors(int id) {
+        if(this.ancestors == null) this.findAncestors();
+        return this.ancestors[this.components[id]];
+    }
+
+    /***
+     * @return Amount of paths from the class to each of the ancestors returned by getAncestors(), in the same order.
+     */
+    public int[] getAncestorMultiplicities(int id) {
+        if(this.ancestorMultiplicities == null) this.findAncestors();
+        return this.ancestorMultiplicities[this.components[id]];
+    }
+
+    /***
+     * Builds the ancestors of each component from the top of the hierarchy down, from those of the components of
+     * its parents, accumulated in dense arrays indexed by id.
+     */
+    private void findAncestors() {
+        this.ancestors = new int[this.numComponents][];
+        this.ancestorMultiplicities = new int[this.numComponents][];
+        int[] multiplicities = new int[this.numClasses];
+        int[] touched = new int[this.numClasses];
+
+        for(int c = 0; c < this.numComponents; c++) {
+            int numTouched = 0;
+
+            // Classes of a cycle are ancestors of one another, and of themselves:
+            int firstMember = this.members[this.memberStarts[c]];
+            if(this.isInCycle(firstMember)) {
+                for(int m = this.memberStarts[c]; m < this.memberStarts[c + 1]; m++) {
+                    if(!this.isInRepository[this.members[m]]) continue;
+                    touched[numTouched++] = this.members[m];
+                    multiplicities[this.members[m]] = 1;
+                }
+            }
+
+            // Each parent outside the component, and its own ancestors, once per edge:
+            for(int m = this.memberStarts[c]; m < this.memberStarts[c + 1]; m++) {
+                int id = this.members[m];
+                for(int e = this.parentStarts[id]; e < this.parentStarts[id + 1]; e++) {
+                    int parent = this.parents[e];
+                    int parentComponent = this.components[parent];
+                    if(parentComponent == c || !this.isInRepository[parent]) continue;
+
+                    if(!this.isInCycle(parent)) {
+                        if(multiplicities[parent]++ == 0) touched[numTouched++] = parent;
+                    }
+                    int[] parentAncestors = this.ancestors[parentComponent], parentMultiplicities = this.ancestorMultiplicities[parentComponent];
+                    for(int a = 0; a < parentAncestors.length; a++)
+                        if((multiplicities[parentAncestors[a]] += parentMultiplicities[a]) == parentMultiplicities[a]) touched[numTouched++] = parentAncestors[a];
+                }
+            }
+
+            this.ancestors[c] = Arrays.copyOf(touched, numTouched);
+            this.ancestorMultiplicities[c] = new int[numTouched];
+            for(int t = 0; t < numTouched; t++) {
+                this.ancestorMultiplicities[c][t] = multiplicities[touched[t]];
+                multiplicities[touched[t]] = 0;
+            }
+        }
+    }
+}
@@ -1,12 +1,36 @@
 package net.frootloop.qa.parser.result.internal;
 
+import net.frootloop.qa.parser.util.strings.CodeParser;
+import net.frootloop.qa.parser.util.strings.CodeStatementScanner;
+
 public class CodeStatement {
-    public final String code;
+
+    /***
+     * Kinds of statement, as the bits of the mask returned by getKinds(). A statement can be of many kinds at once.
+     */
+    public static final int CLASS_DECLARATION = 1, METHOD_DECLARATION = 1 << 1, VARIABLE_DECLARATION = 1 << 2,
+            BRANCH = 1 << 3, TERNARY = 1 << 4, SWITCH = 1 << 5, SWITCH_CASE = 1 << 6;
+
+    private String code;
+    private int kinds = -1;
+    private final CharSequence sourceText;
+    private final int start, end;
     public final boolean isLeadingStatement, isClosingStatement;
     public final int numLines, numLinesCode, numLinesComments, numLinesEmpty;
 
     public CodeStatement(String code, boolean isLeadingStatement, boolean isClosingStatement, int numLines, int numLinesCode, int numLinesComments, int numLinesEmpty) {
+        this(code, 0, code.length(), isLeadingStatement, isClosingStatement, numLines, numLinesCode, numLinesComments, numLinesEmpty);
         this.code = code;
+    }
+
+    /***
+     * Statement found by the CodeStatementScanner, as the span [start, end) of its source file's text. The
+     * statement's code is only cleaned up and copied out of that text the first time getCode() is called.
+     */
+    public CodeStatement(CharSequence sourceText, int start, int end, boolean isLeadingStatement, boolean isClosingStatement, int numLines, int numLinesCode, int numLinesComments, int numLinesEmpty) {
+        this.sourceText = sourceText;
+        this.start = start;
+        this.end = end;
         this.isLeadingStatement = isLeadingStatement;
         this.isClosingStatement = isClosingStatement;
         this.numLines = numLines;
@@ -14,4 +38,27 @@ public class CodeStatement {
         this.numLinesComments = numLinesComments;
         this.numLinesEmpty = numLinesEmpty;
     }
+
+    public String getCode() {
+        if(this.code == null) this.code = CodeStatementScanner.getCodeOf(this.sourceText, this.start, this.end);
+        return this.code;
+    }
+
+    /***
+     * Runs the classifying regexes of CodeParser on the statement's code, once; further calls return the same mask.
+     *
+     * @return Bitmask of the kinds of the statement, such as CLASS_DECLARATION | BRANCH.
+     */
+    public int getKinds() {
+        if(this.kinds == -1) this.kinds = CodeParser.getStatementKindsOf(this.getCode());
+        return this.kinds;
+    }
+
+    public int getStart() {
+        return this.start;
+    }
+
+    public int getEnd() {
+        return this.end;
+    }
 }
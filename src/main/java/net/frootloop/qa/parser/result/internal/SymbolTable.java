@@ -0,0 +1,56 @@
+package net.frootloop.qa.parser.result.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/***
+ * Assigns dense int ids, from 0 and in order of first appearance, to names such as class signatures. Each name is
+ * hashed once, when it's interned; anything keyed by name can then be stored in arrays indexed by id instead.
+ *
+ * Ids are never reused, even if what a name referred to is gone, so that arrays indexed by them stay valid.
+ */
+public class SymbolTable {
+
+    private HashMap<String, Integer> ids = new HashMap<>();
+    private ArrayList<String> names = new ArrayList<>();
+
+    /***
+     * @return Id of the name, which is assigned if the name wasn't in the table yet.
+     */
+    public int intern(String name) {
+        Integer id = this.ids.get(name);
+        if(id != null) return id;
+
+        this.ids.put(name, this.names.size());
+        this.names.add(name);
+        return this.names.size() - 1;
+    }
+
+    /***
+     * @return Ids of the names, in the same order, interning those that weren't in the table yet.
+     */
+    public int[] intern(ArrayList<String> names) {
+        int[] ids = new int[names.size()];
+        for(int i = 0; i < ids.length; i++) ids[i] = this.intern(names.get(i));
+        return ids;
+    }
+
+    /***
+     * @return Id of the name, or -1 if it isn't in the table.
+     */
+    public int getId(String name) {
+        Integer id = this.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String getName(int id) {
+        return this.names.get(id);
+    }
+
+    /***
+     * @return Number of names in the table, which is also one more than the highest id.
+     */
+    public int size() {
+        return this.names.size();
+    }
+}
@@ -1,5 +1,8 @@
 package net.frootloop.qa.parser.util;
 
+import net.frootloop.qa.parser.JavaRepositoryParser;
+import net.frootloop.qa.parser.ParseCache;
+import net.frootloop.qa.parser.util.files.CommitCountIndex;
 import net.frootloop.qa.parser.util.files.FilePathHandler;
 import net.frootloop.qa.parser.util.files.GitGudder;
 
@@ -17,7 +20,8 @@ public interface InputHandler extends GitGudder, FilePathHandler {
         ANALYSE_SOURCE_FILE,
         ANALYSE_GIT_REPO,
         PRINT_SOURCE_FILE_CONTENTS,
-        PRINT_AMOUNT_COMMITS
+        PRINT_AMOUNT_COMMITS,
+        WATCH_GIT_REPO
     }
 
     static void wait(int milliseconds) {
@@ -50,7 +54,8 @@ public interface InputHandler extends GitGudder, FilePathHandler {
                 "\n1 - Parse and analyse a local Java source file" +
                 "\n2 - Parse and analyse a local Java git repository" +
                 "\n3 - Print the parsed contents of a local Java source file" +
-                "\n4 - Print the amounts of commits made to a local Java source file");
+                "\n4 - Print the amounts of commits made to a local Java source file" +
+                "\n5 - Watch a local Java git repository, and update its metrics whenever a file is saved");
 
         String input = InputHandler.readInputLine();
         while(true) {
@@ -58,12 +63,39 @@ public interface InputHandler extends GitGudder, FilePathHandler {
             if (input.equals("2")) return RequestType.ANALYSE_GIT_REPO;
             if (input.equals("3")) return RequestType.PRINT_SOURCE_FILE_CONTENTS;
             if (input.equals("4")) return RequestType.PRINT_AMOUNT_COMMITS;
+            if (input.equals("5")) return RequestType.WATCH_GIT_REPO;
 
-            System.out.println("Please select an option between either 1 and 4.\r");
+            System.out.println("Please select an option between either 1 and 5.\r");
             input = InputHandler.readInputLine();
         }
     }
 
+    /***
+     * Asks whether the parsed source files and commit counts should be cached between runs, in the '.jbsm' folder of
+     * the user's home directory. If so, the caches are turned on; otherwise, nothing is written outside of the
+     * analysed repository.
+     *
+     * @return Whether the user agreed to the caches.
+     */
+    static boolean promptForCaching() {
+
+        System.out.println("\n[ INPUT EXPECTED ]\nShould parsed files and commit counts be cached in \'" + Path.of(System.getProperty("user.home"), ".jbsm") + "\', " +
+                "\nso that the next analyses of this repository only parse what changed? The cache can use up to 256 MB." +
+                "\n1 - Yes, cache them" +
+                "\n2 - No, don't write anything outside of the repository");
+
+        String input = InputHandler.readInputLine();
+        while(!input.matches("[1-2]")) {
+            System.out.println("Please select an option between either 1 and 2.");
+            input = InputHandler.readInputLine();
+        }
+        if(!input.equals("1")) return false;
+
+        JavaRepositoryParser.setParseCache(ParseCache.getDefault());
+        CommitCountIndex.setCacheDirectory(CommitCountIndex.getDefaultCacheDirectory());
+        return true;
+    }
+
     static Path promptForDirectoryToStartLookingFrom() {
 
         // Ask the user from where we need to start looking for repositories:
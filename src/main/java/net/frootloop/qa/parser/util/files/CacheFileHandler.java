@@ -0,0 +1,95 @@
+package net.frootloop.qa.parser.util.files;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/***
+ * Shared by the on-disk caches, such as the ParseCache and the CommitCountIndex: names their files after a hash, and
+ * writes them atomically, so that concurrent readers either see a whole file or no file at all.
+ */
+public interface CacheFileHandler {
+
+    @FunctionalInterface
+    interface CacheFileWriter {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /***
+     * @return Hexadecimal SHA-256 hash of the bytes.
+     */
+    static String getHashOf(byte[] bytes) {
+        return CacheFileHandler.toHex(CacheFileHandler.getSha256Digest().digest(bytes));
+    }
+
+    /***
+     * @return Hexadecimal SHA-256 hash of the text's chars, each hashed as its two bytes, without encoding the
+     *         whole text first.
+     */
+    static String getHashOf(CharSequence text) {
+        MessageDigest digest = CacheFileHandler.getSha256Digest();
+        byte[] buffer = new byte[8192];
+        int numBytes = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            buffer[numBytes++] = (byte) (c >> 8);
+            buffer[numBytes++] = (byte) c;
+            if(numBytes == buffer.length) {
+                digest.update(buffer, 0, numBytes);
+                numBytes = 0;
+            }
+        }
+        digest.update(buffer, 0, numBytes);
+        return CacheFileHandler.toHex(digest.digest());
+    }
+
+    /***
+     * Writes the file to a temporary file of the same folder, then moves it over the file. The temporary file is
+     * deleted if anything fails, before the exception is rethrown.
+     *
+     * @param filePath : (Path) File to write. Its folder is created if it doesn't exist.
+     * @param writer : (CacheFileWriter) Writes the contents of the file.
+     */
+    static void writeAtomically(Path filePath, CacheFileWriter writer) throws IOException {
+        Path tempPath = null;
+        try {
+            Files.createDirectories(filePath.getParent());
+            tempPath = Files.createTempFile(filePath.getParent(), "cache", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                writer.writeTo(out);
+            }
+            try {
+                Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                if(tempPath != null) Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // Do nothing.
+            }
+            throw e;
+        }
+    }
+
+    private static MessageDigest getSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported by every Java platform.", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for(byte b : bytes) hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+}
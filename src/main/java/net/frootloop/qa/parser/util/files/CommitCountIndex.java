@@ -0,0 +1,392 @@
+package net.frootloop.qa.parser.util.files;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/***
+ * Number of commits made to each .java file of a git repository, as of its HEAD commit.
+ *
+ * Calling git.log().addPath() once per file walks the whole history once per file. Instead, the index is built from
+ * a single walk over the history, which diffs each commit against its parents once, and keeps track of the files for
+ * which each commit is still part of the history. That last part is what keeps the counts exactly the same as JGit's
+ * log, which simplifies the history of each path: a merge identical to one of its parents only follows that parent,
+ * and a parent which didn't have the path yet is cut from its own parents.
+ *
+ * History only grows, so once a cache folder is set, indexes are cached on disk along with the commit they were built
+ * at. On the next run, only the commits made since that commit are walked, unless it's no longer part of the history
+ * (e.g. after a force push).
+ */
+public class CommitCountIndex {
+
+    /***
+     * Version of the cached indexes' format. Indexes cached with another version are built from scratch again.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC_NUMBER = 0x54503349;
+    private static final String CACHE_EXTENSION = ".bin";
+
+    /***
+     * Folder in which the indexes are cached between runs. Null by default, so that nothing is written outside of the
+     * analysed repository unless the user agrees to it; see InputHandler.promptForCaching().
+     */
+    private static Path cacheDirectory = null;
+
+    private final Path repositoryPath;
+    private final String commitId;
+    private final HashMap<String, Integer> commitCounts;
+
+    private CommitCountIndex(Path repositoryPath, String commitId, HashMap<String, Integer> commitCounts) {
+        this.repositoryPath = repositoryPath;
+        this.commitId = commitId;
+        this.commitCounts = commitCounts;
+    }
+
+    /***
+     * Loads the index of the repository from the cache folder, then brings it up to date with the repository's HEAD.
+     * When HEAD descends from the commit the index was cached at, only the commits made since then are walked;
+     * otherwise (first run, rewritten history, etc.), the whole history is. The updated index is cached again.
+     *
+     * @param repositoryPath : (Path) Root of the git repository, i.e. the folder containing its '.git' folder.
+     * @return Index of the commit counts of every .java file at the repository's HEAD.
+     * @throws IOException if the repository can't be read, or has no HEAD commit.
+     */
+    public static CommitCountIndex build(Path repositoryPath) throws IOException {
+        String repositoryPathStr = repositoryPath.toString().replace('\\', '/') + "/.git";
+        try (Repository repository = new FileRepository(repositoryPathStr);
+             ObjectReader reader = repository.newObjectReader()) {
+
+            ObjectId head = repository.resolve(Constants.HEAD);
+            if(head == null) throw new IOException("Repository '" + repositoryPathStr + "' has no HEAD commit.");
+
+            CommitCountIndex cachedIndex = CommitCountIndex.readCached(repositoryPath);
+            if(cachedIndex != null && cachedIndex.commitId.equals(head.name())) return cachedIndex;
+
+            // Give an index to every .java file at HEAD, which are the only ones whose history matters:
+            HashMap<String, Integer> pathIndices = new HashMap<>();
+            ArrayList<String> paths = new ArrayList<>();
+            try (RevWalk revWalk = new RevWalk(reader); TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.addTree(revWalk.parseCommit(head).getTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(PathSuffixFilter.create(".java"));
+                while (treeWalk.next()) {
+                    pathIndices.put(treeWalk.getPathString(), paths.size());
+                    paths.add(treeWalk.getPathString());
+                }
+            }
+
+            BitSet allPaths = new BitSet(paths.size());
+            allPaths.set(0, paths.size());
+            int[] counts = null;
+            if(cachedIndex != null) counts = CommitCountIndex.countCommitsSince(reader, head, pathIndices, paths, cachedIndex);
+            if(counts == null) counts = new CommitCountIndex.HistoryWalk(reader, pathIndices).countCommits(head, allPaths, null);
+
+            HashMap<String, Integer> commitCounts = new HashMap<>(2 * paths.size());
+            for(int i = 0; i < paths.size(); i++) commitCounts.put(paths.get(i), counts[i]);
+            CommitCountIndex index = new CommitCountIndex(repositoryPath, head.name(), commitCounts);
+            index.writeCached();
+            return index;
+        }
+    }
+
+    /***
+     * Extends the counts of the cached index with the commits made since. For each path, that's only possible when
+     * its history, walked from HEAD, reaches the cached commit as a regular commit, and no other commit from before;
+     * the counts of the other paths (such as those whose history goes through a branch older than the cached commit)
+     * are recomputed by walking their whole history.
+     *
+     * @return Counts indexed like 'paths', or null if the cached commit isn't an ancestor of HEAD.
+     */
+    private static int[] countCommitsSince(ObjectReader reader, ObjectId head, HashMap<String, Integer> pathIndices, ArrayList<String> paths, CommitCountIndex cachedIndex) throws IOException {
+        ObjectId cachedCommitId;
+        try (RevWalk revWalk = new RevWalk(reader)) {
+            cachedCommitId = ObjectId.fromString(cachedIndex.commitId);
+            if(!reader.has(cachedCommitId) || !revWalk.isMergedInto(revWalk.parseCommit(cachedCommitId), revWalk.parseCommit(head))) return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        BitSet allPaths = new BitSet(paths.size());
+        allPaths.set(0, paths.size());
+        CommitCountIndex.HistoryWalk historyWalk = new CommitCountIndex.HistoryWalk(reader, pathIndices);
+        int[] counts = historyWalk.countCommits(head, allPaths, cachedCommitId);
+
+        // Add the cached counts of the paths whose history stopped at the cached commit:
+        BitSet pathsToRecount = new BitSet(paths.size());
+        for(Map.Entry<RevCommit, BitSet> boundary : historyWalk.reachedPaths.entrySet()) {
+            if(!boundary.getKey().equals(cachedCommitId)) {
+                pathsToRecount.or(boundary.getValue());
+                continue;
+            }
+            BitSet cut = historyWalk.cutPaths.get(boundary.getKey());
+            BitSet reached = boundary.getValue();
+            for(int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) {
+                Integer cachedCount = cachedIndex.commitCounts.get(paths.get(i));
+                if(cachedCount == null || (cut != null && cut.get(i))) pathsToRecount.set(i);
+                else counts[i] += cachedCount;
+            }
+        }
+        if(pathsToRecount.isEmpty()) return counts;
+
+        int[] recounts = new CommitCountIndex.HistoryWalk(reader, pathIndices).countCommits(head, pathsToRecount, null);
+        for(int i = pathsToRecount.nextSetBit(0); i >= 0; i = pathsToRecount.nextSetBit(i + 1)) counts[i] = recounts[i];
+        return counts;
+    }
+
+    /***
+     * @param sourceFilePath : (Path) Path of a file within the repository.
+     * @return Number of commits made to the file. Files that aren't at HEAD, or aren't .java files, are looked up
+     * with GitGudder.getCommitCountTo() instead.
+     */
+    public int getCommitCountTo(Path sourceFilePath) {
+        String sourceFilePathStr = sourceFilePath.toString().substring(this.repositoryPath.toString().length() + 1).replace('\\', '/');
+        Integer count = this.commitCounts.get(sourceFilePathStr);
+        if(count != null) return count;
+        return GitGudder.getCommitCountTo(this.repositoryPath, sourceFilePath);
+    }
+
+    /***
+     * @return Id of the commit the counts were computed at.
+     */
+    public String getCommitId() {
+        return this.commitId;
+    }
+
+    public Path getRepositoryPath() {
+        return this.repositoryPath;
+    }
+
+    /***
+     * @param directory : (Path) Folder in which the indexes are cached between runs. Null to never cache them.
+     */
+    public static void setCacheDirectory(Path directory) {
+        cacheDirectory = directory;
+    }
+
+    public static Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /***
+     * @return The '.jbsm/commit-counts' folder of the user's home directory.
+     */
+    public static Path getDefaultCacheDirectory() {
+        return Path.of(System.getProperty("user.home"), ".jbsm", "commit-counts");
+    }
+
+    /***
+     * Each repository's index is cached in a file named after the hash of the repository's absolute path.
+     */
+    private static Path getCachePathOf(Path repositoryPath) {
+        String absolutePath = repositoryPath.toAbsolutePath().normalize().toString();
+        return cacheDirectory.resolve(CacheFileHandler.getHashOf(absolutePath.getBytes(StandardCharsets.UTF_8)) + CACHE_EXTENSION);
+    }
+
+    private static CommitCountIndex readCached(Path repositoryPath) {
+        if(cacheDirectory == null) return null;
+        Path cachePath = CommitCountIndex.getCachePathOf(repositoryPath);
+        if(!Files.isRegularFile(cachePath)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachePath)))) {
+            if(in.readInt() != MAGIC_NUMBER || in.readInt() != VERSION) return null;
+            if(!in.readUTF().equals(repositoryPath.toAbsolutePath().normalize().toString())) return null;
+            String commitId = in.readUTF();
+            int numPaths = in.readInt();
+            HashMap<String, Integer> commitCounts = new HashMap<>(2 * numPaths);
+            for(int i = 0; i < numPaths; i++) commitCounts.put(in.readUTF(), in.readInt());
+            return new CommitCountIndex(repositoryPath, commitId, commitCounts);
+        } catch (IOException | RuntimeException e) {
+            // Truncated or otherwise unreadable cache; the index is simply built from scratch and cached again.
+            return null;
+        }
+    }
+
+    private void writeCached() {
+        if(cacheDirectory == null) return;
+        try {
+            CacheFileHandler.writeAtomically(CommitCountIndex.getCachePathOf(this.repositoryPath), out -> {
+                out.writeInt(MAGIC_NUMBER);
+                out.writeInt(VERSION);
+                out.writeUTF(this.repositoryPath.toAbsolutePath().normalize().toString());
+                out.writeUTF(this.commitId);
+                out.writeInt(this.commitCounts.size());
+                for(Map.Entry<String, Integer> entry : this.commitCounts.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue());
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("\n[ ERROR ]\n Exception thrown in 'CommitCountIndex.writeCached()'. Unable to cache the commit counts of repository " + this.repositoryPath.toFile().getAbsolutePath() + "!");
+            e.printStackTrace();
+        }
+    }
+
+    /***
+     * Walks the history once, from children to parents, while keeping for every commit not yet visited the set
+     * of paths whose history it's part of. Sets are stored as BitSets of path indices, and are dropped once visited.
+     */
+    private static class HistoryWalk {
+        private final ObjectReader reader;
+        private final HashMap<String, Integer> pathIndices;
+        private final int numPaths;
+        private final int[] counts;
+
+        /***
+         * Paths whose history reaches a commit, and paths for which the commit's own parents were cut. Commits are
+         * removed once visited; only those where the walk stopped are left once done.
+         */
+        private final HashMap<RevCommit, BitSet> reachedPaths = new HashMap<>(), cutPaths = new HashMap<>();
+
+        HistoryWalk(ObjectReader reader, HashMap<String, Integer> pathIndices) {
+            this.reader = reader;
+            this.pathIndices = pathIndices;
+            this.numPaths = pathIndices.size();
+            this.counts = new int[this.numPaths];
+        }
+
+        /***
+         * @param head : (ObjectId) Commit to walk the history of.
+         * @param paths : (BitSet) Indices of the paths to count the commits of.
+         * @param stopCommitId : (ObjectId) Commit whose history isn't walked, or null to walk the whole history. The
+         *                   commits where the walk stopped are left in reachedPaths and cutPaths.
+         * @return Number of commits walked for each path.
+         */
+        int[] countCommits(ObjectId head, BitSet paths, ObjectId stopCommitId) throws IOException {
+            try (RevWalk revWalk = new RevWalk(this.reader)) {
+                RevCommit headCommit = revWalk.parseCommit(head);
+                this.reachedPaths.put(headCommit, (BitSet) paths.clone());
+
+                // Every child must be visited before its parents, even when commit times are equal or out of order:
+                revWalk.setRetainBody(false);
+                revWalk.sort(RevSort.TOPO);
+                revWalk.sort(RevSort.COMMIT_TIME_DESC, true);
+                revWalk.markStart(headCommit);
+                if(stopCommitId != null) revWalk.markUninteresting(revWalk.parseCommit(stopCommitId));
+
+                for (RevCommit commit : revWalk) {
+                    BitSet reached = this.reachedPaths.remove(commit);
+                    BitSet cut = this.cutPaths.remove(commit);
+                    if(reached == null || reached.isEmpty()) continue;
+
+                    // Paths for which this commit lost its parents are handled as if it was a root commit:
+                    if(cut != null) {
+                        cut.and(reached);
+                        reached.andNot(cut);
+                        this.countPathsIn(commit, cut);
+                    }
+                    if(reached.isEmpty()) continue;
+
+                    if(commit.getParentCount() == 0) this.countPathsIn(commit, reached);
+                    else if(commit.getParentCount() == 1) this.visitCommit(commit, reached);
+                    else this.visitMerge(commit, reached);
+                }
+            }
+            return this.counts;
+        }
+
+        /***
+         * A commit with one parent counts for the paths it changed, and passes every path on to its parent.
+         */
+        private void visitCommit(RevCommit commit, BitSet reached) throws IOException {
+            RevCommit parent = commit.getParent(0);
+            BitSet changed = this.getPathsChangedBetween(parent, commit, null);
+            changed.and(reached);
+            this.count(changed);
+            this.reach(this.reachedPaths, parent, reached);
+        }
+
+        /***
+         * For each path, a merge identical to one of its parents (the first one, if many) only passes the path on to
+         * that parent, and doesn't count. Otherwise, the merge counts, and passes the path on to all of its parents.
+         * Either way, the parents checked before the identical one which didn't have the path at all have their own
+         * parents cut for that path.
+         */
+        private void visitMerge(RevCommit commit, BitSet reached) throws IOException {
+            BitSet remaining = reached;
+            for(RevCommit parent : commit.getParents()) {
+                BitSet added = new BitSet(this.numPaths);
+                BitSet changed = this.getPathsChangedBetween(parent, commit, added);
+
+                BitSet same = (BitSet) remaining.clone();
+                same.andNot(changed);
+                this.reach(this.reachedPaths, parent, same);
+
+                added.and(remaining);
+                this.reach(this.cutPaths, parent, added);
+                remaining.and(changed);
+            }
+
+            this.count(remaining);
+            for(RevCommit parent : commit.getParents()) this.reach(this.reachedPaths, parent, remaining);
+        }
+
+        private void reach(HashMap<RevCommit, BitSet> map, RevCommit commit, BitSet paths) {
+            if(paths.isEmpty()) return;
+            BitSet existing = map.get(commit);
+            if(existing == null) map.put(commit, (BitSet) paths.clone());
+            else existing.or(paths);
+        }
+
+        private void count(BitSet paths) {
+            for(int i = paths.nextSetBit(0); i >= 0; i = paths.nextSetBit(i + 1)) this.counts[i]++;
+        }
+
+        /***
+         * A root commit counts for the paths that exist in its tree.
+         */
+        private void countPathsIn(RevCommit commit, BitSet paths) throws IOException {
+            if(paths.isEmpty()) return;
+            try (TreeWalk treeWalk = new TreeWalk(this.reader)) {
+                treeWalk.addTree(commit.getTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(PathSuffixFilter.create(".java"));
+                while (treeWalk.next()) {
+                    Integer index = this.pathIndices.get(treeWalk.getPathString());
+                    if(index != null && paths.get(index)) this.counts[index]++;
+                }
+            }
+        }
+
+        /***
+         * @param added : (BitSet) If not null, set with the paths that the parent doesn't have.
+         * @return Paths that differ between the two commits.
+         */
+        private BitSet getPathsChangedBetween(RevCommit parent, RevCommit commit, BitSet added) throws IOException {
+            BitSet changed = new BitSet(this.numPaths);
+            try (TreeWalk treeWalk = new TreeWalk(this.reader)) {
+                treeWalk.addTree(parent.getTree());
+                treeWalk.addTree(commit.getTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".java"), TreeFilter.ANY_DIFF));
+                while (treeWalk.next()) {
+                    Integer index = this.pathIndices.get(treeWalk.getPathString());
+                    if(index == null) continue;
+                    changed.set(index);
+                    if(added != null && treeWalk.getRawMode(0) == 0) added.set(index);
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -3,11 +3,17 @@ package net.frootloop.qa.parser.util.files;
 import net.frootloop.qa.parser.result.ParsedClass;
 import net.frootloop.qa.parser.result.ParsedRepository;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -15,6 +21,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Set;
 
 public interface GitGudder extends FilePathHandler {
 
@@ -138,4 +145,106 @@ public interface GitGudder extends FilePathHandler {
         }
         return count;
     }
+
+    /***
+     * Counts the commits made to every .java file of the repository at once, rather than one log per file.
+     *
+     * @param repositoryPath : (Path) Root of the git repository.
+     * @return CommitCountIndex instance, or null if the repository's history can't be read.
+     */
+    static CommitCountIndex getCommitCountIndexOf(Path repositoryPath) {
+        try {
+            return CommitCountIndex.build(repositoryPath);
+        } catch (Exception e) {
+            System.out.println("\n[ ERROR ]\nInterface 'GitGudder' could not index the history of the git repository at '" + repositoryPath + "'. Commits will be counted one file at a time instead.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /***
+     * @param repositoryPath : (Path) Root of the git repository, i.e. the folder containing its '.git' folder.
+     * @return Id of the commit at the repository's HEAD, or null if it has none or isn't a git repository.
+     */
+    static String getHeadCommitIdOf(Path repositoryPath) {
+        String repositoryPathStr = repositoryPath.toString().replace('\\', '/') + "/.git";
+        try (Repository repository = new FileRepository(repositoryPathStr)) {
+            ObjectId head = repository.resolve(Constants.HEAD);
+            return head == null ? null : head.name();
+        } catch (Exception e) {
+            System.out.println("\n[ ERROR ]\nInterface 'GitGudder' could not resolve the HEAD of the git repository at '" + repositoryPathStr + "'.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /***
+     * Lists the paths of the files that differ between two commits, along with the paths touched by every commit
+     * made since 'oldCommitId', even those whose changes were later undone. The number of commits made to those
+     * files may have changed, even when their contents didn't.
+     *
+     * @param repositoryPath : (Path) Root of the git repository.
+     * @param oldCommitId : (String) Commit the repository was last analysed at.
+     * @param newCommitId : (String) Commit the repository is now at.
+     * @return Paths relative to the repository's root, with '/' separators. Null if the commits can't be compared.
+     */
+    static Set<String> getPathsChangedBetween(Path repositoryPath, String oldCommitId, String newCommitId) {
+        String repositoryPathStr = repositoryPath.toString().replace('\\', '/') + "/.git";
+        Set<String> paths = new HashSet<>();
+
+        try (Repository repository = new FileRepository(repositoryPathStr);
+             ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+
+            RevCommit oldCommit = revWalk.parseCommit(ObjectId.fromString(oldCommitId));
+            RevCommit newCommit = revWalk.parseCommit(ObjectId.fromString(newCommitId));
+
+            // Net changes, which also covers an old commit that's no longer an ancestor of the new one (i.e. after a reset):
+            GitGudder.addPathsChangedBetween(paths, reader, oldCommit.getTree(), newCommit.getTree());
+
+            // Changes made by each commit since:
+            revWalk.markStart(newCommit);
+            revWalk.markUninteresting(oldCommit);
+            for (RevCommit commit : revWalk) {
+                ObjectId parentTree = commit.getParentCount() == 0 ? null : repository.parseCommit(commit.getParent(0)).getTree();
+                GitGudder.addPathsChangedBetween(paths, reader, parentTree, commit.getTree());
+            }
+        } catch (Exception e) {
+            System.out.println("\n[ ERROR ]\nInterface 'GitGudder' could not compare commits '" + oldCommitId + "' and '" + newCommitId + "' of the git repository at '" + repositoryPathStr + "'.");
+            e.printStackTrace();
+            return null;
+        }
+        return paths;
+    }
+
+    static void addPathsChangedBetween(Set<String> paths, ObjectReader reader, ObjectId oldTree, ObjectId newTree) throws IOException {
+        try (TreeWalk treeWalk = new TreeWalk(reader)) {
+            if(oldTree == null) treeWalk.addTree(new EmptyTreeIterator());
+            else treeWalk.addTree(oldTree);
+            treeWalk.addTree(newTree);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            while (treeWalk.next()) paths.add(treeWalk.getPathString());
+        }
+    }
+
+    /***
+     * @param repositoryPath : (Path) Root of the git repository.
+     * @return Paths of the files that were added, changed, removed or that aren't tracked yet, relative to the
+     * repository's root. Null if the repository's status can't be read.
+     */
+    static Set<String> getUncommittedPathsOf(Path repositoryPath) {
+        String repositoryPathStr = repositoryPath.toString().replace('\\', '/') + "/.git";
+        try (Repository repository = new FileRepository(repositoryPathStr);
+             Git git = new Git(repository)) {
+            Status status = git.status().call();
+            Set<String> paths = new HashSet<>(status.getUncommittedChanges());
+            paths.addAll(status.getUntracked());
+            return paths;
+        } catch (Exception e) {
+            System.out.println("\n[ ERROR ]\nInterface 'GitGudder' could not read the status of the git repository at '" + repositoryPathStr + "'.");
+            e.printStackTrace();
+            return null;
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package net.frootloop.qa.parser.util.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/***
+ * Reads the text contents of source files.
+ *
+ * Small files are read with Files.readString(). Files at least as large as the mapped read threshold (such as
+ * generated protobuf or JAXB stubs) are instead memory-mapped through a FileChannel, then scanned as bytes. When
+ * all of their bytes are ASCII, the mapped bytes are handed out as-is through a CharSequence view, so the raw text
+ * of the file never gets copied onto the heap. Otherwise, the mapped bytes are decoded as UTF-8, with the same
+ * errors on malformed input as Files.readString().
+ */
+public class SourceFileReader {
+
+    /***
+     * Size in bytes from which files are memory-mapped rather than read. Defaults to 1 MiB.
+     */
+    private static long mappedReadThreshold = 1 << 20;
+
+    /***
+     * @param numBytes : (long) Size from which files are memory-mapped. Long.MAX_VALUE to never map them.
+     */
+    public static void setMappedReadThreshold(long numBytes) {
+        mappedReadThreshold = Math.max(0, numBytes);
+    }
+
+    public static long getMappedReadThreshold() {
+        return mappedReadThreshold;
+    }
+
+    /***
+     * @param filePath : (Path) Path of the file to read.
+     * @return Text contents of the file. Either a String, or a read-only view of the mapped file when it's ASCII only.
+     * @throws IOException if the file can't be read, or if it isn't valid UTF-8.
+     */
+    public static CharSequence read(Path filePath) throws IOException {
+        if(Files.size(filePath) < mappedReadThreshold) return Files.readString(filePath);
+        return SourceFileReader.readMapped(filePath);
+    }
+
+    /***
+     * Same as read(), but always memory-maps the file regardless of its size.
+     */
+    public static CharSequence readMapped(Path filePath) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE) throw new IOException("File " + filePath + " is too large to be mapped (" + size + " bytes).");
+
+            // The mapping stays valid after the channel is closed, until the buffer itself is garbage collected:
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        // Fast path; ASCII bytes are their own chars, so there's nothing to decode:
+        if(SourceFileReader.isAscii(buffer)) return new AsciiText(buffer, 0, buffer.limit());
+
+        // Slow path; full UTF-8 decoding, which throws on malformed input just like Files.readString() does:
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(buffer)
+                .toString();
+    }
+
+    /***
+     * Checks 8 bytes at a time whether any of them has its high bit set, i.e. isn't ASCII.
+     */
+    private static boolean isAscii(ByteBuffer buffer) {
+        int i = 0, limit = buffer.limit();
+        for(; i + 8 <= limit; i += 8) if((buffer.getLong(i) & 0x8080808080808080L) != 0) return false;
+        for(; i < limit; i++) if(buffer.get(i) < 0) return false;
+        return true;
+    }
+
+    /***
+     * Read-only CharSequence view of ASCII bytes. Uses absolute reads only, so it can safely be shared between threads.
+     */
+    private static class AsciiText implements CharSequence {
+        private final ByteBuffer bytes;
+        private final int start, end;
+
+        AsciiText(ByteBuffer bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if(index < 0 || index >= this.length()) throw new IndexOutOfBoundsException("index " + index + ", length " + this.length());
+            return (char) this.bytes.get(this.start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if(start < 0 || end > this.length() || start > end) throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + this.length());
+            return new AsciiText(this.bytes, this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] chars = new byte[this.length()];
+            for(int i = 0; i < chars.length; i++) chars[i] = this.bytes.get(this.start + i);
+            return new String(chars, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package net.frootloop.qa.parser.util.stats;
+
+import net.frootloop.qa.parser.result.ParsedClass;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+
+/***
+ * A metric of classes, such as their NLOC, defined by how its value is extracted from a ParsedClass. Statistics and
+ * charts take a Metric rather than knowing of each metric themselves, so that a new metric only has to be registered
+ * to get its distribution, correlations and charts.
+ *
+ * Registered metrics are numbered in order of registration, and are what a MetricTable, MetricSketches or
+ * ScatterPlotData covers by default. The metrics of this class are registered first, in the order they're declared.
+ */
+public class Metric {
+
+    private static final ArrayList<Metric> registry = new ArrayList<>();
+
+    public static final Metric NLOC = Metric.register("NLOC", "Number of Lines of Code", true, ParsedClass::getNumLinesCode);
+    public static final Metric CD = Metric.register("CD", "Comment Density", false, ParsedClass::getCommentDensity);
+    public static final Metric NCH = Metric.register("NCH", "Number of Commits", true, ParsedClass::getNumCommits);
+    public static final Metric WMC = Metric.register("WMC", "Weighted Methods per Class", true, ParsedClass::getWeightedMethods);
+    public static final Metric LCOM = Metric.register("LCOM", "Lack of Cohesion in Methods", true, ParsedClass::getLackOfCohesionInMethods);
+    public static final Metric CBO = Metric.register("CBO", "Coupling Between Classes", true, ParsedClass::getNumTimesReferenced);
+    public static final Metric CC = Metric.register("CC", "Cyclomatic Complexity", true, ParsedClass::getCyclomatcComplexity);
+
+    private final int id;
+    private final String shorthand, name;
+    private final boolean isInteger;
+    private final ToDoubleFunction<ParsedClass> extractor;
+
+    private Metric(int id, String shorthand, String name, boolean isInteger, ToDoubleFunction<ParsedClass> extractor) {
+        this.id = id;
+        this.shorthand = shorthand;
+        this.name = name;
+        this.isInteger = isInteger;
+        this.extractor = extractor;
+    }
+
+    /***
+     * Registers a new metric of classes.
+     *
+     * @param shorthand : Unique short name of the metric, such as "NLOC".
+     * @param name : Full name of the metric, such as "Number of Lines of Code".
+     * @param isInteger : Whether the values of the metric are whole numbers, for printing.
+     * @param extractor : Value of the metric for a given class.
+     * @return The registered metric.
+     */
+    public static synchronized Metric register(String shorthand, String name, boolean isInteger, ToDoubleFunction<ParsedClass> extractor) {
+        if(Metric.get(shorthand) != null) throw new IllegalArgumentException("A metric named '" + shorthand + "' is already registered.");
+        Metric metric = new Metric(registry.size(), shorthand, name, isInteger, extractor);
+        registry.add(metric);
+        return metric;
+    }
+
+    /***
+     * @return The registered metric with the given short name, or null if there's none.
+     */
+    public static synchronized Metric get(String shorthand) {
+        for(Metric metric : registry)
+            if(metric.shorthand.equals(shorthand)) return metric;
+        return null;
+    }
+
+    /***
+     * @return Every registered metric, in order of registration.
+     */
+    public static synchronized Metric[] getRegistered() {
+        return registry.toArray(new Metric[0]);
+    }
+
+    /***
+     * @return Index of the metric among the registered metrics.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    public String getShorthand() {
+        return this.shorthand;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public double getValueOf(ParsedClass parsedClass) {
+        return this.extractor.applyAsDouble(parsedClass);
+    }
+
+    /***
+     * @return The value of the metric for each class, in the same order.
+     */
+    public double[] getValuesOf(ParsedClass[] classes) {
+        double[] values = new double[classes.length];
+        for(int i = 0; i < classes.length; i++) values[i] = this.extractor.applyAsDouble(classes[i]);
+        return values;
+    }
+
+    /***
+     * @return Comparator sorting classes by their value of the metric, from lowest to highest.
+     */
+    public Comparator<ParsedClass> getComparator() {
+        return Comparator.comparingDouble(this.extractor);
+    }
+
+    /***
+     * @return The value as a whole number for integer metrics, and with 3 decimals otherwise.
+     */
+    public String format(double value) {
+        return this.isInteger ? String.valueOf((long)value) : String.format("%.3f", value);
+    }
+
+    @Override
+    public String toString() {
+        return this.shorthand;
+    }
+}
@@ -0,0 +1,124 @@
+package net.frootloop.qa.parser.util.stats;
+
+import net.frootloop.qa.parser.result.ParsedClass;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/***
+ * Approximate distributions of metrics of classes, as one QuantileSketch per metric. Unlike a MetricTable, classes
+ * are let go as soon as their values are added, so the distributions of any number of classes, from any number of
+ * repositories, fit in a few kilobytes. Sketches filled by different threads, shards or repositories are merged into
+ * the distributions of all their classes.
+ */
+public class MetricSketches {
+
+    private final Metric[] metrics;
+    private final QuantileSketch[] sketches;
+    private long numClasses = 0;
+
+    /***
+     * Sketches every registered metric.
+     *
+     * @param rankError : Error allowed on the rank of the quantiles; see QuantileSketch.ForRankError().
+     */
+    public MetricSketches(double rankError) {
+        this(rankError, Metric.getRegistered());
+    }
+
+    /***
+     * @param rankError : Error allowed on the rank of the quantiles; see QuantileSketch.ForRankError().
+     * @param metrics : Metrics to sketch.
+     */
+    public MetricSketches(double rankError, Metric... metrics) {
+        this.metrics = metrics;
+        this.sketches = new QuantileSketch[metrics.length];
+        for(int m = 0; m < metrics.length; m++) this.sketches[m] = QuantileSketch.ForRankError(rankError);
+    }
+
+    /***
+     * Restores sketches written by writeTo(). Their metrics are found by short name among the registered ones.
+     *
+     * @param in : Stream positioned at the start of the sketches' data.
+     */
+    public MetricSketches(DataInputStream in) throws IOException {
+        this.numClasses = in.readLong();
+        int numMetrics = in.readInt();
+        this.metrics = new Metric[numMetrics];
+        this.sketches = new QuantileSketch[numMetrics];
+        for(int m = 0; m < numMetrics; m++) {
+            String shorthand = in.readUTF();
+            this.metrics[m] = Metric.get(shorthand);
+            if(this.metrics[m] == null) throw new IOException("Sketch of metric '" + shorthand + "', which isn't registered.");
+            this.sketches[m] = new QuantileSketch(in);
+        }
+    }
+
+    /***
+     * Sketches the metrics of the given classes, with the classes split between threads, each filling its own
+     * sketches, which are merged once they're done.
+     *
+     * @param classes
+     * @param rankError : Error allowed on the rank of the quantiles; see QuantileSketch.ForRankError().
+     * @param metrics : Metrics to sketch.
+     * @return Sketches of the metrics of the classes.
+     */
+    public static MetricSketches Of(ParsedClass[] classes, double rankError, Metric... metrics) {
+        return Arrays.stream(classes).parallel().collect(() -> new MetricSketches(rankError, metrics), MetricSketches::add, MetricSketches::merge);
+    }
+
+    /***
+     * Same as MetricSketches.Of(classes, rankError, metrics), for every registered metric.
+     */
+    public static MetricSketches Of(ParsedClass[] classes, double rankError) {
+        return MetricSketches.Of(classes, rankError, Metric.getRegistered());
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(this.numClasses);
+        out.writeInt(this.metrics.length);
+        for(int m = 0; m < this.metrics.length; m++) {
+            out.writeUTF(this.metrics[m].getShorthand());
+            this.sketches[m].writeTo(out);
+        }
+    }
+
+    public void add(ParsedClass parsedClass) {
+        this.numClasses++;
+        for(int m = 0; m < this.metrics.length; m++) this.sketches[m].add(this.metrics[m].getValueOf(parsedClass));
+    }
+
+    /***
+     * Adds the values of other sketches, of the same metrics and made with the same rank error, to these ones.
+     *
+     * @param other
+     */
+    public void merge(MetricSketches other) {
+        if(!Arrays.equals(this.metrics, other.metrics)) throw new IllegalArgumentException("Only sketches of the same metrics can be merged.");
+        this.numClasses += other.numClasses;
+        for(int m = 0; m < this.metrics.length; m++) this.sketches[m].merge(other.sketches[m]);
+    }
+
+    public Metric[] getMetrics() {
+        return this.metrics.clone();
+    }
+
+    /***
+     * @return Sketch of the metric's values. Classes for which the metric is NaN are skipped by the sketch, so its
+     *         count can be lower than getNumClasses().
+     */
+    public QuantileSketch getSketchOf(Metric metric) {
+        for(int m = 0; m < this.metrics.length; m++)
+            if(this.metrics[m] == metric) return this.sketches[m];
+        throw new IllegalArgumentException("Metric '" + metric + "' isn't sketched.");
+    }
+
+    /***
+     * @return Number of classes added, including those for which some metrics are NaN.
+     */
+    public long getNumClasses() {
+        return this.numClasses;
+    }
+}
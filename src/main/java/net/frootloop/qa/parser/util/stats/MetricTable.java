@@ -0,0 +1,116 @@
+package net.frootloop.qa.parser.util.stats;
+
+import net.frootloop.qa.parser.result.ParsedClass;
+
+/***
+ * Metrics of the classes of a repository, each evaluated once for every ParsedClass and stored as one primitive
+ * array per metric, in the order of the classes. Statistics over a metric then go through a single array instead of
+ * calling the getters of every class, as many times as they need each value.
+ *
+ * The table isn't modified once built, so the statistics of different metrics can be computed from it in parallel.
+ */
+public class MetricTable {
+
+    private final ParsedClass[] classes;
+    private final Metric[] metrics;
+    private final double[][] columns;
+
+    /***
+     * Evaluates every registered metric for the given classes.
+     *
+     * @param classes
+     */
+    public MetricTable(ParsedClass[] classes) {
+        this(classes, Metric.getRegistered());
+    }
+
+    /***
+     * @param classes
+     * @param metrics : Metrics to evaluate for the classes.
+     */
+    public MetricTable(ParsedClass[] classes, Metric... metrics) {
+        this.classes = classes;
+        this.metrics = metrics;
+        this.columns = new double[metrics.length][];
+        for(int m = 0; m < metrics.length; m++) this.columns[m] = metrics[m].getValuesOf(classes);
+    }
+
+    public int getNumClasses() {
+        return this.classes.length;
+    }
+
+    public ParsedClass getClassAt(int index) {
+        return this.classes[index];
+    }
+
+    /***
+     * @return Metrics of the table, in the order of its columns.
+     */
+    public Metric[] getMetrics() {
+        return this.metrics.clone();
+    }
+
+    public double getValueAt(int index, Metric metric) {
+        return this.getColumnOf(metric)[index];
+    }
+
+    /***
+     * @return A copy of the values of the metric, in the order of the classes, which the caller is free to reorder.
+     */
+    public double[] getValuesOf(Metric metric) {
+        return this.getColumnOf(metric).clone();
+    }
+
+    /***
+     * Values of the metric in the order of the classes. Not a copy: must not be modified.
+     */
+    double[] getColumnOf(Metric metric) {
+        for(int m = 0; m < this.metrics.length; m++)
+            if(this.metrics[m] == metric) return this.columns[m];
+        throw new IllegalArgumentException("Metric '" + metric + "' isn't part of this table.");
+    }
+
+    /***
+     * Quickselect: reorders 'values' so that the value at index 'k' is the one it would have if 'values' was sorted,
+     * with only smaller or equal values before it and greater or equal ones after. Runs in linear time on average.
+     *
+     * Values are partitioned three ways around each pivot, so that metrics with lots of equal values, such as the
+     * number of commits, don't degrade to quadratic time. Values are ordered as by Double.compare(), NaN last.
+     *
+     * @param values : Values to reorder.
+     * @param k : Index, or rank, of the value to find.
+     * @return The k-th smallest value.
+     */
+    public static double select(double[] values, int k) {
+        int from = 0, to = values.length - 1;
+        while(from < to) {
+
+            // Pivot on the median of the first, middle and last values:
+            int mid = (from + to) >>> 1;
+            double a = values[from], b = values[mid], c = values[to];
+            double pivot = Double.compare(a, b) < 0
+                    ? (Double.compare(b, c) < 0 ? b : Double.compare(a, c) < 0 ? c : a)
+                    : (Double.compare(a, c) < 0 ? a : Double.compare(b, c) < 0 ? c : b);
+
+            // Values lower than the pivot end up in [from, lt), equal in [lt, gt], greater in (gt, to]:
+            int lt = from, gt = to, i = from;
+            while(i <= gt) {
+                int comparison = Double.compare(values[i], pivot);
+                if(comparison < 0) MetricTable.swap(values, lt++, i++);
+                else if(comparison > 0) MetricTable.swap(values, i, gt--);
+                else i++;
+            }
+
+            if(k < lt) to = lt - 1;
+            else if(k > gt) from = gt + 1;
+            else return pivot;
+        }
+        return values[k];
+    }
+
+    private static void swap(double[] values, int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
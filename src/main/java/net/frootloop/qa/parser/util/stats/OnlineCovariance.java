@@ -0,0 +1,124 @@
+package net.frootloop.qa.parser.util.stats;
+
+/***
+ * Means, variances and covariances of several metrics at once, updated one data point at a time with Welford's
+ * algorithm, so that they're found in a single pass over the classes without keeping their values. Subtracting the
+ * running means as it goes keeps the sums small, which avoids the loss of precision of summing squares.
+ *
+ * Accumulators filled by different threads are merged with the pairwise update of Chan et al., into the same values
+ * as if all their data points were added to a single accumulator.
+ */
+public class OnlineCovariance {
+
+    private final int numDimensions;
+    private long count = 0;
+    private final double[] means;
+
+    /***
+     * Sums of the products of the deviations from the means, for each pair of dimensions (i, j) with i <= j.
+     */
+    private final double[][] comoments;
+
+    /***
+     * Deviations from the means, kept between calls to add() and merge() to spare an allocation.
+     */
+    private final double[] deltas;
+
+    /***
+     * @param numDimensions : Number of values of each data point, i.e. number of metrics.
+     */
+    public OnlineCovariance(int numDimensions) {
+        this.numDimensions = numDimensions;
+        this.means = new double[numDimensions];
+        this.comoments = new double[numDimensions][numDimensions];
+        this.deltas = new double[numDimensions];
+    }
+
+    /***
+     * @param values : Value of each metric of the data point, in the same order for every data point.
+     */
+    public void add(double[] values) {
+        this.count++;
+
+        // Deviations from the means before they're updated, and after:
+        for(int i = 0; i < this.numDimensions; i++) {
+            this.deltas[i] = values[i] - this.means[i];
+            this.means[i] += this.deltas[i] / this.count;
+        }
+        for(int i = 0; i < this.numDimensions; i++)
+            for(int j = i; j < this.numDimensions; j++)
+                this.comoments[i][j] += this.deltas[i] * (values[j] - this.means[j]);
+    }
+
+    /***
+     * Adds the data points of another accumulator, with as many dimensions, to this one. The other one is left as
+     * it was.
+     *
+     * @param other
+     */
+    public void merge(OnlineCovariance other) {
+        if(other.numDimensions != this.numDimensions) throw new IllegalArgumentException("Only accumulators with as many dimensions can be merged, yet they had " + this.numDimensions + " and " + other.numDimensions + ".");
+        if(other.count == 0) return;
+
+        long count = this.count + other.count;
+        double weight = (double)this.count * (double)other.count / (double)count;
+        for(int i = 0; i < this.numDimensions; i++) this.deltas[i] = other.means[i] - this.means[i];
+
+        for(int i = 0; i < this.numDimensions; i++) {
+            for(int j = i; j < this.numDimensions; j++)
+                this.comoments[i][j] += other.comoments[i][j] + this.deltas[i] * this.deltas[j] * weight;
+            this.means[i] += this.deltas[i] * other.count / count;
+        }
+        this.count = count;
+    }
+
+    public int getNumDimensions() {
+        return this.numDimensions;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public double getMean(int i) {
+        return this.means[i];
+    }
+
+    /***
+     * @return Population covariance between dimensions 'i' and 'j', i.e. divided by the number of data points.
+     */
+    public double getCovariance(int i, int j) {
+        return (i <= j ? this.comoments[i][j] : this.comoments[j][i]) / this.count;
+    }
+
+    public double getVariance(int i) {
+        return this.getCovariance(i, i);
+    }
+
+    public double getStandardDeviation(int i) {
+        return Math.sqrt(this.getVariance(i));
+    }
+
+    /***
+     * @return Pearson correlation coefficient between dimensions 'i' and 'j', and 1 between a dimension and itself.
+     */
+    public double getCorrelation(int i, int j) {
+        if(i == j) return 1.0d;
+        double comoment = i < j ? this.comoments[i][j] : this.comoments[j][i];
+        return comoment / (Math.sqrt(this.comoments[i][i]) * Math.sqrt(this.comoments[j][j]));
+    }
+
+    public double[][] getCovarianceMatrix() {
+        double[][] matrix = new double[this.numDimensions][this.numDimensions];
+        for(int i = 0; i < this.numDimensions; i++)
+            for(int j = 0; j < this.numDimensions; j++) matrix[i][j] = this.getCovariance(i, j);
+        return matrix;
+    }
+
+    public double[][] getCorrelationMatrix() {
+        double[][] matrix = new double[this.numDimensions][this.numDimensions];
+        for(int i = 0; i < this.numDimensions; i++)
+            for(int j = 0; j < this.numDimensions; j++) matrix[i][j] = this.getCorrelation(i, j);
+        return matrix;
+    }
+}
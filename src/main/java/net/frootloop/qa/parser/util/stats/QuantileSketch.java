@@ -0,0 +1,238 @@
+package net.frootloop.qa.parser.util.stats;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/***
+ * KLL quantile sketch: an approximate distribution of a stream of values, in memory that only grows with the log of
+ * the number of values, from which quantiles can be read with a bounded error on their rank.
+ *
+ * Values are kept in levels, where each value of level h stands for 2^h values of the stream. Whenever a level is
+ * full, it's sorted and every other value of it, starting from a random one of the first two, is promoted to the level
+ * above, while the others are dropped. Lower levels get smaller capacities than the top one, by a factor of 2/3 per
+ * level, which is what bounds the memory to about 3k values.
+ *
+ * Sketches of the same 'k' can be merged, such as the sketches filled by different threads, or of different shards or
+ * repositories, into a sketch of the union of their values. A sketch isn't thread-safe: each thread fills its own.
+ */
+public class QuantileSketch {
+
+    private static final int MIN_LEVEL_CAPACITY = 2;
+    private static final double LEVEL_CAPACITY_RATIO = 2.0d / 3.0d;
+
+    private final int k;
+    private final Random random;
+    private double[][] levels = new double[1][];
+    private int[] levelSizes = new int[1], levelCapacities;
+    private long count = 0;
+    private double min = Double.NaN, max = Double.NaN;
+
+    /***
+     * @param k : Capacity of the top level. The error on the rank of a quantile is roughly inversely proportional
+     *            to it; see QuantileSketch.ForRankError().
+     */
+    public QuantileSketch(int k) {
+        if(k < 8) throw new IllegalArgumentException("The capacity of a quantile sketch should be at least 8, yet it was " + k + ".");
+        this.k = k;
+        this.random = new Random(k);
+        this.updateLevelCapacities();
+        this.levels[0] = new double[this.levelCapacities[0]];
+    }
+
+    /***
+     * @param rankError : Error allowed on the rank of the quantiles, as a fraction of the number of values. For
+     *                    instance, with 0.01, the median returned is between the 49th and 51st percentiles.
+     * @return A sketch large enough for the error on the rank of its quantiles to be within 'rankError', with a
+     *         probability of about 99%.
+     */
+    public static QuantileSketch ForRankError(double rankError) {
+        if(!(rankError > 0 && rankError < 1)) throw new IllegalArgumentException("The rank error of a quantile sketch should be between 0 and 1, yet it was " + rankError + ".");
+        return new QuantileSketch(Math.max(8, (int)Math.ceil(4.0d / rankError)));
+    }
+
+    /***
+     * Restores a sketch written by writeTo().
+     *
+     * @param in : Stream positioned at the start of the sketch's data.
+     */
+    public QuantileSketch(DataInputStream in) throws IOException {
+        this(in.readInt());
+        this.count = in.readLong();
+        this.min = in.readDouble();
+        this.max = in.readDouble();
+
+        int numLevels = in.readInt();
+        this.levels = new double[numLevels][];
+        this.levelSizes = new int[numLevels];
+        this.updateLevelCapacities();
+        for(int h = 0; h < numLevels; h++) {
+            this.levelSizes[h] = in.readInt();
+            this.levels[h] = new double[Math.max(this.levelSizes[h], this.levelCapacities[h])];
+            for(int i = 0; i < this.levelSizes[h]; i++) this.levels[h][i] = in.readDouble();
+        }
+    }
+
+    /***
+     * Writes the sketch to a stream, such as to merge it later on with the sketches of other shards.
+     *
+     * @param out
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(this.k);
+        out.writeLong(this.count);
+        out.writeDouble(this.min);
+        out.writeDouble(this.max);
+
+        out.writeInt(this.levels.length);
+        for(int h = 0; h < this.levels.length; h++) {
+            out.writeInt(this.levelSizes[h]);
+            for(int i = 0; i < this.levelSizes[h]; i++) out.writeDouble(this.levels[h][i]);
+        }
+    }
+
+    /***
+     * @param value : Value to add. NaN values, such as the comment density of a class without any line of code or
+     *                comment, are skipped: they aren't counted by getCount(), nor ranked among the other values.
+     */
+    public void add(double value) {
+        if(Double.isNaN(value)) return;
+        if(this.count == 0 || value < this.min) this.min = value;
+        if(this.count == 0 || value > this.max) this.max = value;
+        this.count++;
+
+        this.append(0, value);
+        if(this.levelSizes[0] >= this.levelCapacities[0]) this.compress();
+    }
+
+    /***
+     * Adds the values of another sketch to this one. The other sketch is left as it was.
+     *
+     * @param other : Sketch with the same 'k' as this one.
+     */
+    public void merge(QuantileSketch other) {
+        if(other.k != this.k) throw new IllegalArgumentException("Only quantile sketches of the same capacity can be merged, yet they were " + this.k + " and " + other.k + ".");
+        if(other.count == 0) return;
+        if(this.count == 0 || other.min < this.min) this.min = other.min;
+        if(this.count == 0 || other.max > this.max) this.max = other.max;
+        this.count += other.count;
+
+        for(int h = 0; h < other.levels.length; h++)
+            for(int i = 0; i < other.levelSizes[h]; i++) this.append(h, other.levels[h][i]);
+        this.compress();
+    }
+
+    /***
+     * @return Number of values added to the sketch, or to the sketches merged into it, NaN values excluded.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    public int getK() {
+        return this.k;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    /***
+     * @param rank : Fraction of the values, between 0 and 1.
+     * @return Smallest value of the sketch for which at least 'rank' of the values are lower or equal to it, such as
+     *         the median for 0.5. NaN if the sketch is empty.
+     */
+    public double getQuantile(double rank) {
+        if(this.count == 0) return Double.NaN;
+        if(rank <= 0) return this.min;
+        if(rank >= 1) return this.max;
+
+        // Sort the retained values, each with the number of values of the stream it stands for:
+        int numRetained = 0;
+        for(int size : this.levelSizes) numRetained += size;
+        double[] values = new double[numRetained];
+        long[] weights = new long[numRetained];
+        Integer[] order = new Integer[numRetained];
+        for(int h = 0, n = 0; h < this.levels.length; h++) {
+            for(int i = 0; i < this.levelSizes[h]; i++, n++) {
+                values[n] = this.levels[h][i];
+                weights[n] = 1L << h;
+                order[n] = n;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        double targetWeight = rank * this.count;
+        long cumulativeWeight = 0;
+        for(int n : order) {
+            cumulativeWeight += weights[n];
+            if(cumulativeWeight >= targetWeight) return values[n];
+        }
+        return this.max;
+    }
+
+    private void append(int level, double value) {
+        while(level >= this.levels.length) this.addLevel();
+        if(this.levelSizes[level] == this.levels[level].length)
+            this.levels[level] = Arrays.copyOf(this.levels[level], Math.max(MIN_LEVEL_CAPACITY, this.levels[level].length * 2));
+        this.levels[level][this.levelSizes[level]++] = value;
+    }
+
+    private void addLevel() {
+        int numLevels = this.levels.length + 1;
+        this.levels = Arrays.copyOf(this.levels, numLevels);
+        this.levelSizes = Arrays.copyOf(this.levelSizes, numLevels);
+        this.updateLevelCapacities();
+        this.levels[numLevels - 1] = new double[this.levelCapacities[numLevels - 1]];
+    }
+
+    /***
+     * Number of values each level holds before it's compacted. The top level holds 'k' of them, and each level below
+     * it 2/3 of the level above.
+     */
+    private void updateLevelCapacities() {
+        this.levelCapacities = new int[this.levels.length];
+        for(int h = 0; h < this.levels.length; h++) {
+            int depth = this.levels.length - 1 - h;
+            this.levelCapacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int)Math.ceil(this.k * Math.pow(LEVEL_CAPACITY_RATIO, depth)));
+        }
+    }
+
+    /***
+     * Compacts full levels, from the bottom up, until none is. Adding a level shrinks the capacity of those below
+     * it, so the levels are checked again from the bottom whenever one is added.
+     */
+    private void compress() {
+        boolean isAnyLevelFull = true;
+        while(isAnyLevelFull) {
+            isAnyLevelFull = false;
+            for(int h = 0; h < this.levels.length; h++) {
+                if(this.levelSizes[h] < this.levelCapacities[h]) continue;
+                int numLevels = this.levels.length;
+                this.compact(h);
+                isAnyLevelFull = true;
+                if(this.levels.length != numLevels) break;
+            }
+        }
+    }
+
+    /***
+     * Promotes every other value of the sorted level to the level above, starting from a random one of the first two.
+     * With an odd number of values, the smallest one stays where it is, so that the weight of the sketch is kept.
+     */
+    private void compact(int h) {
+        double[] level = this.levels[h];
+        int size = this.levelSizes[h];
+        Arrays.sort(level, 0, size);
+
+        int start = size % 2;
+        for(int i = start + (this.random.nextBoolean() ? 1 : 0); i < size; i += 2) this.append(h + 1, level[i]);
+        this.levelSizes[h] = start;
+    }
+}
@@ -0,0 +1,165 @@
+package net.frootloop.qa.parser.util.stats;
+
+import java.util.Arrays;
+
+/***
+ * Rank correlations between two metrics, which, unlike the Pearson coefficient, only depend on the order of the
+ * values, and so aren't thrown off by skewed metrics such as NLOC or NCH.
+ *
+ * Both coefficients account for ties, which are common in metrics of whole numbers. Data points where either value
+ * is NaN, such as the comment density of a class without any lines, are left out.
+ */
+public class RankCorrelation {
+
+    /***
+     * Spearman's rho: Pearson's coefficient between the ranks of the values, where tied values all get the average
+     * of their ranks.
+     *
+     * @param x
+     * @param y : Values of the same data points as 'x', in the same order.
+     * @return Spearman's rank correlation coefficient between 'x' and 'y', or NaN if either has a single distinct value.
+     */
+    public static double Spearman(double[] x, double[] y) {
+        double[][] pairs = RankCorrelation.GetCompletePairsOf(x, y);
+        double[] ranksX = RankCorrelation.GetRanksOf(pairs[0]), ranksY = RankCorrelation.GetRanksOf(pairs[1]);
+
+        OnlineCovariance covariance = new OnlineCovariance(2);
+        double[] point = new double[2];
+        for(int i = 0; i < ranksX.length; i++) {
+            point[0] = ranksX[i];
+            point[1] = ranksY[i];
+            covariance.add(point);
+        }
+        return covariance.getCorrelation(0, 1);
+    }
+
+    /***
+     * Kendall's tau-b, with Knight's algorithm: the data points are sorted by x, then y, which gives the pairs tied
+     * on x; they're then merge sorted by y, where the number of swaps is the number of discordant pairs. This takes
+     * O(n log n) time instead of comparing every pair of data points.
+     *
+     * @param x
+     * @param y : Values of the same data points as 'x', in the same order.
+     * @return Kendall's tau-b between 'x' and 'y', or NaN if either has a single distinct value.
+     */
+    public static double KendallTauB(double[] x, double[] y) {
+        double[][] pairs = RankCorrelation.GetCompletePairsOf(x, y);
+        int n = pairs[0].length;
+
+        // Sort the data points by x, then by y:
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; i++) order[i] = i;
+        double[] px = pairs[0], py = pairs[1];
+        Arrays.sort(order, (a, b) -> {
+            int comparison = Double.compare(px[a], px[b]);
+            return comparison != 0 ? comparison : Double.compare(py[a], py[b]);
+        });
+        double[] sortedX = new double[n], sortedY = new double[n];
+        for(int i = 0; i < n; i++) {
+            sortedX[i] = px[order[i]];
+            sortedY[i] = py[order[i]];
+        }
+
+        // Pairs tied on x, and pairs tied on both x and y:
+        long numTotalPairs = (long)n * (n - 1) / 2;
+        long numTiedX = 0, numTiedXY = 0;
+        for(int start = 0, end; start < n; start = end) {
+            end = start + 1;
+            while(end < n && sortedX[end] == sortedX[start]) end++;
+            numTiedX += RankCorrelation.GetNumPairsOf(end - start);
+
+            for(int startY = start, endY; startY < end; startY = endY) {
+                endY = startY + 1;
+                while(endY < end && sortedY[endY] == sortedY[startY]) endY++;
+                numTiedXY += RankCorrelation.GetNumPairsOf(endY - startY);
+            }
+        }
+
+        // Sort by y, counting the swaps, i.e. the pairs in the opposite order on y as on x:
+        long numSwaps = RankCorrelation.MergeSortCountingSwaps(sortedY, new double[n], 0, n);
+
+        // Pairs tied on y:
+        long numTiedY = 0;
+        for(int start = 0, end; start < n; start = end) {
+            end = start + 1;
+            while(end < n && sortedY[end] == sortedY[start]) end++;
+            numTiedY += RankCorrelation.GetNumPairsOf(end - start);
+        }
+
+        // Concordant minus discordant pairs, over the pairs not tied on x times the pairs not tied on y:
+        double numerator = (double)(numTotalPairs - numTiedX - numTiedY + numTiedXY - 2 * numSwaps);
+        double denominator = Math.sqrt((double)(numTotalPairs - numTiedX)) * Math.sqrt((double)(numTotalPairs - numTiedY));
+        return numerator / denominator;
+    }
+
+    /***
+     * @return Ranks of the values, from 1 for the lowest, where tied values all get the average of their ranks.
+     */
+    public static double[] GetRanksOf(double[] values) {
+        int n = values.length;
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        double[] ranks = new double[n];
+        for(int start = 0, end; start < n; start = end) {
+            end = start + 1;
+            while(end < n && values[order[end]] == values[order[start]]) end++;
+
+            // Ranks start + 1 to end, averaged:
+            double averageRank = (start + 1 + end) / 2.0d;
+            for(int i = start; i < end; i++) ranks[order[i]] = averageRank;
+        }
+        return ranks;
+    }
+
+    /***
+     * Sorts values[from, to) in place, with 'buffer' as scratch space.
+     *
+     * @return Number of swaps of adjacent values an insertion sort would have made, i.e. number of pairs of values
+     *         in decreasing order. Equal values aren't counted.
+     */
+    private static long MergeSortCountingSwaps(double[] values, double[] buffer, int from, int to) {
+        if(to - from < 2) return 0;
+        int mid = (from + to) >>> 1;
+        long numSwaps = RankCorrelation.MergeSortCountingSwaps(values, buffer, from, mid)
+                + RankCorrelation.MergeSortCountingSwaps(values, buffer, mid, to);
+
+        // Every value taken from the right half before the rest of the left half is swapped with all of that rest:
+        int left = from, right = mid, out = from;
+        while(left < mid && right < to) {
+            if(values[right] < values[left]) {
+                numSwaps += mid - left;
+                buffer[out++] = values[right++];
+            }
+            else buffer[out++] = values[left++];
+        }
+        while(left < mid) buffer[out++] = values[left++];
+        while(right < to) buffer[out++] = values[right++];
+        System.arraycopy(buffer, from, values, from, to - from);
+        return numSwaps;
+    }
+
+    /***
+     * @return The values of 'x' and of 'y' for data points where neither is NaN, as {x, y}.
+     */
+    private static double[][] GetCompletePairsOf(double[] x, double[] y) {
+        if(x.length != y.length) throw new IllegalArgumentException("Both metrics should have a value for each data point, yet they had " + x.length + " and " + y.length + " values.");
+        int n = 0;
+        for(int i = 0; i < x.length; i++)
+            if(!Double.isNaN(x[i]) && !Double.isNaN(y[i])) n++;
+        if(n == x.length) return new double[][]{x, y};
+
+        double[] completeX = new double[n], completeY = new double[n];
+        for(int i = 0, j = 0; i < x.length; i++) {
+            if(Double.isNaN(x[i]) || Double.isNaN(y[i])) continue;
+            completeX[j] = x[i];
+            completeY[j++] = y[i];
+        }
+        return new double[][]{completeX, completeY};
+    }
+
+    private static long GetNumPairsOf(long n) {
+        return n * (n - 1) / 2;
+    }
+}
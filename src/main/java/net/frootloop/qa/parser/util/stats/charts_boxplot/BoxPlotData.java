@@ -1,21 +1,17 @@
 package net.frootloop.qa.parser.util.stats.charts_boxplot;
 
 import net.frootloop.qa.parser.result.ParsedClass;
-import net.frootloop.qa.parser.util.stats.comparators.ComparatorCommentDensity;
-import net.frootloop.qa.parser.util.stats.comparators.ComparatorCommitsPerClass;
-import net.frootloop.qa.parser.util.stats.comparators.ComparatorLinesOfCode;
-import net.frootloop.qa.parser.util.stats.comparators.ParsedClassComparator;
-import net.frootloop.qa.parser.util.stats.comparators.ParsedClassComparator.CompareClassesBy;
+import net.frootloop.qa.parser.util.stats.Metric;
+import net.frootloop.qa.parser.util.stats.MetricTable;
+import net.frootloop.qa.parser.util.stats.QuantileSketch;
 
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class BoxPlotData {
 
-    private final CompareClassesBy VALUE_TYPE;
+    private final Metric VALUE_TYPE;
     public final double UPPER_LIMIT_VALUE;
     public final double LOWER_LIMIT_VALUE;
     public final double UPPER_QUARTILE_VALUE;
@@ -24,26 +20,37 @@ public class BoxPlotData {
     public final double LENGTH;
     public final ArrayList<ParsedClass> EXTREME_CLASSES;
 
+    /***
+     * Whether the values are estimated from a QuantileSketch, in which case the extreme classes aren't known.
+     */
+    private final boolean isApproximate;
+
     /***
      *
      * @param classes
      * @param sortedBy
      */
-    public BoxPlotData(ParsedClass[] classes, CompareClassesBy sortedBy) {
+    public BoxPlotData(ParsedClass[] classes, Metric sortedBy) {
+        this(new MetricTable(classes, sortedBy), sortedBy);
+    }
 
-        VALUE_TYPE = sortedBy;
+    /***
+     * Computes the box plot of one metric of the table. The values are never fully sorted: the median and quartiles
+     * are found by selection, and the extreme classes by a single pass over the values.
+     *
+     * @param table : Metrics of the classes of a repository.
+     * @param sortedBy : Metric of the box plot.
+     */
+    public BoxPlotData(MetricTable table, Metric sortedBy) {
 
-        // Sort the list:
-        ParsedClassComparator comparator = null;
-        if(sortedBy == CompareClassesBy.NUMBER_OF_COMMITS) comparator = new ComparatorCommitsPerClass();
-        if(sortedBy == CompareClassesBy.NUMBER_LINES_OF_CODES) comparator = new ComparatorLinesOfCode();
-        if(sortedBy == CompareClassesBy.DENSITY_OF_COMMENTS) comparator = new ComparatorCommentDensity();
-        List<ParsedClass> sortedListOfClasses = Arrays.stream(classes).sorted(comparator).collect(Collectors.toList());
+        VALUE_TYPE = sortedBy;
+        isApproximate = false;
+        double[] column = table.getValuesOf(sortedBy), values = column.clone();
 
         // Find the values:
-        double median = BoxPlotData.GetMedianOf(sortedListOfClasses, sortedBy);
-        double upperQuartile = BoxPlotData.GetUpperQuartileOf(sortedListOfClasses, sortedBy);
-        double lowerQuartile = BoxPlotData.GetLowerQuartileOf(sortedListOfClasses, sortedBy);
+        double median = BoxPlotData.GetMedianOf(values, 0, values.length);
+        double upperQuartile = BoxPlotData.GetUpperQuartileOf(values);
+        double lowerQuartile = BoxPlotData.GetLowerQuartileOf(values);
         double length = upperQuartile - lowerQuartile;
         double lowerLimit = Math.max(0, lowerQuartile - 1.5d * length);
         double upperLimit = upperQuartile + (1.5d * length);
@@ -59,45 +66,66 @@ public class BoxPlotData {
         LOWER_LIMIT_VALUE = lowerLimit;
         LENGTH = length;
 
-        // Get a list of extreme data points, i.e. classes with values exceeding either limit:
-        ArrayList<ParsedClass> extremePoints = new ArrayList<>();
-        for(ParsedClass c : sortedListOfClasses) {
-            double value = this.getValueOf(c);
-            if(value < lowerLimit || value > upperLimit) {
-
-                // Insert the class:
-                int index = 0;
-                for(int i = 0; i < extremePoints.size(); i++) {
-                    if (value > this.getValueOf(extremePoints.get(i))) break;
-                    index++;
-                }
-                extremePoints.add(index, c);
-            }
-        }
+        // Get a list of extreme data points, i.e. classes with values exceeding either limit, from highest value to lowest:
+        ArrayList<Integer> extremeIndices = new ArrayList<>();
+        for(int i = 0; i < column.length; i++)
+            if(column[i] < lowerLimit || column[i] > upperLimit) extremeIndices.add(i);
+        extremeIndices.sort((i, j) -> Double.compare(column[j], column[i]));
+
+        ArrayList<ParsedClass> extremePoints = new ArrayList<>(extremeIndices.size());
+        for(int i : extremeIndices) extremePoints.add(table.getClassAt(i));
         EXTREME_CLASSES = extremePoints;
     }
 
-    private double getValueOf(ParsedClass c) {
-        if(VALUE_TYPE == CompareClassesBy.NUMBER_OF_COMMITS) return c.getNumCommits();
-        if(VALUE_TYPE == CompareClassesBy.NUMBER_LINES_OF_CODES) return c.getNumLinesCode();
-        if(VALUE_TYPE == CompareClassesBy.DENSITY_OF_COMMENTS) return c.getCommentDensity();
-        return -1;
+    /***
+     * Estimates the box plot of a metric from a sketch of its distribution, such as the distribution of the classes
+     * of many repositories. The median and quartiles are the quantiles of ranks 0.5, 0.25 and 0.75 of the sketch,
+     * whose ranks are within the sketch's rank error of the exact ones. Sketches don't keep the classes themselves,
+     * so EXTREME_CLASSES is left empty.
+     *
+     * @param sketch : Sketch of the values of the metric, with at least one value.
+     * @param sortedBy : Metric of the box plot.
+     */
+    public BoxPlotData(QuantileSketch sketch, Metric sortedBy) {
+
+        VALUE_TYPE = sortedBy;
+        isApproximate = true;
+
+        // Find the values:
+        double median = sketch.getQuantile(0.5d);
+        double upperQuartile = sketch.getQuantile(0.75d);
+        double lowerQuartile = sketch.getQuantile(0.25d);
+        double length = upperQuartile - lowerQuartile;
+        double lowerLimit = Math.max(0, lowerQuartile - 1.5d * length);
+        double upperLimit = upperQuartile + (1.5d * length);
+
+        // Check the values. Are they well distributed?
+        BoxPlotData.EnsureValidBoxPlotOrder(upperLimit,upperQuartile,median,lowerQuartile,lowerLimit);
+
+        // Set our attributes:
+        UPPER_LIMIT_VALUE = upperLimit;
+        UPPER_QUARTILE_VALUE = upperQuartile;
+        MEDIAN_VALUE = median;
+        LOWER_QUARTILE_VALUE = lowerQuartile;
+        LOWER_LIMIT_VALUE = lowerLimit;
+        LENGTH = length;
+        EXTREME_CLASSES = new ArrayList<>();
+    }
+
+    /***
+     * Computes the box plots of several metrics of the same table at once, each on its own thread.
+     *
+     * @param table : Metrics of the classes of a repository.
+     * @param metrics : Metric of each box plot.
+     * @return The box plot of each metric, in the same order.
+     */
+    public static BoxPlotData[] GetBoxPlotsOf(MetricTable table, Metric... metrics) {
+        return Arrays.stream(metrics).parallel().map(metric -> new BoxPlotData(table, metric)).toArray(BoxPlotData[]::new);
     }
 
     public void print() {
-        String dataNameUppercase = "", dataNameShorthand = "";
-        if(VALUE_TYPE == CompareClassesBy.DENSITY_OF_COMMENTS) {
-            dataNameUppercase = "COMMENTS DENSITY (CD)";
-            dataNameShorthand = "CD";
-        }
-        else if(VALUE_TYPE == CompareClassesBy.NUMBER_LINES_OF_CODES) {
-            dataNameUppercase = "NUMBER OF LINES OF CODE (NLOC)";
-            dataNameShorthand = "NLOC";
-        }
-        else if(VALUE_TYPE == CompareClassesBy.NUMBER_OF_COMMITS) {
-            dataNameUppercase = "NUMBER OF COMMITS (NCH)";
-            dataNameShorthand = "NCH";
-        }
+        String dataNameUppercase = VALUE_TYPE.getName().toUpperCase() + " (" + VALUE_TYPE.getShorthand() + ")";
+        String dataNameShorthand = VALUE_TYPE.getShorthand();
 
         // Print a crude version of the box plot:
         System.out.println("\n[ " + dataNameUppercase + " ]" +
@@ -114,16 +142,17 @@ public class BoxPlotData {
                 "\n  __|__   Lower limit: " + String.format("%.3f", LOWER_LIMIT_VALUE));
 
         // Show which classes are extremes:
-        if(EXTREME_CLASSES.size() > 0) {
+        if(isApproximate) {
+            System.out.println("\nThese values are estimated from a sketch of the distribution, which doesn't keep track of extreme cases.");
+        }
+        else if(EXTREME_CLASSES.size() > 0) {
             if(EXTREME_CLASSES.size() == 1) System.out.println("\nThere is a single extreme case in this dataset;");
             else System.out.println("\nThere are " + EXTREME_CLASSES.size() + " extreme cases in this dataset;");
 
             int counter = 1;
             for(ParsedClass c : EXTREME_CLASSES) {
 
-                if(VALUE_TYPE == CompareClassesBy.DENSITY_OF_COMMENTS) System.out.println("   - Comment density: " + String.format("%.3f", c.getCommentDensity()) + ", Class: '" + c.getSignature() + "'");
-                if(VALUE_TYPE == CompareClassesBy.NUMBER_LINES_OF_CODES) System.out.println("   - NLOC: " + c.getNumLinesCode() + ", Class: '" + c.getSignature() + "'");
-                if(VALUE_TYPE == CompareClassesBy.NUMBER_OF_COMMITS) System.out.println("   - Number of commits: " + c.getNumCommits() + ", Class: '" + c.getSignature() + "'");
+                System.out.println("   - " + VALUE_TYPE.getName() + ": " + VALUE_TYPE.format(VALUE_TYPE.getValueOf(c)) + ", Class: '" + c.getSignature() + "'");
 
                 counter++;
                 if(EXTREME_CLASSES.size() > 3 && counter == 4) {
@@ -184,88 +213,60 @@ public class BoxPlotData {
 
 
     /***
-     * Returns the median value of a list of sorted Parsed Classes, based off of the Comparator they were sorted by.
-     * @param sortedListOfClasses
-     * @param sortedBy
+     * Returns the median of the values that would be at indices [from, to) if 'values' was sorted. Values are
+     * selected rather than sorted, which reorders 'values'.
+     * @param values
+     * @param from
+     * @param to
      * @return (double) Median of the dataset.
      */
-    private static double GetMedianOf(List<ParsedClass> sortedListOfClasses, CompareClassesBy sortedBy) {
-
-        // If there's only one class in the list, return its value:
-        if (sortedListOfClasses.size() == 1) {
-            ParsedClass medianClass = sortedListOfClasses.get(0);
-            if (sortedBy == CompareClassesBy.NUMBER_OF_COMMITS) return medianClass.getNumCommits();
-            if (sortedBy == CompareClassesBy.NUMBER_LINES_OF_CODES) return medianClass.getNumLinesCode();
-            if (sortedBy == CompareClassesBy.DENSITY_OF_COMMENTS) return medianClass.getCommentDensity();
-        }
+    private static double GetMedianOf(double[] values, int from, int to) {
+        int size = to - from;
+        if (size <= 0) return 0.0d;
+
+        // If there's only one value, return it:
+        if (size == 1) return MetricTable.select(values, from);
 
         // If the number of elements is odd, return the middle element's value:
-        else if (sortedListOfClasses.size() % 2 == 1) {
-            ParsedClass medianClass = sortedListOfClasses.get((sortedListOfClasses.size() - 1) / 2);
-            if (sortedBy == CompareClassesBy.NUMBER_OF_COMMITS) return medianClass.getNumCommits();
-            if (sortedBy == CompareClassesBy.NUMBER_LINES_OF_CODES) return medianClass.getNumLinesCode();
-            if (sortedBy == CompareClassesBy.DENSITY_OF_COMMENTS) return medianClass.getCommentDensity();
-        }
+        if (size % 2 == 1) return MetricTable.select(values, from + (size - 1) / 2);
 
         // If the number of elements is even, return the average between the two middle elements' values:
-        else {
-            ParsedClass medianClassBtm = sortedListOfClasses.get(sortedListOfClasses.size() >> 1);
-            ParsedClass medianClassTop = sortedListOfClasses.get((sortedListOfClasses.size() >> 1) + 1);
-            if (sortedBy == CompareClassesBy.NUMBER_OF_COMMITS)
-                return (double) (medianClassBtm.getNumCommits() + medianClassTop.getNumCommits()) / 2.0d;
-            if (sortedBy == CompareClassesBy.NUMBER_LINES_OF_CODES)
-                return (double) (medianClassBtm.getNumLinesCode() + medianClassTop.getNumLinesCode()) / 2.0d;
-            if (sortedBy == CompareClassesBy.DENSITY_OF_COMMENTS)
-                return (double) (medianClassBtm.getCommentDensity() + medianClassTop.getCommentDensity()) / 2.0d;
-        }
-        return 0.0d;
+        double medianBtm = MetricTable.select(values, from + (size >> 1));
+        double medianTop = MetricTable.select(values, Math.min(from + (size >> 1) + 1, to - 1));
+        return (medianBtm + medianTop) / 2.0d;
     }
 
     /***
-     * Returns the median value sorted Parsed Classes with values above the dataset's median.
-     * @param sortedListOfClasses
-     * @param sortedBy
+     * Returns the median of the values above the dataset's median.
+     * @param values
      * @return (double) Upper quartile of the dataset.
      */
-    private static double GetUpperQuartileOf(List<ParsedClass> sortedListOfClasses, CompareClassesBy sortedBy) {
-
-        // If there's only one class in the list, return its value:
-        if (sortedListOfClasses.size() == 1) {
-            ParsedClass upperQuartileClass = sortedListOfClasses.get(0);
-            if (sortedBy == CompareClassesBy.NUMBER_OF_COMMITS) return upperQuartileClass.getNumCommits();
-            if (sortedBy == CompareClassesBy.NUMBER_LINES_OF_CODES) return upperQuartileClass.getNumLinesCode();
-            if (sortedBy == CompareClassesBy.DENSITY_OF_COMMENTS) return upperQuartileClass.getCommentDensity();
-        }
+    private static double GetUpperQuartileOf(double[] values) {
+
+        // If there's only one value, return it:
+        if (values.length == 1) return values[0];
 
         int indexOfMedian;
-        if (sortedListOfClasses.size() % 2 == 1) indexOfMedian = ((sortedListOfClasses.size() - 1) / 2);
-        else indexOfMedian = sortedListOfClasses.size() >> 1;
+        if (values.length % 2 == 1) indexOfMedian = ((values.length - 1) / 2);
+        else indexOfMedian = values.length >> 1;
 
-        List<ParsedClass> upperHalf = sortedListOfClasses.subList(indexOfMedian, sortedListOfClasses.size());
-        return GetMedianOf(upperHalf, sortedBy);
+        return GetMedianOf(values, indexOfMedian, values.length);
     }
 
     /***
-     * Returns the median value sorted Parsed Classes with values below the dataset's median.
-     * @param sortedListOfClasses
-     * @param sortedBy
+     * Returns the median of the values below the dataset's median.
+     * @param values
      * @return (double) Lower quartile of the dataset.
      */
-    private static double GetLowerQuartileOf(List<ParsedClass> sortedListOfClasses, CompareClassesBy sortedBy) {
-
-        // If there's only one class in the list, return its value:
-        if (sortedListOfClasses.size() == 1) {
-            ParsedClass lowerQuartileClass = sortedListOfClasses.get(0);
-            if (sortedBy == CompareClassesBy.NUMBER_OF_COMMITS) return lowerQuartileClass.getNumCommits();
-            if (sortedBy == CompareClassesBy.NUMBER_LINES_OF_CODES) return lowerQuartileClass.getNumLinesCode();
-            if (sortedBy == CompareClassesBy.DENSITY_OF_COMMENTS) return lowerQuartileClass.getCommentDensity();
-        }
+    private static double GetLowerQuartileOf(double[] values) {
+
+        // If there's only one value, return it:
+        if (values.length == 1) return values[0];
 
         int indexOfMedian;
-        if (sortedListOfClasses.size() % 2 == 1) indexOfMedian = ((sortedListOfClasses.size() - 1) / 2);
-        else indexOfMedian = (sortedListOfClasses.size() >> 1) + 1;
+        if (values.length % 2 == 1) indexOfMedian = ((values.length - 1) / 2);
+        else indexOfMedian = (values.length >> 1) + 1;
 
-        List<ParsedClass> lowerHalf = sortedListOfClasses.subList(0, indexOfMedian);
-        return GetMedianOf(lowerHalf, sortedBy);
+        return GetMedianOf(values, 0, indexOfMedian);
     }
 }
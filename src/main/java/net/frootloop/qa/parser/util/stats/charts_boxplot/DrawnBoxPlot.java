@@ -0,0 +1,37 @@
+package net.frootloop.qa.parser.util.stats.charts_boxplot;
+
+import net.frootloop.qa.parser.result.ParsedClass;
+import net.frootloop.qa.parser.util.stats.Metric;
+import org.jfree.data.statistics.DefaultBoxAndWhiskerCategoryDataset;
+
+import java.util.ArrayList;
+
+/***
+ * Box plot of the values of any metric of classes.
+ */
+public class DrawnBoxPlot extends AbstractDrawnBoxPlot {
+
+    public DrawnBoxPlot(ParsedClass[] parsedClasses, Metric metric) {
+        this(metric.getValuesOf(parsedClasses), metric);
+    }
+
+    public DrawnBoxPlot(double[] values, Metric metric) {
+        this(values, metric.getName() + " Per Class", metric.getShorthand());
+    }
+
+    protected DrawnBoxPlot(double[] values, String title, String yAxisName) {
+        super(values, title, yAxisName);
+    }
+
+    @Override
+    protected DefaultBoxAndWhiskerCategoryDataset createSampleDataset(double[] values) {
+
+        final DefaultBoxAndWhiskerCategoryDataset dataset = new DefaultBoxAndWhiskerCategoryDataset();
+
+        ArrayList<Double> graphData = new ArrayList<>(values.length);
+        for(double value : values) graphData.add(value);
+        dataset.add(graphData, "", "");
+
+        return dataset;
+    }
+}
@@ -1,7 +1,7 @@
 package net.frootloop.qa.parser.util.stats.charts_scatterplot;
 
 import net.frootloop.qa.parser.result.ParsedClass;
-import net.frootloop.qa.parser.util.stats.comparators.ParsedClassComparator.CompareClassesBy;
+import net.frootloop.qa.parser.util.stats.Metric;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -15,40 +15,25 @@ import java.awt.*;
 
 public class DrawnScatterPlot extends JFrame {
 
-    private static double[] getDensitiesFrom(ParsedClass[] parsedClasses) {
-        double[] values = new double[parsedClasses.length];
-        for(int i = 0; i < parsedClasses.length; i++)
-            values[i] = (double)parsedClasses[i].getCommentDensity();
-        return values;
+    public DrawnScatterPlot(ParsedClass[] parsedClasses, Metric a, Metric b) {
+        this(a.getValuesOf(parsedClasses), b.getValuesOf(parsedClasses), a, b);
     }
 
-    private static double[] getNumLinesFrom(ParsedClass[] parsedClasses) {
-        double[] values = new double[parsedClasses.length];
-        for(int i = 0; i < parsedClasses.length; i++)
-            values[i] = (double)parsedClasses[i].getNumLinesCode();
-        return values;
-    }
-
-    private static double[] getNumCommitsFrom(ParsedClass[] parsedClasses) {
-        double[] values = new double[parsedClasses.length];
-        for(int i = 0; i < parsedClasses.length; i++)
-            values[i] = (double)parsedClasses[i].getNumCommits();
-        return values;
-    }
-
-    public DrawnScatterPlot(ParsedClass[] parsedClasses, CompareClassesBy a, CompareClassesBy b) {
-        this(getDensitiesFrom(parsedClasses), getNumLinesFrom(parsedClasses), getNumCommitsFrom(parsedClasses), a, b);
-    }
-
-    public DrawnScatterPlot(double[] densities, double[] numLinesCode, double[] numCommits, CompareClassesBy a, CompareClassesBy b) {
+    /***
+     * @param xValues : Value of metric 'a' of each class.
+     * @param yValues : Value of metric 'b' of each class, in the same order.
+     * @param a : Metric of the x axis.
+     * @param b : Metric of the y axis.
+     */
+    public DrawnScatterPlot(double[] xValues, double[] yValues, Metric a, Metric b) {
         super("DrawnScatterPlot");
 
         // Create dataset
-        XYDataset dataset = createDataset(densities, numLinesCode, numCommits, a, b);
+        XYDataset dataset = createDataset(xValues, yValues);
 
         // Create chart
-        String xAxisTitle = a.equals(CompareClassesBy.DENSITY_OF_COMMENTS) ? "Comment Density" : a.equals(CompareClassesBy.NUMBER_OF_COMMITS) ? "Number of Commits" : "Number of Lines of Code";
-        String yAxisTitle = b.equals(CompareClassesBy.DENSITY_OF_COMMENTS) ? "Comment Density" : b.equals(CompareClassesBy.NUMBER_OF_COMMITS) ? "Number of Commits" : "Number of Lines of Code";
+        String xAxisTitle = a.getName();
+        String yAxisTitle = b.getName();
         String title = xAxisTitle + " per class in relation to " + yAxisTitle ;
         JFreeChart chart = ChartFactory.createScatterPlot(title, xAxisTitle, yAxisTitle, dataset);
 
@@ -66,29 +51,11 @@ public class DrawnScatterPlot extends JFrame {
         this.setVisible(true);
     }
 
-    private XYDataset createDataset(double[] densities, double[] numLinesCode, double[] numCommits, CompareClassesBy a, CompareClassesBy b) {
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        XYSeries series = new XYSeries("Classes");
-
-        for(int i = 0; i < densities.length; i++) {
-            double xValue = a.equals(CompareClassesBy.DENSITY_OF_COMMENTS) ? densities[i] : a.equals(CompareClassesBy.NUMBER_OF_COMMITS) ? numCommits[i] : numLinesCode[i];
-            double yValue = b.equals(CompareClassesBy.DENSITY_OF_COMMENTS) ? densities[i] : b.equals(CompareClassesBy.NUMBER_OF_COMMITS) ? numCommits[i] : numLinesCode[i];
-            series.add(xValue, yValue);
-        }
-
-        dataset.addSeries(series);
-        return dataset;
-    }
-
-    private XYDataset createDataset(ParsedClass[] parsedClasses, CompareClassesBy a, CompareClassesBy b) {
+    private XYDataset createDataset(double[] xValues, double[] yValues) {
         XYSeriesCollection dataset = new XYSeriesCollection();
         XYSeries series = new XYSeries("Classes");
 
-        for(ParsedClass c : parsedClasses) {
-            double xValue = a.equals(CompareClassesBy.DENSITY_OF_COMMENTS) ? c.getCommentDensity() : a.equals(CompareClassesBy.NUMBER_OF_COMMITS) ? c.getNumCommits() : c.getNumLinesCode();
-            double yValue = b.equals(CompareClassesBy.DENSITY_OF_COMMENTS) ? c.getCommentDensity() : b.equals(CompareClassesBy.NUMBER_OF_COMMITS) ? c.getNumCommits() : c.getNumLinesCode();
-            series.add(xValue, yValue);
-        }
+        for(int i = 0; i < xValues.length; i++) series.add(xValues[i], yValues[i]);
 
         dataset.addSeries(series);
         return dataset;
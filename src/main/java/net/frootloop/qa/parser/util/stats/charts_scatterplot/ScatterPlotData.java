@@ -1,43 +1,61 @@
 package net.frootloop.qa.parser.util.stats.charts_scatterplot;
 
 import net.frootloop.qa.parser.result.ParsedClass;
-import net.frootloop.qa.parser.util.stats.comparators.ParsedClassComparator.CompareClassesBy;
+import net.frootloop.qa.parser.util.stats.Metric;
+import net.frootloop.qa.parser.util.stats.MetricTable;
+import net.frootloop.qa.parser.util.stats.OnlineCovariance;
+import net.frootloop.qa.parser.util.stats.RankCorrelation;
+
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.IntStream;
 
 public class ScatterPlotData {
 
-    public double[] commentDensities;
-    public int[] numLinesCode;
-    public int[] numCommits;
+    /***
+     * Metrics of the table, in the order of the dimensions of the covariance accumulator.
+     */
+    private final Metric[] metrics;
+    private final double[][] columns;
+    private final OnlineCovariance covariance;
 
-    private final int NUM_CLASSES;
     public final double COMMENT_DENSITY_AVERAGE, NUM_LINES_CODE_AVERAGE, NUM_COMMITS_AVERAGE;
     public final double COMMENT_DENSITY_STANDARD_DEVIATION, NUM_LINES_CODE_STANDARD_DEVIATION, NUM_COMMITS_STANDARD_DEVIATION;
 
     public ScatterPlotData(ParsedClass[] parsedClasses) {
+        this(new MetricTable(parsedClasses));
+    }
 
-        // Initialize arrays:
-        NUM_CLASSES = parsedClasses.length;
-        commentDensities = new double[NUM_CLASSES];
-        numLinesCode = new int[NUM_CLASSES];
-        numCommits = new int[NUM_CLASSES];
-
-        // Get a list for each value, in order of each class. In other words, each index i represents a (X,Y,Z) class datapoint:
-        for(int i = 0; i < NUM_CLASSES; i++) {
-            ParsedClass c = parsedClasses[i];
-            commentDensities[i] = c.getCommentDensity();
-            numLinesCode[i] = c.getNumLinesCode();
-            numCommits[i] = c.getNumCommits();
-        }
+    /***
+     * Finds the means, standard deviations and correlations of the metrics of the table in a single pass over its
+     * classes, split between threads whose accumulators are merged once they're done. The CBO of the classes is the
+     * one set by the last call to ParsedRepository.buildReferences().
+     *
+     * @param table : Metrics of the classes, which should include NLOC, CD and NCH.
+     */
+    public ScatterPlotData(MetricTable table) {
+        this.metrics = table.getMetrics();
+        this.columns = new double[this.metrics.length][];
+        for(int m = 0; m < this.metrics.length; m++) this.columns[m] = table.getValuesOf(this.metrics[m]);
+        double[][] columns = this.columns;
+
+        this.covariance = IntStream.range(0, table.getNumClasses()).parallel().collect(
+                () -> new OnlineCovariance(this.metrics.length),
+                (accumulator, i) -> {
+                    double[] values = new double[columns.length];
+                    for(int m = 0; m < columns.length; m++) values[m] = columns[m][i];
+                    accumulator.add(values);
+                },
+                OnlineCovariance::merge);
 
         // Get the means of each list of values:
-        COMMENT_DENSITY_AVERAGE = getAverageOfDoublesList(commentDensities);
-        NUM_LINES_CODE_AVERAGE = getAverageOfIntegerList(numLinesCode);
-        NUM_COMMITS_AVERAGE = getAverageOfIntegerList(numCommits);
+        COMMENT_DENSITY_AVERAGE = covariance.getMean(this.getIndexOf(Metric.CD));
+        NUM_LINES_CODE_AVERAGE = covariance.getMean(this.getIndexOf(Metric.NLOC));
+        NUM_COMMITS_AVERAGE = covariance.getMean(this.getIndexOf(Metric.NCH));
 
         // Get the standard deviations of the list of values:
-        COMMENT_DENSITY_STANDARD_DEVIATION = getStandardDeviationOfDoublesList(commentDensities, COMMENT_DENSITY_AVERAGE);
-        NUM_LINES_CODE_STANDARD_DEVIATION = getStandardDeviationOfIntegerList(numLinesCode, NUM_LINES_CODE_AVERAGE);
-        NUM_COMMITS_STANDARD_DEVIATION = getStandardDeviationOfIntegerList(numCommits, NUM_COMMITS_AVERAGE);
+        COMMENT_DENSITY_STANDARD_DEVIATION = covariance.getStandardDeviation(this.getIndexOf(Metric.CD));
+        NUM_LINES_CODE_STANDARD_DEVIATION = covariance.getStandardDeviation(this.getIndexOf(Metric.NLOC));
+        NUM_COMMITS_STANDARD_DEVIATION = covariance.getStandardDeviation(this.getIndexOf(Metric.NCH));
     }
 
     public void print() {
@@ -55,65 +73,106 @@ public class ScatterPlotData {
                 "Std Deviation of CD: " + String.format("%.2f", COMMENT_DENSITY_STANDARD_DEVIATION) + "\n");
 
         System.out.println("[ CORRELATIONS ]");
-        System.out.println("Correlation between NLOC and CD: " + String.format("%.3f", this.getCorrelationBetween(CompareClassesBy.NUMBER_LINES_OF_CODES, CompareClassesBy.DENSITY_OF_COMMENTS)));
-        System.out.println("Correlation between NLOC and NoComm: " + String.format("%.3f", this.getCorrelationBetween(CompareClassesBy.NUMBER_LINES_OF_CODES, CompareClassesBy.NUMBER_OF_COMMITS)));
-        System.out.println("Correlation between NoComm and CD: " + String.format("%.3f", this.getCorrelationBetween(CompareClassesBy.NUMBER_OF_COMMITS, CompareClassesBy.DENSITY_OF_COMMENTS)));;
+        System.out.println("Correlation between NLOC and CD: " + this.getCorrelationsBetween(Metric.NLOC, Metric.CD));
+        System.out.println("Correlation between NLOC and NoComm: " + this.getCorrelationsBetween(Metric.NLOC, Metric.NCH));
+        System.out.println("Correlation between NoComm and CD: " + this.getCorrelationsBetween(Metric.NCH, Metric.CD));
+
+        // Print the whole matrices, one row per metric:
+        this.printMatrix("Correlation matrix (Pearson):", this.getCorrelationMatrix());
+        this.printMatrix("Rank correlation matrix (Spearman):", this.getSpearmanCorrelationMatrix());
+        this.printMatrix("Rank correlation matrix (Kendall tau-b):", this.getKendallCorrelationMatrix());
+    }
 
+    private String getCorrelationsBetween(Metric a, Metric b) {
+        return String.format("%.3f", this.getCorrelationBetween(a, b)) +
+                " (Spearman: " + String.format("%.3f", this.getSpearmanCorrelationBetween(a, b)) +
+                ", Kendall: " + String.format("%.3f", this.getKendallCorrelationBetween(a, b)) + ")";
     }
 
-    private double getValueOfClassAt(int index, CompareClassesBy sortBy) {
-        if(sortBy.equals(CompareClassesBy.NUMBER_LINES_OF_CODES)) return numLinesCode[index];
-        else if(sortBy.equals(CompareClassesBy.NUMBER_OF_COMMITS)) return numCommits[index];
-        return commentDensities[index];
+    private void printMatrix(String title, double[][] matrix) {
+        System.out.println("\n" + title);
+        StringBuilder header = new StringBuilder("      ");
+        for(Metric metric : this.metrics) header.append(String.format("%8s", metric.getShorthand()));
+        System.out.println(header);
+        for(int i = 0; i < this.metrics.length; i++) {
+            StringBuilder row = new StringBuilder(String.format("%-6s", this.metrics[i].getShorthand()));
+            for(int j = 0; j < this.metrics.length; j++) row.append(String.format("%8.3f", matrix[i][j]));
+            System.out.println(row);
+        }
     }
 
-    private double getAverageOf(CompareClassesBy sortBy) {
-        if(sortBy.equals(CompareClassesBy.NUMBER_LINES_OF_CODES)) return NUM_LINES_CODE_AVERAGE;
-        else if(sortBy.equals(CompareClassesBy.NUMBER_OF_COMMITS)) return NUM_COMMITS_AVERAGE;
-        return COMMENT_DENSITY_AVERAGE;
+    /***
+     * @return Metrics of the rows and columns of the matrices.
+     */
+    public Metric[] getMetrics() {
+        return this.metrics.clone();
     }
 
-    private double getCorrelationBetween(CompareClassesBy a, CompareClassesBy b) {
-        if(a.equals(b)) return 1.0d;
+    /***
+     * @return Pearson correlation between each pair of metrics, in the order of getMetrics().
+     */
+    public double[][] getCorrelationMatrix() {
+        return this.covariance.getCorrelationMatrix();
+    }
 
-        double covarianceSum = 0.0d;
-        for(int i = 0; i < NUM_CLASSES; i++)
-            covarianceSum += (this.getValueOfClassAt(i, a) - this.getAverageOf(a)) * (this.getValueOfClassAt(i, b) - this.getAverageOf(b));
+    /***
+     * @return Population covariance between each pair of metrics, in the order of getMetrics().
+     */
+    public double[][] getCovarianceMatrix() {
+        return this.covariance.getCovarianceMatrix();
+    }
 
-        double deviationsA = 0.0d;
-        for(int i = 0; i < NUM_CLASSES; i++)
-            deviationsA += Math.pow(this.getValueOfClassAt(i, a) - this.getAverageOf(a), 2);
+    public double getCorrelationBetween(Metric a, Metric b) {
+        return this.covariance.getCorrelation(this.getIndexOf(a), this.getIndexOf(b));
+    }
 
-        double deviationsB = 0.0d;
-        for(int i = 0; i < NUM_CLASSES; i++)
-            deviationsB += Math.pow(this.getValueOfClassAt(i, b) - this.getAverageOf(b), 2);
+    /***
+     * @return Spearman's rank correlation between the two metrics; see RankCorrelation.Spearman().
+     */
+    public double getSpearmanCorrelationBetween(Metric a, Metric b) {
+        if(a == b) return 1.0d;
+        return RankCorrelation.Spearman(this.columns[this.getIndexOf(a)], this.columns[this.getIndexOf(b)]);
+    }
 
-        return covarianceSum / (Math.sqrt(deviationsA) * Math.sqrt(deviationsB));
+    /***
+     * @return Kendall's tau-b between the two metrics; see RankCorrelation.KendallTauB().
+     */
+    public double getKendallCorrelationBetween(Metric a, Metric b) {
+        if(a == b) return 1.0d;
+        return RankCorrelation.KendallTauB(this.columns[this.getIndexOf(a)], this.columns[this.getIndexOf(b)]);
     }
 
-    private static double getAverageOfIntegerList(int[] integers) {
-        double average = 0.0d;
-        for(int i : integers) average += i;
-        return average / integers.length;
+    /***
+     * @return Spearman's rank correlation between each pair of metrics, in the order of getMetrics().
+     */
+    public double[][] getSpearmanCorrelationMatrix() {
+        return this.getMatrixOf(RankCorrelation::Spearman);
     }
 
-    private static double getAverageOfDoublesList(double[] doubles) {
-        double average = 0.0d;
-        for(double d : doubles) average += d;
-        return average / doubles.length;
+    /***
+     * @return Kendall's tau-b between each pair of metrics, in the order of getMetrics().
+     */
+    public double[][] getKendallCorrelationMatrix() {
+        return this.getMatrixOf(RankCorrelation::KendallTauB);
     }
 
-    private static double getStandardDeviationOfIntegerList(int[] integers, double average) {
-        double variance = 0;
-        for(int i : integers) variance += Math.pow((double)i - average, 2);
-        variance = variance/integers.length;
-        return Math.sqrt(variance);
+    /***
+     * Computes a symmetric matrix with 1 on its diagonal, with each pair of metrics on its own thread.
+     */
+    private double[][] getMatrixOf(ToDoubleBiFunction<double[], double[]> correlation) {
+        int numMetrics = this.metrics.length;
+        double[][] matrix = new double[numMetrics][numMetrics];
+        IntStream.range(0, numMetrics * numMetrics).parallel().forEach(pair -> {
+            int i = pair / numMetrics, j = pair % numMetrics;
+            if(i < j) matrix[i][j] = matrix[j][i] = correlation.applyAsDouble(this.columns[i], this.columns[j]);
+            else if(i == j) matrix[i][j] = 1.0d;
+        });
+        return matrix;
     }
 
-    private static double getStandardDeviationOfDoublesList(double[] doubles, double average) {
-        double variance = 0.0d;
-        for(double d : doubles) variance += Math.pow(d - average, 2);
-        variance = variance/doubles.length;
-        return Math.sqrt(variance);
+    private int getIndexOf(Metric metric) {
+        for(int m = 0; m < this.metrics.length; m++)
+            if(this.metrics[m] == metric) return m;
+        throw new IllegalArgumentException("Metric '" + metric + "' isn't part of this scatter plot.");
     }
 }
@@ -0,0 +1,152 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * Linear-time replacement for CodeParser.rxClassVariable, i.e.
+ * (^|\s+|\(|,)([A-Z]\w*)\s*(<(([A-Z]\w*)(,([A-Z]\w*))*)>)?\s+(\w*)\s*(,\s*(\w+))?(,\s*(\w+))?(,\s*(\w+))*\s*(,|=|...|\))
+ *
+ * Like rxDeclaredVariable, only one path through the pattern can succeed from a given index, except at the very end:
+ * when nothing that ends a declaration follows the list of names, the regex gives back the last of them and ends the
+ * match on the comma before it. The generic arguments and the list of names are scanned once, and remembered by where
+ * they start, since every index of the type before them leads to them.
+ */
+public class ClassVariableMatcher extends LinearMatcher {
+
+    private static final String[] TERMINATORS = {",", "=", "*=", "-=", "+=", "|!=", "^=", ";", "{", ")"};
+
+    private int[] typeEnds, genericEnds, namesMatchEnds;
+    private String type, firstGenericType, lastGenericType;
+
+    public ClassVariableMatcher(CharSequence code) {
+        super(code);
+    }
+
+    /***
+     * @return Type of the variable, such as "List" in "List<String> names;" (group 2).
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /***
+     * @return First generic argument of the type, or null if it has none (group 5).
+     */
+    public String getFirstGenericType() {
+        return this.firstGenericType;
+    }
+
+    /***
+     * @return Last generic argument of the type, or null if it has less than two (group 7).
+     */
+    public String getLastGenericType() {
+        return this.lastGenericType;
+    }
+
+    @Override
+    protected int matchAt(int s) {
+        // Alternatives of (^|\s+|\(|,), in order:
+        int matchEnd = -1;
+        if(s == 0) matchEnd = this.matchDeclarationAt(0);
+        if(matchEnd < 0 && this.isWhitespaceAt(s)) matchEnd = this.matchDeclarationAt(this.whitespaceEnd(s));
+        if(matchEnd < 0 && (this.isCharAt(s, '(') || this.isCharAt(s, ','))) matchEnd = this.matchDeclarationAt(s + 1);
+        return matchEnd;
+    }
+
+    /***
+     * Matches everything that follows the prefix, setting the groups if it does.
+     */
+    private int matchDeclarationAt(int t) {
+        int namesStart = this.matchTypeAt(t);
+        if(namesStart < 0) return -1;
+        int matchEnd = this.matchNamesAt(namesStart);
+        if(matchEnd < 0) return -1;
+
+        int wordEnd = this.wordEnd(t);
+        this.type = this.substring(t, wordEnd);
+        this.firstGenericType = this.lastGenericType = null;
+
+        int genericStart = this.whitespaceEnd(wordEnd);
+        if(this.isCharAt(genericStart, '<')) {
+            int genericEnd = this.matchGenericAt(genericStart);
+            this.firstGenericType = this.substring(genericStart + 1, this.wordEnd(genericStart + 1));
+            int lastComma = this.lastIndexOf(',', genericEnd);
+            if(lastComma > genericStart) this.lastGenericType = this.substring(lastComma + 1, genericEnd - 1);
+        }
+        return matchEnd;
+    }
+
+    /***
+     * ([A-Z]\w*)\s*(<...>)?\s+ at 't'.
+     *
+     * @return Index right after the whitespace that follows the type, or -1 if there's no type at 't'.
+     */
+    private int matchTypeAt(int t) {
+        if(!this.isUpperCaseAt(t)) return -1;
+        if(this.typeEnds == null) this.typeEnds = LinearMatcher.newMemo(this.length);
+        if(this.typeEnds[t] != -2) return this.typeEnds[t];
+
+        int wordEnd = this.wordEnd(t);
+        int afterSpaces = this.whitespaceEnd(wordEnd);
+        int typeEnd = -1;
+        if(this.isCharAt(afterSpaces, '<')) {
+            int genericEnd = this.matchGenericAt(afterSpaces);
+            if(genericEnd >= 0 && this.isWhitespaceAt(genericEnd)) typeEnd = this.whitespaceEnd(genericEnd);
+        }
+        else if(afterSpaces > wordEnd) typeEnd = afterSpaces;
+        return this.typeEnds[t] = typeEnd;
+    }
+
+    /***
+     * <[A-Z]\w*(,[A-Z]\w*)*> at 'i', which is a '<'.
+     *
+     * @return End of the generic arguments, or -1 if they don't match.
+     */
+    private int matchGenericAt(int i) {
+        if(this.genericEnds == null) this.genericEnds = LinearMatcher.newMemo(this.length);
+        if(this.genericEnds[i] != -2) return this.genericEnds[i];
+
+        int genericEnd = -1;
+        int p = i + 1;
+        while(this.isUpperCaseAt(p)) {
+            p = this.wordEnd(p);
+            if(this.isCharAt(p, '>')) {
+                genericEnd = p + 1;
+                break;
+            }
+            if(!this.isCharAt(p, ',')) break;
+            p++;
+        }
+        return this.genericEnds[i] = genericEnd;
+    }
+
+    /***
+     * (\w*)\s*(,\s*(\w+))*\s*(,|=|...|\)) at 'i'.
+     *
+     * @return End of the match, or -1 if the names aren't followed by anything that ends a declaration.
+     */
+    private int matchNamesAt(int i) {
+        if(this.namesMatchEnds == null) this.namesMatchEnds = LinearMatcher.newMemo(this.length + 1);
+        if(this.namesMatchEnds[i] != -2) return this.namesMatchEnds[i];
+
+        int p = this.whitespaceEnd(this.wordEnd(i));
+        int lastComma = -1;
+        while(this.isCharAt(p, ',')) {
+            int next = this.whitespaceEnd(p + 1);
+            if(!this.isWordCharAt(next)) break;
+            lastComma = p;
+            p = this.wordEnd(next);
+        }
+
+        int terminatorStart = this.whitespaceEnd(p);
+        int matchEnd = -1;
+        for(String terminator : TERMINATORS) {
+            if(this.startsWith(terminator, terminatorStart)) {
+                matchEnd = terminatorStart + terminator.length();
+                break;
+            }
+        }
+
+        // Otherwise, the last name is given back, and its comma ends the match instead:
+        if(matchEnd < 0 && lastComma >= 0) matchEnd = lastComma + 1;
+        return this.namesMatchEnds[i] = matchEnd;
+    }
+}
@@ -1,5 +1,6 @@
 package net.frootloop.qa.parser.util.strings;
 
+import net.frootloop.qa.parser.result.internal.CodeStatement;
 import net.frootloop.qa.parser.result.internal.Visibility;
 
 import java.util.ArrayList;
@@ -13,6 +14,9 @@ public interface CodeParser {
     Pattern rxImportStatements = Pattern.compile("(^|;)?\\n*\\s*(import\\s+((\\w+\\.)*([A-Z]\\w+)))");
     Pattern rxPackageStatement = Pattern.compile("(^|;)\\s*\\n*\\s*(package\\s+(((\\w+\\.)*[a-z]\\w+)(.([A-Z]\\w+))?))(\\s*;)");
     Pattern rxImbeddedPackage = Pattern.compile("(\\w+\\.)*([A-Z]\\w+)");
+    // rxNewClassObject, rxClassVariable, rxDeclaredMethod and rxDeclaredVariable backtrack badly on long statements.
+    // They're matched in linear time by the LinearMatcher subclasses instead, and kept here as their reference definitions,
+    // which LinearMatcherTest checks them against.
     Pattern rxNewClassObject = Pattern.compile(".*new ([A-Z]\\w*)\\(.*\\).*");
     Pattern rxClassVariable = Pattern.compile("(^|\\s+|\\(|,)([A-Z]\\w*)\\s*(<(([A-Z]\\w*)(,([A-Z]\\w*))*)>)?\\s+(\\w*)\\s*(,\\s*(\\w+))?(,\\s*(\\w+))?(,\\s*(\\w+))*\\s*(,|=|\\*=|\\-=|\\+=|\\|!=|\\^=|;|\\{|\\))");
     Pattern rxInheritedClasses = Pattern.compile("(extends|implements)\\s(\\w+((\\s)*,\\s\\w+)*)*");
@@ -22,13 +26,20 @@ public interface CodeParser {
     Pattern rxReferencedMethod = Pattern.compile("[\\. \\(\\{]([a-z_][A-z_]*)\\(");
     Pattern rxReferencedAttributeWithThis = Pattern.compile("this\\.([a-z]\\w+)");
     Pattern rxLowerCaseWords = Pattern.compile("(?=[^\\w]([a-z]\\w+)[^\\(\\{\\w])");
+    Pattern rxBranchingStatement = Pattern.compile("(if|else if|while|for).*");
+    Pattern rxTernaryStatement = Pattern.compile("\\w+ +\\w+ +=.+\\?.+:.+");
+    Pattern rxSwitchStatement = Pattern.compile("switch.*");
+    Pattern rxSwitchCase = Pattern.compile("(default|case\\s*\\w+\\s*):.*");
+    Pattern rxStaticMethod = Pattern.compile("([^(]+\\s+)*static(\\s+[^(]+)*\\(.*\\)\\s*");
+    Pattern rxAbstractMethod = Pattern.compile("([^(]+\\s+)*abstract(\\s+[^(]+)*\\(.*\\)\\s*");
+    Pattern rxTestMethod = Pattern.compile("^(@[A-Z]\\w+\\s)*@Test[\\s\\n]*.*");
 
     /**
      * Assumes that the input text has already been cleaned up.
      * @param cleanSourceFileTextData
      * @return List of assert statements, i.e. assert(predicate);
      */
-    static String[] getAssertStatementsOf(String cleanSourceFileTextData) {
+    static String[] getAssertStatementsOf(CharSequence cleanSourceFileTextData) {
         ArrayList<String> assertStatements = new ArrayList<>();
         Matcher regexAssertDetector = rxAssertStatements.matcher(cleanSourceFileTextData);
         while (regexAssertDetector.find()) assertStatements.add(regexAssertDetector.group(3));
@@ -65,7 +76,7 @@ public interface CodeParser {
 
     /***
      * Takes in a package name and returns the name of the class it inherits from, if any!
-     * For instance, BlockOfCode's package is "net.frootloop.qa.parser.result.internal.CodeTree", so we return "CodeTree".
+     * For instance, a class nested in CodeTree has package "net.frootloop.qa.parser.result.internal.CodeTree", so we return "CodeTree".
      * @param packageName
      * @return Class name of direct inheritance. Returns 'null' if the packageName is not a class.
      */
@@ -87,6 +98,24 @@ public interface CodeParser {
         return null;
     }
 
+    /***
+     * Classifies a statement, so that the CodeTree doesn't have to run the same regexes on it every time.
+     *
+     * @param codeStatement
+     * @return Bitmask of the statement's kinds, i.e. of CodeStatement.CLASS_DECLARATION, CodeStatement.BRANCH, etc.
+     */
+    static int getStatementKindsOf(String codeStatement) {
+        int kinds = 0;
+        if(CodeParser.isClassDeclaration(codeStatement)) kinds |= CodeStatement.CLASS_DECLARATION;
+        if(CodeParser.isMethodDeclaration(codeStatement)) kinds |= CodeStatement.METHOD_DECLARATION;
+        if(CodeParser.isVariableDeclaration(codeStatement)) kinds |= CodeStatement.VARIABLE_DECLARATION;
+        if(CodeParser.isBranchingStatement(codeStatement)) kinds |= CodeStatement.BRANCH;
+        if(CodeParser.isTernaryStatement(codeStatement)) kinds |= CodeStatement.TERNARY;
+        if(rxSwitchStatement.matcher(codeStatement).matches()) kinds |= CodeStatement.SWITCH;
+        if(rxSwitchCase.matcher(codeStatement).matches()) kinds |= CodeStatement.SWITCH_CASE;
+        return kinds;
+    }
+
     static boolean isClassDeclaration(String codeStatement) {
         return rxDeclaredClass.matcher(codeStatement).find();
     }
@@ -118,19 +147,19 @@ public interface CodeParser {
         return Visibility.PUBLIC;
     }
 
-    static List<String> getInitializedClassNames(String code) {
+    static List<String> getInitializedClassNames(CharSequence code) {
         List<String> referenced = new ArrayList<>();
 
         // Get names of classes that were referenced by a 'new' heap allocation:
-        Matcher regexNewKeywordDetector = rxNewClassObject.matcher(code);
-        while(regexNewKeywordDetector.find()) referenced.add(regexNewKeywordDetector.group(1));
+        NewObjectMatcher newKeywordDetector = new NewObjectMatcher(code);
+        while(newKeywordDetector.find()) referenced.add(newKeywordDetector.getClassName());
 
         // Get names of classes that were references as variable types, or in a type <T> collection:
-        Matcher regexClassVariableDetector = rxClassVariable.matcher(code);
-        while(regexClassVariableDetector.find()) {
-            referenced.add(regexClassVariableDetector.group(2));
-            referenced.add(regexClassVariableDetector.group(5));
-            referenced.add(regexClassVariableDetector.group(7));
+        ClassVariableMatcher classVariableDetector = new ClassVariableMatcher(code);
+        while(classVariableDetector.find()) {
+            referenced.add(classVariableDetector.getType());
+            referenced.add(classVariableDetector.getFirstGenericType());
+            referenced.add(classVariableDetector.getLastGenericType());
         }
 
         // Filter out duplicates and empty matches, then return:
@@ -138,60 +167,60 @@ public interface CodeParser {
     }
 
     static boolean isVariableDeclaration(String codeStatement) {
-         return rxDeclaredVariable.matcher(codeStatement).find();
+         return new DeclaredVariableMatcher(codeStatement).find();
     }
 
-    static String[] getDeclaredVariableNames(String codeStatement) {
-        Matcher regexAttributeNameDetector = rxDeclaredVariable.matcher(codeStatement);
-        while(regexAttributeNameDetector.find())
-            if(regexAttributeNameDetector.group(7) != null)
-                return regexAttributeNameDetector.group(7).split(", *");
+    static String[] getDeclaredVariableNames(CharSequence codeStatement) {
+        DeclaredVariableMatcher attributeNameDetector = new DeclaredVariableMatcher(codeStatement);
+        while(attributeNameDetector.find())
+            if(attributeNameDetector.getNames() != null)
+                return attributeNameDetector.getNames().split(", *");
         return null;
     }
 
     static String getDeclaredVariableType(String codeStatement) {
-        Matcher regexAttributeNameDetector = rxDeclaredVariable.matcher(codeStatement);
-        while(regexAttributeNameDetector.find()) return regexAttributeNameDetector.group(4);
+        DeclaredVariableMatcher attributeTypeDetector = new DeclaredVariableMatcher(codeStatement);
+        while(attributeTypeDetector.find()) return attributeTypeDetector.getType();
         return null;
     }
 
     static boolean isMethodDeclaration(String codeStatement) {
-        return rxDeclaredMethod.matcher(codeStatement).find();
+        return new DeclaredMethodMatcher(codeStatement).find();
     }
 
     static boolean isMethodDeclarationStatic(String codeStatement) {
-        return codeStatement.matches("([^(]+\\s+)*static(\\s+[^(]+)*\\(.*\\)\\s*");
+        return rxStaticMethod.matcher(codeStatement).matches();
     }
 
     static boolean isMethodDeclarationAbstract(String codeStatement) {
-        return codeStatement.matches("([^(]+\\s+)*abstract(\\s+[^(]+)*\\(.*\\)\\s*");
+        return rxAbstractMethod.matcher(codeStatement).matches();
     }
 
     static boolean isMethodDeclarationTest(String codeStatement) {
-        return codeStatement.matches("^(@[A-Z]\\w+\\s)*@Test[\\s\\n]*.*");
+        return rxTestMethod.matcher(codeStatement).matches();
     }
 
     static String getDeclaredMethodName(String codeStatement) {
-        Matcher regexMethodNameDetector = rxDeclaredMethod.matcher(codeStatement);
-        while(regexMethodNameDetector.find()) return regexMethodNameDetector.group(5);
+        DeclaredMethodMatcher methodNameDetector = new DeclaredMethodMatcher(codeStatement);
+        while(methodNameDetector.find()) return methodNameDetector.getName();
         return null;
     }
 
     static String getDeclaredMethodReturnType(String codeStatement) {
-        Matcher regexMethodNameDetector = rxDeclaredMethod.matcher(codeStatement);
-        while(regexMethodNameDetector.find()) return regexMethodNameDetector.group(4);
+        DeclaredMethodMatcher methodReturnTypeDetector = new DeclaredMethodMatcher(codeStatement);
+        while(methodReturnTypeDetector.find()) return methodReturnTypeDetector.getReturnType();
         return "void";
     }
 
     static ArrayList<String> getDeclaredMethodArguments(String codeStatement) {
-        Matcher regexMethodNameDetector = rxDeclaredMethod.matcher(codeStatement);
-        while(regexMethodNameDetector.find()) {
+        DeclaredMethodMatcher methodArgumentsDetector = new DeclaredMethodMatcher(codeStatement);
+        while(methodArgumentsDetector.find()) {
 
             // If the method declaration has arguments, we add their names individually to the list:
-            if (regexMethodNameDetector.group(6) != null && !regexMethodNameDetector.group(6).matches("\\s*")) {
+            if (methodArgumentsDetector.getArguments() != null && !methodArgumentsDetector.getArguments().matches("\\s*")) {
 
                 // Split the arguments by commas:
-                String[] arguments = regexMethodNameDetector.group(6).replaceAll("\\s*,\\s*", ",").split(",");
+                String[] arguments = methodArgumentsDetector.getArguments().replaceAll("\\s*,\\s*", ",").split(",");
                 ArrayList<String> argumentTypes = new ArrayList<>();
 
                 // For every argument, such as "String codeStatement", keep only the types, such as "String"
@@ -205,12 +234,12 @@ public interface CodeParser {
     }
 
     static Visibility getDeclaredMethodVisibility(String codeStatement) {
-        Matcher regexMethodNameDetector = rxDeclaredMethod.matcher(codeStatement);
-        while(regexMethodNameDetector.find()) {
-            if(regexMethodNameDetector.group(2) == null)
+        DeclaredMethodMatcher methodVisibilityDetector = new DeclaredMethodMatcher(codeStatement);
+        while(methodVisibilityDetector.find()) {
+            if(methodVisibilityDetector.getModifiers() == null)
                 return Visibility.PUBLIC;
 
-            switch(regexMethodNameDetector.group(2)) {
+            switch(methodVisibilityDetector.getModifiers()) {
                 case "private":
                     return Visibility.PRIVATE;
                 case "protected":
@@ -220,7 +249,7 @@ public interface CodeParser {
         return Visibility.PUBLIC;
     }
 
-    static ArrayList<String> getReferencedMethodNames(String unitTest) {
+    static ArrayList<String> getReferencedMethodNames(CharSequence unitTest) {
         ArrayList<String> methodNames = new ArrayList<>();
         Matcher regexReferencedMethodDetector = rxReferencedMethod.matcher(unitTest);
         while(regexReferencedMethodDetector.find())
@@ -230,7 +259,7 @@ public interface CodeParser {
         return methodNames;
     }
 
-    static List<String> getLowerCaseWordsOf(String code) {
+    static List<String> getLowerCaseWordsOf(CharSequence code) {
         ArrayList<String> words = new ArrayList<>();
         Matcher regexLowerCaseWordsDetector = rxLowerCaseWords.matcher(code);
         while(regexLowerCaseWordsDetector.find()) {
@@ -242,7 +271,7 @@ public interface CodeParser {
         return words.stream().distinct().filter(item-> item != null && !item.isEmpty()).collect(Collectors.toList());
     }
 
-    static ArrayList<String> getObviousReferencedAttributes(String code) {
+    static ArrayList<String> getObviousReferencedAttributes(CharSequence code) {
         ArrayList<String> referencedAttributes = new ArrayList<>();
         Matcher regexThisKeyordDetector = rxReferencedAttributeWithThis.matcher(code);
         while(regexThisKeyordDetector.find()) referencedAttributes.add(regexThisKeyordDetector.group(1));
@@ -254,7 +283,7 @@ public interface CodeParser {
      * @return Whether it's a conditional branching statement ( for, if, else, while, etc. )
      */
     static boolean isBranchingStatement(String codeStatement) {
-        return codeStatement.matches("(if|else if|while|for).*");
+        return rxBranchingStatement.matcher(codeStatement).matches();
     }
 
     /***
@@ -262,7 +291,7 @@ public interface CodeParser {
      * @return Whether it's a ternary operator ( condition ? if-true : if-false; )
      */
     static boolean isTernaryStatement(String codeStatement) {
-        return codeStatement.matches("\\w+ +\\w+ +=.+\\?.+:.+");
+        return rxTernaryStatement.matcher(codeStatement).matches();
     }
 
     /**
@@ -0,0 +1,43 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * View of the chars [start, end) of a larger text, such as the code of one block within the code of its whole
+ * source file. Reading it copies nothing; only toString() does, and only once.
+ */
+public class CodeSpan implements CharSequence {
+
+    private final String text;
+    private final int start, end;
+    private String copy;
+
+    public CodeSpan(String text, int start, int end) {
+        if(start < 0 || end > text.length() || start > end)
+            throw new IndexOutOfBoundsException("Span [" + start + ", " + end + ") out of text of length " + text.length());
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return this.end - this.start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return this.text.charAt(this.start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > this.length() || start > end)
+            throw new IndexOutOfBoundsException("Span [" + start + ", " + end + ") out of span of length " + this.length());
+        return new CodeSpan(this.text, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        if(this.copy == null) this.copy = this.text.substring(this.start, this.end);
+        return this.copy;
+    }
+}
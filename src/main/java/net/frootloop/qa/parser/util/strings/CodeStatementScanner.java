@@ -0,0 +1,216 @@
+package net.frootloop.qa.parser.util.strings;
+
+import net.frootloop.qa.parser.result.internal.CodeStatement;
+
+import java.util.ArrayList;
+
+/***
+ * Splits a cleaned up source file into its code statements, i.e. the text between two ';', '{' or '}' chars.
+ *
+ * The text is walked once. Each statement is recorded as a span [start, end) of the file's text along with its line
+ * counts and the char that ends it, and its cleaned up code is only built as a String when CodeStatement.getCode() is
+ * called. Comments are still removed the same way as SourceCodeFixerUpper.getWithoutComments() does, but into
+ * a pair of scratch buffers reused from one statement to the next, rather than through a new String for each step.
+ *
+ * Assumes that the input text has already been cleaned up by SourceCodeFixerUpper.cleanUpSource(), meaning
+ * that all line breaks are '\n'.
+ */
+public class CodeStatementScanner {
+
+    private final String sourceText;
+    private final StringBuilder withoutSingleLineComments = new StringBuilder();
+    private final StringBuilder withoutComments = new StringBuilder();
+
+    private CodeStatementScanner(String cleanSourceFileText) {
+        this.sourceText = cleanSourceFileText;
+    }
+
+    /***
+     * @param cleanSourceFileText
+     * @return List of the code statements in the text, in order. Same result as the former split-based loop of SourceCodeFixerUpper.getCodeStatementsOf().
+     */
+    public static ArrayList<CodeStatement> getCodeStatementsOf(String cleanSourceFileText) {
+        return new CodeStatementScanner(cleanSourceFileText).scan();
+    }
+
+    /***
+     * Builds the cleaned up code of a statement, i.e. without its comments, line breaks and extra spaces.
+     *
+     * @param text : Text of the whole source file.
+     * @param start : Index of the first char of the statement.
+     * @param end : Index after the last char of the statement.
+     * @return Code of the statement as a single line.
+     */
+    public static String getCodeOf(CharSequence text, int start, int end) {
+        StringBuilder withoutSingleLineComments = new StringBuilder(end - start);
+        StringBuilder withoutComments = new StringBuilder(end - start);
+        CodeStatementScanner.removeSingleLineComments(text, start, end, withoutSingleLineComments);
+        CodeStatementScanner.removeDocstrings(withoutSingleLineComments, withoutComments);
+
+        // Line breaks become spaces, then runs of spaces are collapsed and trimmed, same as getWithoutLineBreaks():
+        StringBuilder code = new StringBuilder(withoutComments.length());
+        int indexOfLastChar = withoutComments.length() - 1;
+        while(indexOfLastChar >= 0 && (withoutComments.charAt(indexOfLastChar) == ' ' || withoutComments.charAt(indexOfLastChar) == '\n')) indexOfLastChar--;
+
+        boolean hasPendingSpace = false;
+        for(int i = 0; i <= indexOfLastChar; i++) {
+            char c = withoutComments.charAt(i);
+            if(c == ' ' || c == '\n') {
+                hasPendingSpace = code.length() > 0;
+                continue;
+            }
+
+            // A space before a line terminator ending the text is dropped, same as the ' +$' of getWithoutExtraSpaces(),
+            // which is called twice and so also catches the ones that only end the text once its trailing spaces are gone:
+            boolean isFinalLineTerminator = i == indexOfLastChar && LineTerminators.isLineTerminator(c);
+            if(hasPendingSpace && !isFinalLineTerminator) code.append(' ');
+            hasPendingSpace = false;
+            code.append(c);
+        }
+        return code.toString();
+    }
+
+    private ArrayList<CodeStatement> scan() {
+        ArrayList<CodeStatement> codeStatements = new ArrayList<>();
+        int length = this.sourceText.length();
+
+        // Like String.split(), trailing empty statements are dropped, unless there's no delimiter at all:
+        int endOfLastStatement = length;
+        while(endOfLastStatement > 0 && CodeStatementScanner.isEndOfStatement(this.sourceText.charAt(endOfLastStatement - 1))) endOfLastStatement--;
+        if(endOfLastStatement == 0 && length > 0) return codeStatements;
+
+        int start = 0;
+        for(int i = 0; i <= endOfLastStatement; i++) {
+            if(i < endOfLastStatement && !CodeStatementScanner.isEndOfStatement(this.sourceText.charAt(i))) continue;
+
+            char endOfStatementChar = i >= length ? ' ' : this.sourceText.charAt(i);
+            codeStatements.add(this.getCodeStatement(start, i, endOfStatementChar));
+            start = i + 1;
+        }
+        return codeStatements;
+    }
+
+    private CodeStatement getCodeStatement(int start, int end, char endOfStatementChar) {
+        boolean isLeadingStatement = endOfStatementChar == '{';
+        boolean isClosingStatement = endOfStatementChar == '}';
+
+        // Count the number of line break chars in this statement;
+        int numLines = CodeStatementScanner.countLineBreaks(this.sourceText, start, end);
+
+        // Remove comments from the statement, then get the number of lines removed and set as numLinesComments;
+        this.withoutSingleLineComments.setLength(0);
+        this.withoutComments.setLength(0);
+        CodeStatementScanner.removeSingleLineComments(this.sourceText, start, end, this.withoutSingleLineComments);
+        CodeStatementScanner.removeDocstrings(this.withoutSingleLineComments, this.withoutComments);
+        int numLinesComments = numLines - CodeStatementScanner.countLineBreaks(this.withoutComments, 0, this.withoutComments.length());
+
+        // Remove empty lines from the statement, then get the number of lines removed and set as numLinesEmpty;
+        int numLinesEmpty = numLines - numLinesComments - CodeStatementScanner.countLineBreaksWithoutEmptyLines(this.withoutComments);
+
+        // Get the number of lines of code in the statement;
+        int numLinesCode = 0;
+        if(endOfStatementChar != ' ') numLinesCode = numLines - numLinesEmpty - numLinesComments;
+        else numLinesEmpty += numLines - numLinesEmpty - numLinesComments;
+
+        return new CodeStatement(this.sourceText, start, end, isLeadingStatement, isClosingStatement, numLines, numLinesCode, numLinesComments, numLinesEmpty);
+    }
+
+    private static boolean isEndOfStatement(char c) {
+        return c == ';' || c == '{' || c == '}';
+    }
+
+    private static int countLineBreaks(CharSequence text, int start, int end) {
+        int numLineBreaks = 0;
+        for(int i = start; i < end; i++) if(text.charAt(i) == '\n') numLineBreaks++;
+        return numLineBreaks;
+    }
+
+    /***
+     * Counts the line breaks that SourceCodeFixerUpper.removeEmptyLines() would leave in the text, without building its result.
+     * Its first pass merges a line break, spaces, then another line break into a single line break, and its second
+     * pass merges consecutive line breaks.
+     */
+    private static int countLineBreaksWithoutEmptyLines(CharSequence text) {
+        int numLineBreaks = 0;
+        boolean isAfterLineBreak = false, wasLastCharLineBreak = false;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if(isAfterLineBreak) {
+                if(c == ' ') continue;
+                isAfterLineBreak = false;
+
+                // First pass; the held line break is written, and merged with this one if only spaces were between them.
+                // Second pass; it only counts if the last char written wasn't a line break as well:
+                if(!wasLastCharLineBreak) numLineBreaks++;
+                wasLastCharLineBreak = true;
+                if(c == '\n') continue;
+            }
+
+            if(c == '\n') isAfterLineBreak = true;
+            else wasLastCharLineBreak = false;
+        }
+        if(isAfterLineBreak && !wasLastCharLineBreak) numLineBreaks++;
+        return numLineBreaks;
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithoutSingleLineComments(), i.e. removes every match of "//.*(\n|$)".
+     */
+    private static void removeSingleLineComments(CharSequence text, int start, int end, StringBuilder output) {
+        int i = start;
+        while(i < end) {
+            int startOfComment = CodeStatementScanner.indexOf(text, '/', '/', i, end);
+            if(startOfComment == -1) {
+                output.append(text, i, end);
+                return;
+            }
+            output.append(text, i, startOfComment);
+
+            int endOfComment = startOfComment + 2;
+            while(endOfComment < end && !LineTerminators.isLineTerminator(text.charAt(endOfComment))) endOfComment++;
+
+            // Removed along with its line break, or at the very end of the text, or before a line terminator that ends the text:
+            if(endOfComment == end) return;
+            if(text.charAt(endOfComment) == '\n') i = endOfComment + 1;
+            else if(endOfComment == end - 1) i = endOfComment;
+            else {
+                output.append(text, startOfComment, endOfComment);
+                i = endOfComment;
+            }
+        }
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithoutDocstrings(), quirks included; when a docstring isn't followed by a line break,
+     * its closing '*' + '/' is kept, and a docstring that never closes swallows the rest of the text.
+     */
+    private static void removeDocstrings(CharSequence text, StringBuilder output) {
+        int length = text.length();
+        if(length < 3) {
+            output.append(text);
+            return;
+        }
+
+        int startOfCode = 0, startOfDocstring;
+        do {
+            startOfDocstring = CodeStatementScanner.indexOf(text, '/', '*', startOfCode, length);
+            if(startOfDocstring == -1) startOfDocstring = length;
+            output.append(text, startOfCode, startOfDocstring);
+
+            startOfCode = CodeStatementScanner.indexOf(text, '*', '/', startOfDocstring, length);
+            if(startOfCode == -1) startOfCode = length - 1;
+            else if(startOfCode + 2 < length) {
+                if(text.charAt(startOfCode + 2) == '\n') startOfCode += 3;
+            }
+            else startOfCode += 2;
+
+        } while(startOfCode < length - 1);
+    }
+
+    private static int indexOf(CharSequence text, char first, char second, int from, int end) {
+        for(int i = from; i < end - 1; i++)
+            if(text.charAt(i) == first && text.charAt(i + 1) == second) return i;
+        return -1;
+    }
+}
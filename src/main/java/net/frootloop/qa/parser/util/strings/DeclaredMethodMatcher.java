@@ -0,0 +1,148 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * Linear-time replacement for CodeParser.rxDeclaredMethod, i.e.
+ * (@[A-Z]\w+)?(?:((?:public|private|...|transient)+)\s+)+(([$_\w<>\[\]\s]*)\s+([\$_\w]+)\(([^\)]*)\)?\s*)
+ *
+ * Its nested quantifiers backtrack through every way of splitting the modifiers, return type and name of a
+ * declaration. Yet whether a match starts at a given index only depends on a few runs of chars: the return type,
+ * the spaces and the name are all part of the same run of [$_\w<>\[\]\s] chars, which must be followed by '('. The
+ * modifiers can only be split one way, since none of them is the prefix of another. So once those runs are measured,
+ * each starting index is checked in constant time, and the groups of the match are rebuilt the way the regex engine
+ * would have backtracked into them.
+ */
+public class DeclaredMethodMatcher extends LinearMatcher {
+
+    private static final String[] MODIFIERS = {"public", "private", "protected", "static", "final", "native", "synchronized", "abstract", "transient"};
+
+    private int[] modifierLengths, modifierChainEnds, typeCharsEnds, nameStarts;
+    private String modifiers, returnType, name, arguments;
+
+    public DeclaredMethodMatcher(CharSequence codeStatement) {
+        super(codeStatement);
+    }
+
+    /***
+     * @return Modifiers of the last run of modifiers before the return type, such as "public" or "staticfinal" (group 2).
+     */
+    public String getModifiers() {
+        return this.modifiers;
+    }
+
+    /***
+     * @return Return type, along with any modifier the regex didn't count as one (group 4).
+     */
+    public String getReturnType() {
+        return this.returnType;
+    }
+
+    /***
+     * @return Name of the method (group 5).
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /***
+     * @return Text between the parentheses, or up to the end of the text if there's no ')' (group 6).
+     */
+    public String getArguments() {
+        return this.arguments;
+    }
+
+    @Override
+    public boolean find() {
+        // Every match has a '(' after the method's name:
+        if(this.indexOf('(', 0) < 0) return false;
+        return super.find();
+    }
+
+    @Override
+    protected int matchAt(int s) {
+        this.measureRuns();
+
+        // With an annotation, (@[A-Z]\w+)? backtracks from its longest possible length:
+        if(this.isCharAt(s, '@') && this.isUpperCaseAt(s + 1)) {
+            for(int m = this.wordEnd(s + 1); m >= s + 3; m--) {
+                int matchEnd = this.matchModifiersAt(m);
+                if(matchEnd >= 0) return matchEnd;
+            }
+        }
+        return this.matchModifiersAt(s);
+    }
+
+    /***
+     * Matches the part of the pattern that follows the annotation, starting with the modifiers at 'm'.
+     */
+    private int matchModifiersAt(int m) {
+        if(m >= this.length || this.modifierLengths[m] == 0) return -1;
+        int endOfFirstModifiers = this.modifierChainEnds[m];
+        if(!this.isWhitespaceAt(endOfFirstModifiers)) return -1;
+
+        // Modifiers, return type, spaces and name all are [$_\w<>\[\]\s] chars, so they end where that run does, with '(':
+        int openingParenthesis = this.typeCharsEnds[m];
+        if(!this.isCharAt(openingParenthesis, '(') || !DeclaredMethodMatcher.isNameChar(this.text.charAt(openingParenthesis - 1))) return -1;
+        int nameStart = this.nameStarts[openingParenthesis - 1];
+
+        // \s+ right before the name; the type ends at the last space before it, at the earliest after the first modifiers:
+        int typeEnd = nameStart - 1;
+        if(typeEnd < endOfFirstModifiers + 1 || !LinearMatcher.isWhitespace(this.text.charAt(typeEnd))) return -1;
+
+        // Backtracking gives back one space at a time, then one whole run of modifiers at a time, from the last one.
+        // The type starts at the latest point reached that still leaves a space before the name:
+        int modifiersStart = -1, modifiersEnd = -1, typeStart = -1;
+        int i = m;
+        while(i < this.length && this.modifierLengths[i] > 0) {
+            int end = this.modifierChainEnds[i];
+            if(!this.isWhitespaceAt(end)) break;
+            int next = this.whitespaceEnd(end);
+            if(end + 1 <= typeEnd) {
+                modifiersStart = i;
+                modifiersEnd = end;
+                typeStart = Math.min(next, typeEnd);
+            }
+            i = next;
+        }
+
+        int closingParenthesis = this.indexOf(')', openingParenthesis + 1);
+        if(closingParenthesis < 0) closingParenthesis = this.length;
+
+        this.modifiers = this.substring(modifiersStart, modifiersEnd);
+        this.returnType = this.substring(typeStart, typeEnd);
+        this.name = this.substring(nameStart, openingParenthesis);
+        this.arguments = this.substring(openingParenthesis + 1, closingParenthesis);
+        return closingParenthesis < this.length ? this.whitespaceEnd(closingParenthesis + 1) : this.length;
+    }
+
+    private void measureRuns() {
+        if(this.modifierLengths != null) return;
+        this.modifierLengths = new int[this.length + 1];
+        this.modifierChainEnds = new int[this.length + 1];
+        this.typeCharsEnds = new int[this.length + 1];
+        this.nameStarts = new int[this.length];
+
+        this.typeCharsEnds[this.length] = this.length;
+        for(int i = this.length - 1; i >= 0; i--) {
+            this.modifierLengths[i] = this.keywordAt(i, MODIFIERS);
+            int next = i + this.modifierLengths[i];
+            this.modifierChainEnds[i] = this.modifierLengths[next] > 0 ? this.modifierChainEnds[next] : next;
+            this.typeCharsEnds[i] = DeclaredMethodMatcher.isTypeChar(this.text.charAt(i)) ? this.typeCharsEnds[i + 1] : i;
+        }
+        for(int i = 0; i < this.length; i++)
+            this.nameStarts[i] = i > 0 && DeclaredMethodMatcher.isNameChar(this.text.charAt(i - 1)) ? this.nameStarts[i - 1] : i;
+    }
+
+    /***
+     * [$_\w<>\[\]\s]
+     */
+    private static boolean isTypeChar(char c) {
+        return LinearMatcher.isWordChar(c) || LinearMatcher.isWhitespace(c) || c == '$' || c == '<' || c == '>' || c == '[' || c == ']';
+    }
+
+    /***
+     * [\$_\w]
+     */
+    private static boolean isNameChar(char c) {
+        return LinearMatcher.isWordChar(c) || c == '$';
+    }
+}
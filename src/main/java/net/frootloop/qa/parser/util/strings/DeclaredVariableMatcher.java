@@ -0,0 +1,134 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * Linear-time replacement for CodeParser.rxDeclaredVariable, i.e.
+ * (((public|private|protected|final)\s+)?)(int|...|char|[A-Z]\w+(\[\s*\]|\.\w+|<\w+(\s*,\s*\w+)*>)?)\s+((\w+)\s*((\s*,\s*\w+)*))($|[;=])
+ *
+ * None of its quantifiers can give anything back without the char that follows failing to match, so there's only
+ * ever one way to match from a given index. What makes the regex slow is that every index re-scans the generic
+ * arguments and the list of names that follow it; here, both are scanned once and remembered by where they start.
+ */
+public class DeclaredVariableMatcher extends LinearMatcher {
+
+    private static final String[] MODIFIERS = {"public", "private", "protected", "final"};
+    private static final String[] PRIMITIVE_TYPES = {"int", "short", "long", "float", "double", "byte", "boolean", "char"};
+
+    private int[] genericEnds, namesEnds;
+    private String type, names;
+
+    public DeclaredVariableMatcher(CharSequence codeStatement) {
+        super(codeStatement);
+    }
+
+    /***
+     * @return Type of the variable(s), such as "int" or "List<String>" (group 4).
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /***
+     * @return Names of the variable(s), separated by commas, such as "a, b" (group 7).
+     */
+    public String getNames() {
+        return this.names;
+    }
+
+    @Override
+    protected int matchAt(int s) {
+        // Optional modifier, which must then be followed by whitespace:
+        int typeStart = s;
+        int modifierLength = this.keywordAt(s, MODIFIERS);
+        if(modifierLength > 0) {
+            if(!this.isWhitespaceAt(s + modifierLength)) return -1;
+            typeStart = this.whitespaceEnd(s + modifierLength);
+        }
+
+        int typeEnd = this.matchTypeAt(typeStart);
+        if(typeEnd < 0) return -1;
+
+        // The names come after whitespace, and the first one has at least a char:
+        int namesStart = this.whitespaceEnd(typeEnd);
+        if(namesStart == typeEnd || !this.isWordCharAt(namesStart)) return -1;
+        int namesEnd = this.matchNamesAt(namesStart);
+
+        int matchEnd;
+        if(this.isCharAt(namesEnd, ';') || this.isCharAt(namesEnd, '=')) matchEnd = namesEnd + 1;
+        else if(this.isEndOfTextAt(namesEnd)) matchEnd = namesEnd;
+        else return -1;
+
+        this.type = this.substring(typeStart, typeEnd);
+        this.names = this.substring(namesStart, namesEnd);
+        return matchEnd;
+    }
+
+    /***
+     * @return End of the type starting at 't', which is followed by whitespace, or -1 if there's none.
+     */
+    private int matchTypeAt(int t) {
+        int primitiveLength = this.keywordAt(t, PRIMITIVE_TYPES);
+        if(primitiveLength > 0) return this.isWhitespaceAt(t + primitiveLength) ? t + primitiveLength : -1;
+
+        if(!this.isUpperCaseAt(t)) return -1;
+        int wordEnd = this.wordEnd(t);
+        if(wordEnd < t + 2) return -1;
+
+        // Optional suffix; an array, a nested class or generic arguments:
+        int suffixEnd = -1;
+        if(this.isCharAt(wordEnd, '[')) {
+            int closingBracket = this.whitespaceEnd(wordEnd + 1);
+            if(this.isCharAt(closingBracket, ']')) suffixEnd = closingBracket + 1;
+        }
+        else if(this.isCharAt(wordEnd, '.')) {
+            if(this.isWordCharAt(wordEnd + 1)) suffixEnd = this.wordEnd(wordEnd + 1);
+        }
+        else if(this.isCharAt(wordEnd, '<')) suffixEnd = this.matchGenericAt(wordEnd);
+
+        if(suffixEnd >= 0 && this.isWhitespaceAt(suffixEnd)) return suffixEnd;
+        return this.isWhitespaceAt(wordEnd) ? wordEnd : -1;
+    }
+
+    /***
+     * <\w+(\s*,\s*\w+)*> at 'i', which is a '<'.
+     *
+     * @return End of the generic arguments, or -1 if they don't match.
+     */
+    private int matchGenericAt(int i) {
+        if(this.genericEnds == null) this.genericEnds = LinearMatcher.newMemo(this.length);
+        if(this.genericEnds[i] != -2) return this.genericEnds[i];
+
+        int genericEnd = -1;
+        if(this.isWordCharAt(i + 1)) {
+            int p = this.wordEnd(i + 1);
+            while(true) {
+                int comma = this.whitespaceEnd(p);
+                if(!this.isCharAt(comma, ',')) break;
+                int next = this.whitespaceEnd(comma + 1);
+                if(!this.isWordCharAt(next)) break;
+                p = this.wordEnd(next);
+            }
+            if(this.isCharAt(p, '>')) genericEnd = p + 1;
+        }
+        return this.genericEnds[i] = genericEnd;
+    }
+
+    /***
+     * (\w+)\s*((\s*,\s*\w+)*) at 'i', which is a word char.
+     *
+     * @return End of the names.
+     */
+    private int matchNamesAt(int i) {
+        if(this.namesEnds == null) this.namesEnds = LinearMatcher.newMemo(this.length);
+        if(this.namesEnds[i] != -2) return this.namesEnds[i];
+
+        int p = this.whitespaceEnd(this.wordEnd(i));
+        while(true) {
+            int comma = this.whitespaceEnd(p);
+            if(!this.isCharAt(comma, ',')) break;
+            int next = this.whitespaceEnd(comma + 1);
+            if(!this.isWordCharAt(next)) break;
+            p = this.wordEnd(next);
+        }
+        return this.namesEnds[i] = p;
+    }
+}
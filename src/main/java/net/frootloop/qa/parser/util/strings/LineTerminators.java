@@ -0,0 +1,17 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * Line terminators as the '.' of a regex sees them, without the DOTALL and UNIX_LINES flags, for the scanners and
+ * matchers that stand in for such regexes.
+ */
+final class LineTerminators {
+
+    private LineTerminators() {}
+
+    /***
+     * Same as the '.' of a regex, which doesn't match line terminators.
+     */
+    static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,172 @@
+package net.frootloop.qa.parser.util.strings;
+
+import java.util.Arrays;
+
+/***
+ * Base of the hand-written matchers that replace CodeParser's backtracking-prone patterns.
+ *
+ * Each subclass finds the same matches, with the same groups, as the pattern it replaces, but in linear time: the
+ * runs of word chars and of whitespace are measured once for the whole text, and whatever part of a match is shared
+ * by many starting positions is only scanned once. Char classes are those of java.util.regex without flags, i.e.
+ * '\w' is [a-zA-Z_0-9] and '\s' is [ \t\n\x0B\f\r].
+ *
+ * The text is any CharSequence, so that the code of a block can be matched where it lies, as a CodeSpan.
+ */
+public abstract class LinearMatcher {
+
+    protected final CharSequence text;
+    protected final int length;
+    private int[] wordEnds, whitespaceEnds;
+    private int from = 0, start = -1, end = -1;
+
+    protected LinearMatcher(CharSequence text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /***
+     * Same as Matcher.find(); looks for the next match, starting where the previous one ended.
+     *
+     * @return Whether a match was found. Its groups are then available through the subclass' getters.
+     */
+    public boolean find() {
+        for(int s = this.from; s < this.length; s++) {
+            int matchEnd = this.matchAt(s);
+            if(matchEnd >= 0) {
+                this.start = s;
+                this.end = matchEnd;
+                this.from = matchEnd > s ? matchEnd : matchEnd + 1;
+                return true;
+            }
+        }
+        this.from = this.length;
+        this.start = this.end = -1;
+        return false;
+    }
+
+    public int start() {
+        return this.start;
+    }
+
+    public int end() {
+        return this.end;
+    }
+
+    /***
+     * Attempts a match starting exactly at index 's', setting its groups if there's one.
+     *
+     * @return Index right after the match, or -1 if there's no match starting at 's'.
+     */
+    protected abstract int matchAt(int s);
+
+    /***
+     * @return Index right after the run of word chars starting at 'i'; 'i' itself if there's none.
+     */
+    protected int wordEnd(int i) {
+        if(this.wordEnds == null) {
+            this.wordEnds = new int[this.length + 1];
+            this.wordEnds[this.length] = this.length;
+            for(int j = this.length - 1; j >= 0; j--)
+                this.wordEnds[j] = LinearMatcher.isWordChar(this.text.charAt(j)) ? this.wordEnds[j + 1] : j;
+        }
+        return this.wordEnds[i];
+    }
+
+    /***
+     * @return Index right after the run of whitespace starting at 'i'; 'i' itself if there's none.
+     */
+    protected int whitespaceEnd(int i) {
+        if(this.whitespaceEnds == null) {
+            this.whitespaceEnds = new int[this.length + 1];
+            this.whitespaceEnds[this.length] = this.length;
+            for(int j = this.length - 1; j >= 0; j--)
+                this.whitespaceEnds[j] = LinearMatcher.isWhitespace(this.text.charAt(j)) ? this.whitespaceEnds[j + 1] : j;
+        }
+        return this.whitespaceEnds[i];
+    }
+
+    protected boolean isWordCharAt(int i) {
+        return i < this.length && LinearMatcher.isWordChar(this.text.charAt(i));
+    }
+
+    protected boolean isWhitespaceAt(int i) {
+        return i < this.length && LinearMatcher.isWhitespace(this.text.charAt(i));
+    }
+
+    protected boolean isUpperCaseAt(int i) {
+        if(i >= this.length) return false;
+        char c = this.text.charAt(i);
+        return c >= 'A' && c <= 'Z';
+    }
+
+    protected boolean isCharAt(int i, char c) {
+        return i < this.length && this.text.charAt(i) == c;
+    }
+
+    /***
+     * @return Length of the first of the given keywords found at index 'i', or 0 if none is.
+     */
+    protected int keywordAt(int i, String[] keywords) {
+        for(String keyword : keywords)
+            if(this.startsWith(keyword, i)) return keyword.length();
+        return 0;
+    }
+
+    /***
+     * Same as '$' without the MULTILINE flag; the end of the text, or a line terminator that ends the text.
+     */
+    protected boolean isEndOfTextAt(int i) {
+        if(i == this.length) return true;
+        if(i == this.length - 2) return this.text.charAt(i) == '\r' && this.text.charAt(i + 1) == '\n';
+        if(i != this.length - 1) return false;
+        char c = this.text.charAt(i);
+        if(c == '\n') return i == 0 || this.text.charAt(i - 1) != '\r';
+        return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    protected boolean startsWith(String prefix, int i) {
+        if(i < 0 || i + prefix.length() > this.length) return false;
+        for(int j = 0; j < prefix.length(); j++)
+            if(this.text.charAt(i + j) != prefix.charAt(j)) return false;
+        return true;
+    }
+
+    /***
+     * @return Index of the first 'c' at or after 'from', or -1 if there's none.
+     */
+    protected int indexOf(char c, int from) {
+        for(int i = Math.max(from, 0); i < this.length; i++)
+            if(this.text.charAt(i) == c) return i;
+        return -1;
+    }
+
+    /***
+     * @return Index of the last 'c' at or before 'from', or -1 if there's none.
+     */
+    protected int lastIndexOf(char c, int from) {
+        for(int i = Math.min(from, this.length - 1); i >= 0; i--)
+            if(this.text.charAt(i) == c) return i;
+        return -1;
+    }
+
+    protected String substring(int start, int end) {
+        return this.text.subSequence(start, end).toString();
+    }
+
+    /***
+     * @return New array of 'size' ints, all set to -2; used to memoize results that may be -1.
+     */
+    protected static int[] newMemo(int size) {
+        int[] memo = new int[size];
+        Arrays.fill(memo, -2);
+        return memo;
+    }
+
+    protected static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    protected static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,47 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * Linear-time replacement for CodeParser.rxNewClassObject, i.e. .*new ([A-Z]\w*)\(.*\).*
+ *
+ * Since '.' doesn't match line terminators, the regex finds at most one match per line, which spans the whole line.
+ * The leading '.*' backtracks from the end of the line, so the class is the last one instantiated on that line with a
+ * ')' somewhere after its '('. The regex re-scans the rest of the line for every 'new' it backs into, and each line
+ * for every index it starts from; here, a line is only scanned once.
+ */
+public class NewObjectMatcher extends LinearMatcher {
+
+    private String className;
+    private int unmatchedLineEnd = -1;
+
+    public NewObjectMatcher(CharSequence code) {
+        super(code);
+    }
+
+    /***
+     * @return Name of the class instantiated (group 1).
+     */
+    public String getClassName() {
+        return this.className;
+    }
+
+    @Override
+    protected int matchAt(int s) {
+        // A line that can't be matched from its start can't be matched from any of its other chars either:
+        if(s < this.unmatchedLineEnd || LineTerminators.isLineTerminator(this.text.charAt(s))) return -1;
+        int lineEnd = s;
+        while(lineEnd < this.length && !LineTerminators.isLineTerminator(this.text.charAt(lineEnd))) lineEnd++;
+
+        // The closing parenthesis can be any ')' after the opening one, so only the last one of the line matters:
+        int lastClosingParenthesis = this.lastIndexOf(')', lineEnd - 1);
+        for(int p = lineEnd - 4; p >= s; p--) {
+            if(!this.startsWith("new ", p) || !this.isUpperCaseAt(p + 4)) continue;
+            int nameEnd = this.wordEnd(p + 4);
+            if(nameEnd < lineEnd && this.text.charAt(nameEnd) == '(' && nameEnd < lastClosingParenthesis) {
+                this.className = this.substring(p + 4, nameEnd);
+                return lineEnd;
+            }
+        }
+        this.unmatchedLineEnd = lineEnd;
+        return -1;
+    }
+}
@@ -9,6 +9,8 @@ import java.util.regex.Pattern;
 
 public interface SourceCodeFixerUpper {
 
+    Pattern rxLineBreak = Pattern.compile("\r\n|\r|\n");
+
     static String removeEmptyLines(String inputStr) {
         inputStr = inputStr.replaceAll("(\r\n|\r|\n)( )*(\r\n|\r|\n)", "\n");
         inputStr = inputStr.replaceAll("(\r\n|\r|\n)+", "\n");
@@ -16,7 +18,7 @@ public interface SourceCodeFixerUpper {
     }
 
     static int getLineCountOf(String inputStr) {
-        Matcher m = Pattern.compile("\r\n|\r|\n").matcher(inputStr);
+        Matcher m = rxLineBreak.matcher(inputStr);
         int lines = 1;
         while (m.find()) lines ++;
         return lines;
@@ -29,26 +31,11 @@ public interface SourceCodeFixerUpper {
      * @param sourceFileTextData
      * @return Clean version of source file's text data.
      */
-    static String cleanUpSource(String sourceFileTextData) {
-
-        // Get with normalized line break chars:
-        sourceFileTextData = sourceFileTextData.replaceAll("\r\n|\r|\n", "\n");
-
-        // Remove null chars:
-        sourceFileTextData = sourceFileTextData.replaceAll("\0", "");
-
-        // Remove unnecessary semicolons that follow up a closed curly bracket:
-        sourceFileTextData = sourceFileTextData.replaceAll("\\}( *);", "}");
-
-        // Remove extra spaces:
-        sourceFileTextData = SourceCodeFixerUpper.getWithoutExtraSpaces(sourceFileTextData);
-
-        // Now to the meaty stuff, aka modifying values in the source's code;
-        sourceFileTextData = SourceCodeFixerUpper.getWithGenericStringValues(sourceFileTextData);
-        sourceFileTextData = SourceCodeFixerUpper.getWithGenericCommentValues(sourceFileTextData);
-        sourceFileTextData = SourceCodeFixerUpper.getWithSingleBracketTryCatch(sourceFileTextData);
-
-        return sourceFileTextData;
+    static String cleanUpSource(CharSequence sourceFileTextData) {
+        // Same result as normalizing line breaks, removing null chars and semicolons after '}', then calling
+        // getWithoutExtraSpaces(), getWithGenericStringValues(), getWithGenericCommentValues() and getWithSingleBracketTryCatch(),
+        // except that it's all done in a single pass over the text:
+        return SourceCodeNormalizer.normalize(sourceFileTextData);
     }
 
     static String getWithoutExtraSpaces(String inputStr) {
@@ -144,39 +131,6 @@ public interface SourceCodeFixerUpper {
     }
 
     static ArrayList<CodeStatement> getCodeStatementsOf(String cleanSourceFileText) {
-
-        ArrayList<CodeStatement> codeStatements = new ArrayList<>();
-
-        int indexOfSourceFileText = -1;
-        for(String statementStr : cleanSourceFileText.split(";|\\{|\\}")) {
-
-            indexOfSourceFileText += statementStr.length() + 1;
-            char endOfStatementChar = indexOfSourceFileText >= cleanSourceFileText.length() ? ' ' : cleanSourceFileText.charAt(indexOfSourceFileText);
-            boolean isLeadingStatement = endOfStatementChar == '{';
-            boolean isClosingStatement = endOfStatementChar == '}';
-
-            // Count the number of line break chars in this statement;
-            int numLines = SourceCodeFixerUpper.getLineCountOf(statementStr) - 1;
-
-            // Remove comments from the statement, then get the number of lines removed and set as numLinesComments;
-            statementStr = SourceCodeFixerUpper.getWithoutComments(statementStr);
-            int numLinesComments = numLines - (SourceCodeFixerUpper.getLineCountOf(statementStr) - 1);
-
-            // Remove empty lines from the statement, then get the number of lines removed and set as numLinesEmpty;
-            statementStr = SourceCodeFixerUpper.removeEmptyLines(statementStr);
-            int numLinesEmpty = numLines - numLinesComments - (SourceCodeFixerUpper.getLineCountOf(statementStr) - 1);
-
-            // Get the number of lines of code in the statement;
-            int numLinesCode = 0;
-            if(endOfStatementChar != ' ') numLinesCode = numLines - numLinesEmpty - numLinesComments;
-            else numLinesEmpty += numLines - numLinesEmpty - numLinesComments;
-
-            // Clean up the code and create a new CodeStatement object with it;
-            statementStr = SourceCodeFixerUpper.getWithoutLineBreaks(statementStr);
-            statementStr = SourceCodeFixerUpper.getWithoutExtraSpaces(statementStr);
-            codeStatements.add(new CodeStatement(statementStr, isLeadingStatement, isClosingStatement, numLines, numLinesCode, numLinesComments, numLinesEmpty));
-
-        }
-        return codeStatements;
+        return CodeStatementScanner.getCodeStatementsOf(cleanSourceFileText);
     }
 }
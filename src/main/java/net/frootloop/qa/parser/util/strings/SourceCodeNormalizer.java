@@ -0,0 +1,631 @@
+package net.frootloop.qa.parser.util.strings;
+
+/***
+ * Single-pass version of the clean up done by SourceCodeFixerUpper.cleanUpSource().
+ *
+ * The clean up used to be a chain of about fifteen replaceAll() calls, each of them copying the entire source file.
+ * Here, each of those steps is a small character-level state machine (a 'Stage'), and the stages are chained so that
+ * every character of the file goes through all of them exactly once, in order, before landing in a single output buffer.
+ * A stage only holds on to characters while it can't yet tell whether they're part of a match (an open string, a
+ * docstring, etc.), so nothing is copied more than once.
+ *
+ * Each stage reproduces the exact output of the regex it replaces, quirks included, so that the parsed metrics don't change.
+ */
+public class SourceCodeNormalizer {
+
+    private static final String GENERIC_CHAR = "'char'";
+    private static final String GENERIC_STRING = "\"text\"";
+    private static final String GENERIC_SINGLE_LINE_COMMENT = "// Single-line comment\n";
+    private static final String GENERIC_TRY_CATCH = "catch -> ";
+
+    /***
+     * Remove unnecessary spaces, null chars, normalize line breaks, etc.
+     * Also replace string and comments with generic values, such as '"text"' and '// Single-line comment' respectively.
+     *
+     * @param sourceFileTextData
+     * @return Clean version of source file's text data.
+     */
+    public static String normalize(CharSequence sourceFileTextData) {
+        StringBuilder output = new StringBuilder(sourceFileTextData.length());
+
+        Stage stages = new LineBreakStage(
+                new SemicolonAfterBracketStage(
+                new ExtraSpacesStage(
+                new CharValueStage(
+                new StringValueStage(
+                new AppendedCommentStage(
+                new SingleLineCommentStage(
+                new DocstringStage(
+                new TryCatchStage(
+                new OutputStage(output))))))))));
+
+        for(int i = 0; i < sourceFileTextData.length(); i++) stages.feed(sourceFileTextData.charAt(i));
+        stages.end();
+
+        return output.toString();
+    }
+
+    /***
+     * Same as the '\s' of a regex.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private abstract static class Stage {
+        protected final Stage next;
+
+        Stage(Stage next) {
+            this.next = next;
+        }
+
+        abstract void feed(char c);
+
+        void end() {
+            this.next.end();
+        }
+
+        protected void emit(char c) {
+            this.next.feed(c);
+        }
+
+        protected void emit(CharSequence chars) {
+            for(int i = 0; i < chars.length(); i++) this.next.feed(chars.charAt(i));
+        }
+
+        /***
+         * Feeds characters that were held back by this stage through it again, from the start.
+         */
+        protected void refeed(CharSequence chars) {
+            String heldBack = chars.toString();
+            for(int i = 0; i < heldBack.length(); i++) this.feed(heldBack.charAt(i));
+        }
+    }
+
+    private static class OutputStage extends Stage {
+        private final StringBuilder output;
+
+        OutputStage(StringBuilder output) {
+            super(null);
+            this.output = output;
+        }
+
+        @Override
+        void feed(char c) {
+            this.output.append(c);
+        }
+
+        @Override
+        void end() {}
+    }
+
+    /***
+     * Replaces "\r\n|\r|\n" by "\n", then removes null chars.
+     */
+    private static class LineBreakStage extends Stage {
+        private boolean isAfterCarriageReturn;
+
+        LineBreakStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            if(c == '\n' && this.isAfterCarriageReturn) {
+                this.isAfterCarriageReturn = false;
+                return;
+            }
+            this.isAfterCarriageReturn = c == '\r';
+
+            if(c == '\r') this.emit('\n');
+            else if(c != '\0') this.emit(c);
+        }
+    }
+
+    /***
+     * Replaces "\}( *);" by "}".
+     */
+    private static class SemicolonAfterBracketStage extends Stage {
+        private boolean isAfterBracket;
+        private int numSpaces;
+
+        SemicolonAfterBracketStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            if(this.isAfterBracket) {
+                if(c == ' ') {
+                    this.numSpaces++;
+                    return;
+                }
+                this.isAfterBracket = false;
+                this.emit('}');
+                if(c == ';') {
+                    this.numSpaces = 0;
+                    return;
+                }
+                this.emitSpaces();
+            }
+
+            if(c == '}') this.isAfterBracket = true;
+            else this.emit(c);
+        }
+
+        @Override
+        void end() {
+            if(this.isAfterBracket) {
+                this.emit('}');
+                this.emitSpaces();
+            }
+            super.end();
+        }
+
+        private void emitSpaces() {
+            for(; this.numSpaces > 0; this.numSpaces--) this.emit(' ');
+        }
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithoutExtraSpaces(). Runs of spaces are collapsed into one, which is then
+     * dropped if it's at the very start or end of the text, or if it's next to a line break, a '{' or a ';'.
+     */
+    private static class ExtraSpacesStage extends Stage {
+        private boolean hasPendingSpace, hasPreviousChar;
+        private char previousChar, heldLineTerminator;
+
+        ExtraSpacesStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+
+            // A space followed by a line terminator is only dropped if that terminator ends the text; it doesn't:
+            if(this.heldLineTerminator != 0) {
+                this.emit(' ');
+                this.emit(this.heldLineTerminator);
+                this.previousChar = this.heldLineTerminator;
+                this.heldLineTerminator = 0;
+            }
+
+            if(c == ' ') {
+                this.hasPendingSpace = true;
+                return;
+            }
+
+            if(this.hasPendingSpace) {
+                this.hasPendingSpace = false;
+                boolean isSpaceRemoved = !this.hasPreviousChar || ExtraSpacesStage.isTrimmedAround(this.previousChar) || ExtraSpacesStage.isTrimmedAround(c);
+                if(!isSpaceRemoved && LineTerminators.isLineTerminator(c)) {
+                    this.heldLineTerminator = c;
+                    this.hasPreviousChar = true;
+                    return;
+                }
+                if(!isSpaceRemoved) this.emit(' ');
+            }
+
+            this.emit(c);
+            this.previousChar = c;
+            this.hasPreviousChar = true;
+        }
+
+        @Override
+        void end() {
+            if(this.heldLineTerminator != 0) this.emit(this.heldLineTerminator);
+            super.end();
+        }
+
+        private static boolean isTrimmedAround(char c) {
+            return c == '\n' || c == '{' || c == ';';
+        }
+    }
+
+    /***
+     * Replaces "\'(.)\'" by "'char'".
+     */
+    private static class CharValueStage extends Stage {
+        private static final int NORMAL = 0, AFTER_QUOTE = 1, AFTER_HIGH_SURROGATE = 2, AFTER_CHAR = 3;
+        private int state = NORMAL;
+        private final StringBuilder heldBack = new StringBuilder(2);
+
+        CharValueStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            switch(this.state) {
+                case NORMAL:
+                    if(c == '\'') {
+                        this.state = AFTER_QUOTE;
+                        this.heldBack.setLength(0);
+                    }
+                    else this.emit(c);
+                    return;
+
+                case AFTER_QUOTE:
+                    if(LineTerminators.isLineTerminator(c)) {
+                        this.state = NORMAL;
+                        this.emit('\'');
+                        this.feed(c);
+                        return;
+                    }
+                    this.heldBack.append(c);
+                    this.state = Character.isHighSurrogate(c) ? AFTER_HIGH_SURROGATE : AFTER_CHAR;
+                    return;
+
+                case AFTER_HIGH_SURROGATE:
+                    // The '.' of a regex matches a whole code point, so surrogate pairs count as one char:
+                    if(Character.isLowSurrogate(c)) {
+                        this.heldBack.append(c);
+                        this.state = AFTER_CHAR;
+                        return;
+                    }
+                    this.closeQuote(c);
+                    return;
+
+                default:
+                    this.closeQuote(c);
+            }
+        }
+
+        /***
+         * Ends the char value held back with the char that follows it, which is only replaced if it's a quote.
+         */
+        private void closeQuote(char c) {
+            this.state = NORMAL;
+            if(c == '\'') {
+                this.emit(GENERIC_CHAR);
+                return;
+            }
+            this.emit('\'');
+            this.refeed(this.heldBack);
+            this.feed(c);
+        }
+
+        @Override
+        void end() {
+            if(this.state != NORMAL) {
+                this.emit('\'');
+                this.emit(this.heldBack);
+            }
+            super.end();
+        }
+    }
+
+    /***
+     * Replaces string values, i.e. everything between two double quotes, by "text".
+     */
+    private static class StringValueStage extends Stage {
+        private boolean isInString;
+        private final StringBuilder heldBack = new StringBuilder();
+
+        StringValueStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            if(this.isInString) {
+                if(c == '"') {
+                    this.isInString = false;
+                    this.heldBack.setLength(0);
+                    this.emit(GENERIC_STRING);
+                }
+                else this.heldBack.append(c);
+            }
+            else if(c == '"') this.isInString = true;
+            else this.emit(c);
+        }
+
+        @Override
+        void end() {
+            if(this.isInString) {
+                this.emit('"');
+                this.emit(this.heldBack);
+            }
+            super.end();
+        }
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithoutAppendedComments(); a '//' comment ending with a line break
+     * is removed, unless a '*' + '/' shows up before that line break.
+     */
+    private static class AppendedCommentStage extends Stage {
+        private static final int NORMAL = 0, AFTER_SLASH = 1, IN_COMMENT = 2, AFTER_STAR = 3;
+        private int state = NORMAL;
+        private final StringBuilder heldBack = new StringBuilder();
+
+        AppendedCommentStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            switch(this.state) {
+                case AFTER_SLASH:
+                    if(c == '/') {
+                        this.state = IN_COMMENT;
+                        this.heldBack.setLength(0);
+                        this.heldBack.append("//");
+                        return;
+                    }
+                    this.state = NORMAL;
+                    this.emit('/');
+                    break;
+
+                case IN_COMMENT:
+                    if(c == '\n') {
+                        this.state = NORMAL;
+                        this.emit('\n');
+                        return;
+                    }
+                    if(c == '*') {
+                        this.state = AFTER_STAR;
+                        return;
+                    }
+                    if(!LineTerminators.isLineTerminator(c)) {
+                        this.heldBack.append(c);
+                        return;
+                    }
+                    this.state = NORMAL;
+                    this.emit(this.heldBack);
+                    break;
+
+                case AFTER_STAR:
+                    if(c != '/') {
+                        this.state = IN_COMMENT;
+                        this.heldBack.append('*');
+                        this.feed(c);
+                        return;
+                    }
+                    this.state = NORMAL;
+                    this.emit(this.heldBack);
+                    this.emit('*');
+                    break;
+            }
+
+            if(c == '/') this.state = AFTER_SLASH;
+            else this.emit(c);
+        }
+
+        @Override
+        void end() {
+            if(this.state == AFTER_SLASH) this.emit('/');
+            if(this.state == IN_COMMENT || this.state == AFTER_STAR) this.emit(this.heldBack);
+            if(this.state == AFTER_STAR) this.emit('*');
+            super.end();
+        }
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithGenericSingleLineComments(); a '//' comment running until a line break
+     * or the end of the text is replaced by a generic one.
+     */
+    private static class SingleLineCommentStage extends Stage {
+        private static final int NORMAL = 0, AFTER_SLASH = 1, IN_COMMENT = 2, AFTER_LINE_TERMINATOR = 3;
+        private int state = NORMAL;
+        private char heldLineTerminator;
+        private final StringBuilder heldBack = new StringBuilder();
+
+        SingleLineCommentStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            switch(this.state) {
+                case AFTER_SLASH:
+                    if(c == '/') {
+                        this.state = IN_COMMENT;
+                        this.heldBack.setLength(0);
+                        this.heldBack.append("//");
+                        return;
+                    }
+                    this.state = NORMAL;
+                    this.emit('/');
+                    break;
+
+                case IN_COMMENT:
+                    if(c == '\n') {
+                        this.state = NORMAL;
+                        this.emit(GENERIC_SINGLE_LINE_COMMENT);
+                        return;
+                    }
+                    if(LineTerminators.isLineTerminator(c)) {
+                        this.state = AFTER_LINE_TERMINATOR;
+                        this.heldLineTerminator = c;
+                        return;
+                    }
+                    this.heldBack.append(c);
+                    return;
+
+                case AFTER_LINE_TERMINATOR:
+                    // Other line terminators only end the comment if they're the very last char of the text:
+                    this.state = NORMAL;
+                    this.emit(this.heldBack);
+                    this.emit(this.heldLineTerminator);
+                    break;
+            }
+
+            if(c == '/') this.state = AFTER_SLASH;
+            else this.emit(c);
+        }
+
+        @Override
+        void end() {
+            if(this.state == AFTER_SLASH) this.emit('/');
+            if(this.state == IN_COMMENT || this.state == AFTER_LINE_TERMINATOR) this.emit(GENERIC_SINGLE_LINE_COMMENT);
+            if(this.state == AFTER_LINE_TERMINATOR) this.emit(this.heldLineTerminator);
+            super.end();
+        }
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithGenericDocstrings(text, "*\n"); every docstring is replaced by a generic one.
+     *
+     * Like the original, a docstring that is never closed swallows the rest of the text, and a docstring closed
+     * less than two chars before the end of the text is dropped along with whatever follows it.
+     */
+    private static class DocstringStage extends Stage {
+        private static final int NORMAL = 0, AFTER_SLASH = 1, IN_DOCSTRING = 2, AFTER_DOCSTRING = 3;
+        private int state = NORMAL;
+        private int numCharsFed, numLineBreaks;
+        private boolean isAfterStar;
+        private String genericDocstring;
+        private final StringBuilder heldBack = new StringBuilder(2);
+
+        DocstringStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            this.numCharsFed++;
+            this.process(c);
+        }
+
+        private void process(char c) {
+            switch(this.state) {
+                case AFTER_SLASH:
+                    if(c == '*') {
+                        this.state = IN_DOCSTRING;
+                        this.numLineBreaks = 0;
+                        this.isAfterStar = true; // The closing '*/' is looked for starting from the opening '/*'.
+                        return;
+                    }
+                    this.state = NORMAL;
+                    this.emit('/');
+                    break;
+
+                case IN_DOCSTRING:
+                    if(c == '/' && this.isAfterStar) {
+                        this.state = AFTER_DOCSTRING;
+                        this.genericDocstring = "/*\n" + "*\n".repeat(Math.max(0, this.numLineBreaks - 1)) + "*/";
+                        this.heldBack.setLength(0);
+                        return;
+                    }
+                    if(c == '\n') this.numLineBreaks++;
+                    this.isAfterStar = c == '*';
+                    return;
+
+                case AFTER_DOCSTRING:
+                    this.heldBack.append(c);
+                    if(this.heldBack.length() < 2) return;
+
+                    this.state = NORMAL;
+                    this.emit(this.genericDocstring);
+                    String charsAfterDocstring = this.heldBack.toString();
+                    for(int i = 0; i < charsAfterDocstring.length(); i++) this.process(charsAfterDocstring.charAt(i));
+                    return;
+            }
+
+            if(c == '/') this.state = AFTER_SLASH;
+            else this.emit(c);
+        }
+
+        @Override
+        void end() {
+            if(this.state == AFTER_SLASH) this.emit('/');
+
+            // Texts shorter than 3 chars are returned as-is by the original:
+            if(this.state == IN_DOCSTRING && this.numCharsFed < 3) this.emit("/*");
+            super.end();
+        }
+    }
+
+    /***
+     * Same as SourceCodeFixerUpper.getWithSingleBracketTryCatch(); replaces "\}\s*catch\s*(.*)\s*\{" by "catch -> ".
+     */
+    private static class TryCatchStage extends Stage {
+        private static final int NORMAL = 0, AFTER_BRACKET = 1, IN_KEYWORD = 2, AFTER_KEYWORD = 3, IN_LINE = 4, AFTER_LINE = 5;
+        private static final String KEYWORD = "catch";
+        private int state = NORMAL;
+        private int numKeywordChars, indexOfLastBracket;
+        private final StringBuilder heldBack = new StringBuilder();
+
+        TryCatchStage(Stage next) { super(next); }
+
+        @Override
+        void feed(char c) {
+            if(this.state == NORMAL) {
+                if(c == '}') {
+                    this.state = AFTER_BRACKET;
+                    this.heldBack.setLength(0);
+                    this.heldBack.append(c);
+                }
+                else this.emit(c);
+                return;
+            }
+
+            this.heldBack.append(c);
+            int index = this.heldBack.length() - 1;
+
+            switch(this.state) {
+                case AFTER_BRACKET:
+                    if(isWhitespace(c)) return;
+                    this.state = IN_KEYWORD;
+                    this.numKeywordChars = 0;
+                    this.feedKeyword(c);
+                    return;
+
+                case IN_KEYWORD:
+                    this.feedKeyword(c);
+                    return;
+
+                case AFTER_KEYWORD:
+                    if(isWhitespace(c)) return;
+                    this.state = IN_LINE;
+                    this.indexOfLastBracket = -1;
+                    this.feedLine(c, index);
+                    return;
+
+                case IN_LINE:
+                    this.feedLine(c, index);
+                    return;
+
+                case AFTER_LINE:
+                    // ...unless the line is followed by nothing but whitespace and a '{':
+                    if(isWhitespace(c)) return;
+                    if(c == '{') this.match(index + 1);
+                    else this.backtrack();
+            }
+        }
+
+        @Override
+        void end() {
+            while(this.state != NORMAL) {
+                if(this.state == IN_LINE || this.state == AFTER_LINE) this.backtrack();
+                else this.fail();
+            }
+            super.end();
+        }
+
+        private void feedKeyword(char c) {
+            if(c != KEYWORD.charAt(this.numKeywordChars)) {
+                this.fail();
+                return;
+            }
+            if(++this.numKeywordChars == KEYWORD.length()) this.state = AFTER_KEYWORD;
+        }
+
+        private void feedLine(char c, int index) {
+            // The '(.*)' runs until the end of the line, then backtracks to the last '{' it can find:
+            if(!LineTerminators.isLineTerminator(c)) {
+                if(c == '{') this.indexOfLastBracket = index;
+                return;
+            }
+            if(!isWhitespace(c)) {
+                this.backtrack();
+                return;
+            }
+            this.state = AFTER_LINE;
+        }
+
+        private void backtrack() {
+            if(this.indexOfLastBracket >= 0) this.match(this.indexOfLastBracket + 1);
+            else this.fail();
+        }
+
+        private void match(int endOfMatch) {
+            String charsAfterMatch = this.heldBack.substring(endOfMatch);
+            this.state = NORMAL;
+            this.emit(GENERIC_TRY_CATCH);
+            this.refeed(charsAfterMatch);
+        }
+
+        private void fail() {
+            String charsAfterBracket = this.heldBack.substring(1);
+            this.state = NORMAL;
+            this.emit('}');
+            this.refeed(charsAfterBracket);
+        }
+    }
+}
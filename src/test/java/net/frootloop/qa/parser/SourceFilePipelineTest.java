@@ -0,0 +1,84 @@
+package net.frootloop.qa.parser;
+
+import net.frootloop.qa.parser.result.ParsedSourceFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SourceFilePipelineTest {
+
+    /***
+     * Throws a StackOverflowError for every file whose name starts with "Broken", an OutOfMemoryError for every file
+     * whose name starts with "Fatal", and parses the others as usual.
+     */
+    private static class BrokenParseCache extends ParseCache {
+        BrokenParseCache(Path directory) {
+            super(directory, 0);
+        }
+
+        @Override
+        public ParsedSourceFile parse(Path filePath, CharSequence sourceFileTextData) {
+            if(filePath.getFileName().toString().startsWith("Broken")) throw new StackOverflowError();
+            if(filePath.getFileName().toString().startsWith("Fatal")) throw new OutOfMemoryError();
+            return new ParsedSourceFile(filePath, sourceFileTextData);
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsParsingAfterAnErrorOnAFile() throws IOException {
+        List<Path> filePaths = this.writeFiles("Broken", 20);
+
+        // A single parser and a small queue, so that the readers would block for good if the parser died:
+        SourceFilePipeline pipeline = new SourceFilePipeline(2, 1, 1, new BrokenParseCache(this.directory.resolve("cache")));
+        ParsedSourceFile[] parsedFiles = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> pipeline.parse(filePaths));
+
+        assertEquals(filePaths.size(), parsedFiles.length);
+        for(int i = 0; i < parsedFiles.length; i++) {
+            if(i % 2 == 0) assertNull(parsedFiles[i]);
+            else assertNotNull(parsedFiles[i]);
+        }
+    }
+
+    @Test
+    void stopsAndRethrowsOtherErrors() throws IOException {
+        List<Path> filePaths = this.writeFiles("Fatal", 200);
+
+        SourceFilePipeline pipeline = new SourceFilePipeline(2, 2, 1, new BrokenParseCache(this.directory.resolve("cache")));
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            assertThrows(OutOfMemoryError.class, () -> pipeline.parse(filePaths));
+
+            // The interrupt that woke up the calling thread mustn't linger:
+            assertFalse(Thread.currentThread().isInterrupted());
+        });
+    }
+
+    /***
+     * Writes 'numFiles' source files, where every other one, starting with the first, is named after 'failingPrefix'.
+     */
+    private List<Path> writeFiles(String failingPrefix, int numFiles) throws IOException {
+        List<Path> filePaths = new ArrayList<>();
+        for(int i = 0; i < numFiles; i++) {
+            String className = (i % 2 == 0 ? failingPrefix : "Fine") + i;
+            Path filePath = this.directory.resolve(className + ".java");
+            Files.writeString(filePath, "public class " + className + " {\n    int value;\n}\n");
+            filePaths.add(filePath);
+        }
+        return filePaths;
+    }
+}
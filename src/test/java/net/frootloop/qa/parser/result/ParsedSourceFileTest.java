@@ -0,0 +1,52 @@
+package net.frootloop.qa.parser.result;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/***
+ * Once a file's code tree is released, or the file is restored from the ParseCache, printing it must fail with a
+ * clear message rather than a NullPointerException, while its classes can still be printed from their kept counts.
+ */
+class ParsedSourceFileTest {
+
+    private static final Path SOURCE_FILE = Paths.get("src/main/java/net/frootloop/qa/parser/util/stats/MetricTable.java");
+
+    @Test
+    void printsUntilTheCodeTreeIsReleased() throws IOException {
+        ParsedSourceFile file = new ParsedSourceFile(SOURCE_FILE, Files.readString(SOURCE_FILE));
+        assertDoesNotThrow(file::print);
+
+        file.releaseCodeTrees();
+        assertPrintsOnlyTheClasses(file);
+    }
+
+    @Test
+    void printsOnlyTheClassesOnceRestored() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ParsedSourceFile(SOURCE_FILE, Files.readString(SOURCE_FILE)).writeTo(new DataOutputStream(bytes));
+        ParsedSourceFile file = new ParsedSourceFile(SOURCE_FILE, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertPrintsOnlyTheClasses(file);
+    }
+
+    private static void assertPrintsOnlyTheClasses(ParsedSourceFile file) {
+        assertThrows(IllegalStateException.class, file::print);
+        assertNotEquals(0, file.getClasses().length);
+        for(ParsedClass c : file.getClasses()) {
+            assertDoesNotThrow(c::print);
+            for(ParsedMethod m : c.getMethods()) assertThrows(IllegalStateException.class, m::print);
+        }
+    }
+}
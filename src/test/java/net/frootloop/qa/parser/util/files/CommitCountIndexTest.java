@@ -0,0 +1,116 @@
+package net.frootloop.qa.parser.util.files;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/***
+ * The CommitCountIndex, whether built from scratch, extended from its cached copy, or rebuilt once that copy no longer
+ * matches the history, must give the same counts as GitGudder's walk of each file's log, which is the reference.
+ */
+class CommitCountIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private Path repositoryPath;
+    private Path previousCacheDirectory;
+
+    @BeforeEach
+    void setUpCache() {
+        this.repositoryPath = this.directory.resolve("repository");
+        this.previousCacheDirectory = CommitCountIndex.getCacheDirectory();
+        CommitCountIndex.setCacheDirectory(this.directory.resolve("cache"));
+    }
+
+    @AfterEach
+    void restoreCache() {
+        CommitCountIndex.setCacheDirectory(this.previousCacheDirectory);
+    }
+
+    @Test
+    void countsLikeTheLogOfEachFile() throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(this.repositoryPath.toFile()).setInitialBranch("master").call()) {
+            RevCommit first = this.commit(git, "First", "A.java", "class A {}", "b/B.java", "class B {}", "README.md", "Hello");
+            this.commit(git, "Second", "A.java", "class A { int a; }", "b/C.java", "class C {}");
+            RevCommit third = this.commit(git, "Third", "b/B.java", "class B { int b; }");
+            this.assertCountsLikeTheLog();
+
+            // A branch that touches other files than the main one, merged back without fast-forwarding:
+            git.checkout().setCreateBranch(true).setName("feature").setStartPoint(third).call();
+            this.commit(git, "Feature", "b/C.java", "class C { int c; }", "d/D.java", "class D {}");
+            this.commit(git, "More feature", "d/D.java", "class D { int d; }");
+            git.checkout().setName("master").call();
+            this.commit(git, "Main", "A.java", "class A { int a, b; }");
+            git.merge().include(git.getRepository().resolve("feature")).setFastForward(MergeCommand.FastForwardMode.NO_FF).setMessage("Merge").call();
+            this.assertCountsLikeTheLog();
+
+            // A single new commit, which only extends the cached index:
+            this.commit(git, "Incremental", "b/C.java", "class C { int c, d; }", "E.java", "class E {}");
+            this.assertCountsLikeTheLog();
+
+            // Amending it makes the cached commit unreachable from HEAD:
+            this.write("E.java", "class E { int e; }");
+            git.add().addFilepattern(".").call();
+            git.commit().setAmend(true).setMessage("Amended").call();
+            this.assertCountsLikeTheLog();
+
+            // So does resetting to an older commit, then committing on top of it:
+            git.reset().setMode(ResetCommand.ResetType.HARD).setRef(first.name()).call();
+            this.commit(git, "Rewritten", "b/B.java", "class B { long b; }", "F.java", "class F {}");
+            this.assertCountsLikeTheLog();
+        }
+    }
+
+    private void assertCountsLikeTheLog() throws IOException {
+        CommitCountIndex index = CommitCountIndex.build(this.repositoryPath);
+        try (Git git = Git.open(this.repositoryPath.toFile())) {
+            assertEquals(git.getRepository().resolve(Constants.HEAD).name(), index.getCommitId());
+        }
+
+        List<Path> sourceFiles;
+        try (Stream<Path> paths = Files.walk(this.repositoryPath)) {
+            sourceFiles = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+        assertFalse(sourceFiles.isEmpty());
+        for(Path sourceFile : sourceFiles)
+            assertEquals(GitGudder.getCommitCountTo(this.repositoryPath, sourceFile), index.getCommitCountTo(sourceFile), () -> "On " + sourceFile);
+
+        // Reading the index back from the cache, as of the same commit, gives the same counts:
+        CommitCountIndex cachedIndex = CommitCountIndex.build(this.repositoryPath);
+        for(Path sourceFile : sourceFiles)
+            assertEquals(index.getCommitCountTo(sourceFile), cachedIndex.getCommitCountTo(sourceFile), () -> "On cached " + sourceFile);
+    }
+
+    /***
+     * Writes each pair of 'pathsAndContents' (a relative path, then the file's text), then commits everything.
+     */
+    private RevCommit commit(Git git, String message, String... pathsAndContents) throws IOException, GitAPIException {
+        for(int i = 0; i < pathsAndContents.length; i += 2) this.write(pathsAndContents[i], pathsAndContents[i + 1]);
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).call();
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path filePath = this.repositoryPath.resolve(relativePath);
+        Files.createDirectories(filePath.getParent());
+        Files.writeString(filePath, content);
+    }
+}
@@ -0,0 +1,71 @@
+package net.frootloop.qa.parser.util.stats;
+
+import net.frootloop.qa.parser.result.ParsedClass;
+import net.frootloop.qa.parser.result.ParsedSourceFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/***
+ * Sketches of the classes of this repository, merged file by file, must count every class, and give quantiles within
+ * their rank error of the exact ones.
+ */
+class MetricSketchesTest {
+
+    private static final double RANK_ERROR = 0.05;
+    private static final Metric[] METRICS = {Metric.NLOC, Metric.CD, Metric.WMC, Metric.CC};
+
+    @Test
+    void mergesTheSketchesOfEachFile() throws IOException {
+        List<Path> sourceFiles;
+        try(Stream<Path> paths = Files.walk(Paths.get("src/main"))) {
+            sourceFiles = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+
+        List<ParsedClass> classes = new ArrayList<>();
+        MetricSketches merged = new MetricSketches(RANK_ERROR, METRICS);
+        for(Path sourceFile : sourceFiles) {
+            ParsedClass[] fileClasses = new ParsedSourceFile(sourceFile, Files.readString(sourceFile)).getClasses();
+            classes.addAll(Arrays.asList(fileClasses));
+            merged.merge(MetricSketchesTest.copyOf(MetricSketches.Of(fileClasses, RANK_ERROR, METRICS)));
+        }
+        assertFalse(classes.isEmpty());
+        assertEquals(classes.size(), merged.getNumClasses());
+
+        for(Metric metric : METRICS) {
+            double[] sortedValues = Arrays.stream(metric.getValuesOf(classes.toArray(new ParsedClass[0]))).filter(value -> !Double.isNaN(value)).sorted().toArray();
+            QuantileSketch sketch = merged.getSketchOf(metric);
+            assertEquals(sortedValues.length, sketch.getCount());
+            for(int percent = 5; percent < 100; percent += 5) {
+                double rank = percent / 100.0d;
+                double quantile = sketch.getQuantile(rank);
+                long lowestRank = Arrays.stream(sortedValues).filter(value -> value < quantile).count();
+                long highestRank = Arrays.stream(sortedValues).filter(value -> value <= quantile).count();
+                assertTrue(lowestRank <= (rank + RANK_ERROR) * sortedValues.length && highestRank >= (rank - RANK_ERROR) * sortedValues.length,
+                        () -> metric.getShorthand() + " quantile " + rank + " was " + quantile);
+            }
+        }
+    }
+
+    private static MetricSketches copyOf(MetricSketches sketches) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketches.writeTo(new DataOutputStream(bytes));
+        return new MetricSketches(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
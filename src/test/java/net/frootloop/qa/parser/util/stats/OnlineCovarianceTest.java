@@ -0,0 +1,124 @@
+package net.frootloop.qa.parser.util.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/***
+ * OnlineCovariance must give the textbook two-pass means and covariances, which are the reference, whether its data
+ * points are added to a single accumulator, or split between accumulators that are merged afterwards.
+ */
+class OnlineCovarianceTest {
+
+    private static final int NUM_DIMENSIONS = 3;
+    private static final int NUM_POINTS = 10000;
+
+    @Test
+    void singlePassMatchesTwoPasses() {
+        double[][] points = OnlineCovarianceTest.getPoints(new Random(1));
+        OnlineCovariance covariance = new OnlineCovariance(NUM_DIMENSIONS);
+        for(double[] point : points) covariance.add(point);
+        assertSameAsTwoPasses(points, covariance);
+    }
+
+    @Test
+    void mergedPartitionsMatchSinglePass() {
+        Random random = new Random(2);
+        double[][] points = OnlineCovarianceTest.getPoints(random);
+        OnlineCovariance singlePass = new OnlineCovariance(NUM_DIMENSIONS);
+        for(double[] point : points) singlePass.add(point);
+
+        // Partitions of uneven sizes, many of them empty or of a single data point, merged in a random order:
+        List<OnlineCovariance> partitions = new ArrayList<>();
+        int start = 0;
+        while(start < points.length) {
+            int end = Math.min(points.length, start + (random.nextBoolean() ? random.nextInt(3) : random.nextInt(2000)));
+            OnlineCovariance partition = new OnlineCovariance(NUM_DIMENSIONS);
+            for(int i = start; i < end; i++) partition.add(points[i]);
+            partitions.add(partition);
+            start = end;
+        }
+        partitions.add(new OnlineCovariance(NUM_DIMENSIONS));
+        Collections.shuffle(partitions, random);
+
+        OnlineCovariance merged = new OnlineCovariance(NUM_DIMENSIONS);
+        for(OnlineCovariance partition : partitions) merged.merge(partition);
+
+        assertEquals(singlePass.getCount(), merged.getCount());
+        for(int i = 0; i < NUM_DIMENSIONS; i++) {
+            assertClose(singlePass.getMean(i), merged.getMean(i));
+            for(int j = 0; j < NUM_DIMENSIONS; j++) {
+                assertClose(singlePass.getCovariance(i, j), merged.getCovariance(i, j));
+                assertClose(singlePass.getCorrelation(i, j), merged.getCorrelation(i, j));
+            }
+        }
+        assertSameAsTwoPasses(points, merged);
+    }
+
+    @Test
+    void handlesEmptyAndSinglePointAccumulators() {
+        OnlineCovariance empty = new OnlineCovariance(NUM_DIMENSIONS);
+        empty.merge(new OnlineCovariance(NUM_DIMENSIONS));
+        assertEquals(0, empty.getCount());
+        assertTrue(Double.isNaN(empty.getVariance(0)));
+
+        double[] point = {1.5, -2, 1e6};
+        OnlineCovariance single = new OnlineCovariance(NUM_DIMENSIONS);
+        single.add(point);
+        OnlineCovariance mergedIntoEmpty = new OnlineCovariance(NUM_DIMENSIONS);
+        mergedIntoEmpty.merge(single);
+        mergedIntoEmpty.merge(new OnlineCovariance(NUM_DIMENSIONS));
+        for(OnlineCovariance covariance : new OnlineCovariance[] {single, mergedIntoEmpty}) {
+            assertEquals(1, covariance.getCount());
+            for(int i = 0; i < NUM_DIMENSIONS; i++) {
+                assertEquals(point[i], covariance.getMean(i));
+                for(int j = 0; j < NUM_DIMENSIONS; j++) assertEquals(0, covariance.getCovariance(i, j));
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> single.merge(new OnlineCovariance(NUM_DIMENSIONS + 1)));
+    }
+
+    /***
+     * Correlated values, far from zero, so that summing their squares, rather than their deviations, would lose
+     * most of their precision.
+     */
+    private static double[][] getPoints(Random random) {
+        double[][] points = new double[NUM_POINTS][NUM_DIMENSIONS];
+        for(double[] point : points) {
+            double shared = random.nextGaussian();
+            point[0] = 1e6 + shared + random.nextGaussian();
+            point[1] = 1e3 - 2 * shared + 0.1 * random.nextGaussian();
+            point[2] = Math.floor(10 * random.nextDouble());
+        }
+        return points;
+    }
+
+    private static void assertSameAsTwoPasses(double[][] points, OnlineCovariance covariance) {
+        int numDimensions = points[0].length;
+        double[] means = new double[numDimensions];
+        for(double[] point : points)
+            for(int i = 0; i < numDimensions; i++) means[i] += point[i] / points.length;
+
+        assertEquals(points.length, covariance.getCount());
+        for(int i = 0; i < numDimensions; i++) {
+            assertClose(means[i], covariance.getMean(i));
+            for(int j = 0; j < numDimensions; j++) {
+                double sum = 0;
+                for(double[] point : points) sum += (point[i] - means[i]) * (point[j] - means[j]);
+                assertClose(sum / points.length, covariance.getCovariance(i, j));
+            }
+        }
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)));
+    }
+}
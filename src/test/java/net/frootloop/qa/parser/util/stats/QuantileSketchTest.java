@@ -0,0 +1,135 @@
+package net.frootloop.qa.parser.util.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/***
+ * The quantiles of a QuantileSketch, filled at once or merged from several, must be within its rank error of the
+ * exact quantiles of the sorted values, which are the reference.
+ */
+class QuantileSketchTest {
+
+    private static final double RANK_ERROR = 0.01;
+    private static final int NUM_VALUES = 200000;
+
+    @Test
+    void quantilesAreWithinTheRankError() {
+        for(double[] values : QuantileSketchTest.getDistributions()) {
+            QuantileSketch sketch = QuantileSketch.ForRankError(RANK_ERROR);
+            for(double value : values) sketch.add(value);
+            assertWithinRankError(values, sketch);
+        }
+    }
+
+    @Test
+    void mergedQuantilesAreWithinTheRankError() throws IOException {
+        Random random = new Random(7);
+        for(double[] values : QuantileSketchTest.getDistributions()) {
+            // Partitions of uneven sizes, some of them empty or of a single value:
+            QuantileSketch merged = QuantileSketch.ForRankError(RANK_ERROR);
+            int start = 0;
+            while(start < values.length) {
+                int end = Math.min(values.length, start + (random.nextBoolean() ? random.nextInt(3) : random.nextInt(40000)));
+                QuantileSketch partition = QuantileSketch.ForRankError(RANK_ERROR);
+                for(int i = start; i < end; i++) partition.add(values[i]);
+
+                // Half of them go through writeTo(), as if they came from another shard:
+                merged.merge(random.nextBoolean() ? partition : QuantileSketchTest.copyOf(partition));
+                start = end;
+            }
+            assertEquals(values.length, merged.getCount());
+            assertWithinRankError(values, merged);
+        }
+    }
+
+    @Test
+    void skipsNaN() {
+        QuantileSketch sketch = QuantileSketch.ForRankError(RANK_ERROR);
+        for(int i = 0; i < 1000; i++) {
+            sketch.add(i);
+            sketch.add(Double.NaN);
+        }
+        assertEquals(1000, sketch.getCount());
+        assertEquals(0, sketch.getMin());
+        assertEquals(999, sketch.getMax());
+        assertEquals(499, sketch.getQuantile(0.5), 1000 * RANK_ERROR);
+
+        QuantileSketch onlyNaN = QuantileSketch.ForRankError(RANK_ERROR);
+        onlyNaN.add(Double.NaN);
+        assertEquals(0, onlyNaN.getCount());
+        assertTrue(Double.isNaN(onlyNaN.getQuantile(0.5)));
+    }
+
+    @Test
+    void mergesOnlySketchesOfTheSameCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(100).merge(new QuantileSketch(200)));
+    }
+
+    /***
+     * Continuous values, and values with many ties, as most metrics are small whole numbers.
+     */
+    private static double[][] getDistributions() {
+        Random random = new Random(5);
+        double[] gaussian = new double[NUM_VALUES], ties = new double[NUM_VALUES], sorted = new double[NUM_VALUES];
+        for(int i = 0; i < NUM_VALUES; i++) {
+            gaussian[i] = random.nextGaussian();
+            ties[i] = Math.floor(Math.abs(random.nextGaussian()) * 5);
+            sorted[i] = i;
+        }
+        return new double[][] {gaussian, ties, sorted};
+    }
+
+    /***
+     * Checks that, for each rank, the rank of the quantile among the sorted values, which spans all of its ties, is
+     * within the rank error of it.
+     */
+    private static void assertWithinRankError(double[] values, QuantileSketch sketch) {
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for(int percent = 1; percent < 100; percent++) {
+            double rank = percent / 100.0d;
+            double quantile = sketch.getQuantile(rank);
+            double lowestRank = (double) QuantileSketchTest.countLowerThan(sortedValues, quantile) / sortedValues.length;
+            double highestRank = (double) QuantileSketchTest.countLowerThanOrEqual(sortedValues, quantile) / sortedValues.length;
+            double error = Math.max(0, Math.max(lowestRank - rank, rank - highestRank));
+            assertTrue(error <= RANK_ERROR, () -> "Quantile " + rank + " was " + quantile + ", of ranks [" + lowestRank + ", " + highestRank + "]");
+        }
+    }
+
+    private static int countLowerThan(double[] sortedValues, double value) {
+        int low = 0, high = sortedValues.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(sortedValues[middle] < value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static int countLowerThanOrEqual(double[] sortedValues, double value) {
+        int low = 0, high = sortedValues.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(sortedValues[middle] <= value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static QuantileSketch copyOf(QuantileSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        return new QuantileSketch(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
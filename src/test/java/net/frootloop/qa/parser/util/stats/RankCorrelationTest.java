@@ -0,0 +1,136 @@
+package net.frootloop.qa.parser.util.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/***
+ * RankCorrelation must give the same coefficients as their definitions, computed naively by comparing every pair of
+ * data points, which are the reference.
+ */
+class RankCorrelationTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void matchesNaiveCoefficientsOnRandomData() {
+        Random random = new Random(4);
+        for(int i = 0; i < 20000; i++) {
+            int n = random.nextInt(60);
+            int numDistinctValues = 1 + random.nextInt(6);
+            double[] x = new double[n], y = new double[n];
+            for(int p = 0; p < n; p++) {
+                x[p] = RankCorrelationTest.getRandomValue(random, numDistinctValues);
+                y[p] = random.nextInt(4) == 0 ? x[p] : RankCorrelationTest.getRandomValue(random, numDistinctValues);
+            }
+            assertEquals(naiveSpearman(x, y), RankCorrelation.Spearman(x, y), TOLERANCE, () -> "Spearman of " + n + " data points");
+            assertEquals(naiveKendallTauB(x, y), RankCorrelation.KendallTauB(x, y), TOLERANCE, () -> "Kendall of " + n + " data points");
+        }
+    }
+
+    @Test
+    void isNaNWithoutDistinctValues() {
+        double[][][] degenerateCases = {
+                {{}, {}},
+                {{1}, {2}},
+                {{1, Double.NaN, 3}, {Double.NaN, 2, 4}},
+                {{3, 3, 3, 3}, {3, 3, 3, 3}},
+                {{1, 2, 3, 4}, {5, 5, 5, 5}},
+                {{5, 5, 5, 5}, {1, 2, 3, 4}},
+                {{1, 2, 3, Double.NaN}, {7, 7, 7, 8}},
+        };
+        for(double[][] degenerateCase : degenerateCases) {
+            assertTrue(Double.isNaN(RankCorrelation.Spearman(degenerateCase[0], degenerateCase[1])));
+            assertTrue(Double.isNaN(RankCorrelation.KendallTauB(degenerateCase[0], degenerateCase[1])));
+        }
+    }
+
+    @Test
+    void isOneOrMinusOneForMonotonicData() {
+        double[] x = {1, 2, 2, 3, 10, 100}, y = {-5, 0, 0, 1, 2, 3}, reversed = {3, 2, 2, 1, 0, -5};
+        assertEquals(1, RankCorrelation.Spearman(x, y), TOLERANCE);
+        assertEquals(1, RankCorrelation.KendallTauB(x, y), TOLERANCE);
+        assertEquals(-1, RankCorrelation.Spearman(x, reversed), TOLERANCE);
+        assertEquals(-1, RankCorrelation.KendallTauB(x, reversed), TOLERANCE);
+    }
+
+    /***
+     * A few distinct whole values, so that there are many ties, and sometimes NaN.
+     */
+    private static double getRandomValue(Random random, int numDistinctValues) {
+        if(random.nextInt(10) == 0) return Double.NaN;
+        return random.nextInt(numDistinctValues);
+    }
+
+    /***
+     * Pearson's coefficient, in two passes, between the ranks of the complete data points, where each rank is 1, plus
+     * the number of lower values, plus half the number of other equal values.
+     */
+    private static double naiveSpearman(double[] x, double[] y) {
+        double[][] pairs = RankCorrelationTest.getCompletePairsOf(x, y);
+        double[] ranksX = RankCorrelationTest.getNaiveRanksOf(pairs[0]), ranksY = RankCorrelationTest.getNaiveRanksOf(pairs[1]);
+        int n = ranksX.length;
+
+        double meanX = 0, meanY = 0;
+        for(int i = 0; i < n; i++) {
+            meanX += ranksX[i] / n;
+            meanY += ranksY[i] / n;
+        }
+        double sumXY = 0, sumXX = 0, sumYY = 0;
+        for(int i = 0; i < n; i++) {
+            sumXY += (ranksX[i] - meanX) * (ranksY[i] - meanY);
+            sumXX += (ranksX[i] - meanX) * (ranksX[i] - meanX);
+            sumYY += (ranksY[i] - meanY) * (ranksY[i] - meanY);
+        }
+        if(sumXX < TOLERANCE || sumYY < TOLERANCE) return Double.NaN;
+        return sumXY / Math.sqrt(sumXX * sumYY);
+    }
+
+    /***
+     * Concordant minus discordant pairs, over the square root of the pairs not tied on x times the pairs not tied on y.
+     */
+    private static double naiveKendallTauB(double[] x, double[] y) {
+        double[][] pairs = RankCorrelationTest.getCompletePairsOf(x, y);
+        double[] px = pairs[0], py = pairs[1];
+        long sum = 0, numNotTiedX = 0, numNotTiedY = 0;
+        for(int i = 0; i < px.length; i++) {
+            for(int j = i + 1; j < px.length; j++) {
+                int signX = Double.compare(px[i], px[j]), signY = Double.compare(py[i], py[j]);
+                sum += Integer.signum(signX) * Integer.signum(signY);
+                if(signX != 0) numNotTiedX++;
+                if(signY != 0) numNotTiedY++;
+            }
+        }
+        if(numNotTiedX == 0 || numNotTiedY == 0) return Double.NaN;
+        return sum / Math.sqrt((double) numNotTiedX * numNotTiedY);
+    }
+
+    private static double[] getNaiveRanksOf(double[] values) {
+        double[] ranks = new double[values.length];
+        for(int i = 0; i < values.length; i++) {
+            int numLower = 0, numEqual = 0;
+            for(double value : values) {
+                if(value < values[i]) numLower++;
+                else if(value == values[i]) numEqual++;
+            }
+            ranks[i] = 1 + numLower + (numEqual - 1) / 2.0d;
+        }
+        return ranks;
+    }
+
+    private static double[][] getCompletePairsOf(double[] x, double[] y) {
+        int n = 0;
+        for(int i = 0; i < x.length; i++)
+            if(!Double.isNaN(x[i]) && !Double.isNaN(y[i])) n++;
+        double[] completeX = new double[n], completeY = new double[n];
+        for(int i = 0, j = 0; i < x.length; i++) {
+            if(Double.isNaN(x[i]) || Double.isNaN(y[i])) continue;
+            completeX[j] = x[i];
+            completeY[j++] = y[i];
+        }
+        return new double[][]{completeX, completeY};
+    }
+}
@@ -0,0 +1,74 @@
+package net.frootloop.qa.parser.util.stats.charts_scatterplot;
+
+import net.frootloop.qa.parser.result.ParsedClass;
+import net.frootloop.qa.parser.result.ParsedSourceFile;
+import net.frootloop.qa.parser.util.stats.Metric;
+import net.frootloop.qa.parser.util.stats.MetricTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/***
+ * The statistics of ScatterPlotData, found in a single pass over the classes of this repository split between
+ * threads, must be the same as the textbook two-pass ones.
+ */
+class ScatterPlotDataTest {
+
+    private static final Metric[] METRICS = {Metric.NLOC, Metric.CD, Metric.NCH, Metric.WMC};
+
+    @Test
+    void matchesTwoPassStatistics() throws IOException {
+        List<Path> sourceFiles;
+        try(Stream<Path> paths = Files.walk(Paths.get("src/main"))) {
+            sourceFiles = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+        List<ParsedClass> classes = new ArrayList<>();
+        for(Path sourceFile : sourceFiles)
+            classes.addAll(Arrays.asList(new ParsedSourceFile(sourceFile, Files.readString(sourceFile)).getClasses()));
+        assertFalse(classes.isEmpty());
+
+        MetricTable table = new MetricTable(classes.toArray(new ParsedClass[0]), METRICS);
+        ScatterPlotData data = new ScatterPlotData(table);
+
+        double[] means = new double[METRICS.length];
+        double[][] covariances = new double[METRICS.length][METRICS.length];
+        for(int i = 0; i < METRICS.length; i++) {
+            double[] values = table.getValuesOf(METRICS[i]);
+            means[i] = Arrays.stream(values).sum() / values.length;
+        }
+        for(int i = 0; i < METRICS.length; i++) {
+            double[] a = table.getValuesOf(METRICS[i]);
+            for(int j = 0; j < METRICS.length; j++) {
+                double[] b = table.getValuesOf(METRICS[j]);
+                for(int n = 0; n < a.length; n++) covariances[i][j] += (a[n] - means[i]) * (b[n] - means[j]) / a.length;
+            }
+        }
+
+        double[][] covarianceMatrix = data.getCovarianceMatrix();
+        for(int i = 0; i < METRICS.length; i++)
+            for(int j = 0; j < METRICS.length; j++) assertClose(covariances[i][j], covarianceMatrix[i][j]);
+
+        assertClose(means[0], data.NUM_LINES_CODE_AVERAGE);
+        assertClose(means[1], data.COMMENT_DENSITY_AVERAGE);
+        assertClose(means[2], data.NUM_COMMITS_AVERAGE);
+        assertClose(Math.sqrt(covariances[0][0]), data.NUM_LINES_CODE_STANDARD_DEVIATION);
+        assertClose(Math.sqrt(covariances[1][1]), data.COMMENT_DENSITY_STANDARD_DEVIATION);
+        assertClose(Math.sqrt(covariances[2][2]), data.NUM_COMMITS_STANDARD_DEVIATION);
+        assertClose(covariances[0][3] / Math.sqrt(covariances[0][0] * covariances[3][3]), data.getCorrelationBetween(Metric.NLOC, Metric.WMC));
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)));
+    }
+}
@@ -0,0 +1,137 @@
+package net.frootloop.qa.parser.util.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/***
+ * The LinearMatcher subclasses must find the same matches, with the same groups, as the CodeParser patterns they
+ * replace, which are only used here, as the reference. They must also stay fast on the statements that make those
+ * patterns backtrack.
+ */
+class LinearMatcherTest {
+
+    private static final String[] ATOMS = {" ", "  ", "\n", "\r\n", "\r", "\t", "\u2028", "\u0085", "(", ")", ",", ", ", ";",
+            "=", "{", "}", "<", ">", "[", "]", ".", "@", "$", "_", "public", "private", "protected", "static", "final",
+            "native", "synchronized", "abstract", "transient", "publicstatic", "int", "long", "char", "boolean", "new ",
+            "new", "A", "B", "Map", "List", "String", "x", "y", "foo", "a1", "*=", "-=", "+=", "|!=", "^=", "@Override",
+            "@A", "ints"};
+
+    private static final String[] STATEMENTS = {
+            "public static void main(String[] args)",
+            "private final Map<String, List<Integer>> cache = new HashMap<>();",
+            "@Override protected synchronized String toString()",
+            "public abstract int compareTo(T other);",
+            "static final long serialVersionUID = 1L;",
+            "int a, b, c;",
+            "private int[] values;",
+            "Foo<A,B> first, second, third = null;",
+            "List<String> names = new ArrayList<String>(10);",
+            "for (Entry entry : map.entrySet()) {",
+            "return new Point(x, y).translate(new Vector(1, 2));",
+            "public Builder withName(String name) {",
+            "Map.Entry<K, V> entry;",
+            "public <T> T get(Class<T> type)",
+            "if (value == null) throw new IllegalArgumentException(\"value\");",
+            "transient volatile Object lock;",
+            "new Thread(new Runnable() {\n run();\n}).start();",
+    };
+
+    @Test
+    void matchesLikePatternsOnStatements() {
+        for(String statement : STATEMENTS) assertSameMatches(statement);
+    }
+
+    @Test
+    void matchesLikePatternsOnRandomStatements() {
+        Random random = new Random(12);
+        for(int i = 0; i < 20000; i++) {
+            StringBuilder statement = new StringBuilder();
+            int numAtoms = random.nextInt(25);
+            for(int a = 0; a < numAtoms; a++) statement.append(ATOMS[random.nextInt(ATOMS.length)]);
+            assertSameMatches(statement.toString());
+        }
+    }
+
+    @Test
+    void staysLinearOnPathologicalStatements() {
+        int n = 20000;
+        String[] statements = {
+                "public static ".repeat(n) + "x",
+                "publicstatic".repeat(n) + " Map<A, B> x",
+                "@" + "Abc".repeat(n) + "public " + " ".repeat(n) + "x",
+                "public " + "Map<A, ".repeat(n) + " foo",
+                "public " + " a ".repeat(n) + "(",
+                "public Foo<A> ".repeat(n) + ";",
+                "Foo " + "a, ".repeat(n) + "b ?",
+                "Foo<" + "A,".repeat(n) + "B ",
+                "Foo bar ".repeat(n),
+                "new Foo(".repeat(n) + "\n" + "x new Abc".repeat(n) + ")",
+                "Abc ".repeat(n),
+        };
+        for(String statement : statements) {
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+                CodeParser.isMethodDeclaration(statement);
+                CodeParser.getDeclaredMethodArguments(statement);
+                CodeParser.getDeclaredMethodVisibility(statement);
+                CodeParser.isVariableDeclaration(statement);
+                CodeParser.getDeclaredVariableNames(statement);
+                CodeParser.getInitializedClassNames(statement);
+            }, () -> "Statement of " + statement.length() + " chars starting with '" + statement.substring(0, 20) + "'");
+        }
+    }
+
+    private static void assertSameMatches(String statement) {
+        assertEquals(findAll(CodeParser.rxDeclaredMethod, statement, 2, 4, 5, 6), findAllMethods(statement), () -> "rxDeclaredMethod on '" + statement + "'");
+        assertEquals(findAll(CodeParser.rxDeclaredVariable, statement, 4, 7), findAllVariables(statement), () -> "rxDeclaredVariable on '" + statement + "'");
+        assertEquals(findAll(CodeParser.rxClassVariable, statement, 2, 5, 7), findAllClassVariables(statement), () -> "rxClassVariable on '" + statement + "'");
+        assertEquals(findAll(CodeParser.rxNewClassObject, statement, 1), findAllNewObjects(statement), () -> "rxNewClassObject on '" + statement + "'");
+    }
+
+    private static List<String> findAll(Pattern pattern, String text, int... groups) {
+        List<String> matches = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while(matcher.find()) {
+            StringBuilder match = new StringBuilder(matcher.start() + "-" + matcher.end());
+            for(int group : groups) match.append('|').append(matcher.group(group));
+            matches.add(match.toString());
+        }
+        return matches;
+    }
+
+    private static List<String> findAllMethods(String text) {
+        List<String> matches = new ArrayList<>();
+        DeclaredMethodMatcher matcher = new DeclaredMethodMatcher(text);
+        while(matcher.find()) matches.add(matcher.start() + "-" + matcher.end() + "|" + matcher.getModifiers() + "|" + matcher.getReturnType() + "|" + matcher.getName() + "|" + matcher.getArguments());
+        return matches;
+    }
+
+    private static List<String> findAllVariables(String text) {
+        List<String> matches = new ArrayList<>();
+        DeclaredVariableMatcher matcher = new DeclaredVariableMatcher(text);
+        while(matcher.find()) matches.add(matcher.start() + "-" + matcher.end() + "|" + matcher.getType() + "|" + matcher.getNames());
+        return matches;
+    }
+
+    private static List<String> findAllClassVariables(String text) {
+        List<String> matches = new ArrayList<>();
+        ClassVariableMatcher matcher = new ClassVariableMatcher(text);
+        while(matcher.find()) matches.add(matcher.start() + "-" + matcher.end() + "|" + matcher.getType() + "|" + matcher.getFirstGenericType() + "|" + matcher.getLastGenericType());
+        return matches;
+    }
+
+    private static List<String> findAllNewObjects(String text) {
+        List<String> matches = new ArrayList<>();
+        NewObjectMatcher matcher = new NewObjectMatcher(text);
+        while(matcher.find()) matches.add(matcher.start() + "-" + matcher.end() + "|" + matcher.getClassName());
+        return matches;
+    }
+}
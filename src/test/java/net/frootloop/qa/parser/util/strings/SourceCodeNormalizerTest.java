@@ -0,0 +1,93 @@
+package net.frootloop.qa.parser.util.strings;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/***
+ * SourceCodeNormalizer must give the exact same output as the chain of replaceAll() calls it replaces, which is
+ * rebuilt here out of the SourceCodeFixerUpper steps, as the reference.
+ */
+class SourceCodeNormalizerTest {
+
+    private static final String[] ATOMS = {" ", "  ", "\n", "\r", "\r\n", "\t", "\0", "{", "}", ";", "'", "\"", "\\", "/",
+            "*", "//", "/*", "*/", "a", "x", "catch", "} catch", "(", ")", "\u2028", "\u0085", "\uD83D\uDE00", "\uD83D", "\f",
+            "b c", "'a'"};
+
+    private static final String[] SOURCES = {
+            "",
+            "a",
+            "/*",
+            "package a.b;\n\nimport java.util.List;\n\npublic class A {\n    private char c = 'x';\n}\n",
+            "  int  a  =  1 ;  \n  {  b ( ) ;  }  ",
+            "String s = \"a \\\" b\"; // comment\nString t = \"\";\n",
+            "/**\n * Docstring\n * over lines\n */\nvoid f() {}\n/* short */ x",
+            "try {\n    f();\n} catch (IOException e) {\n    g();\n}  catch(Exception e)\n{ h(); };\n",
+            "a\r\nb\rc\n\0d};\n} ;",
+            "char c = '\uD83D\uDE00'; char d = '\\n';",
+            "int a; // ends without a line break",
+    };
+
+    @Test
+    void normalizesLikeReplaceAllChainOnSources() {
+        for(String source : SOURCES)
+            assertEquals(cleanUpWithRegexes(source), SourceCodeNormalizer.normalize(source), () -> "On '" + source + "'");
+    }
+
+    @Test
+    void normalizesLikeReplaceAllChainOnRandomSources() {
+        Random random = new Random(3);
+        for(int i = 0; i < 20000; i++) {
+            StringBuilder source = new StringBuilder();
+            int numAtoms = random.nextInt(25);
+            for(int a = 0; a < numAtoms; a++) source.append(ATOMS[random.nextInt(ATOMS.length)]);
+            String text = source.toString();
+
+            // Some texts make the regexes overflow the stack, in which case there's nothing to compare with:
+            String expected;
+            try {
+                expected = cleanUpWithRegexes(text);
+            } catch (StackOverflowError e) {
+                continue;
+            }
+            assertEquals(expected, SourceCodeNormalizer.normalize(text), () -> "On '" + text + "'");
+        }
+    }
+
+    @Test
+    void normalizesLikeReplaceAllChainOnThisRepository() throws IOException {
+        List<Path> sourceFiles;
+        try(Stream<Path> paths = Files.walk(Paths.get("src"))) {
+            sourceFiles = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+        assertFalse(sourceFiles.isEmpty());
+        for(Path sourceFile : sourceFiles) {
+            String source = Files.readString(sourceFile);
+            assertEquals(cleanUpWithRegexes(source), SourceCodeNormalizer.normalize(source), () -> "On " + sourceFile);
+        }
+    }
+
+    /***
+     * The clean up as SourceCodeFixerUpper.cleanUpSource() used to do it.
+     */
+    private static String cleanUpWithRegexes(String sourceFileTextData) {
+        sourceFileTextData = sourceFileTextData.replaceAll("\r\n|\r|\n", "\n");
+        sourceFileTextData = sourceFileTextData.replaceAll("\0", "");
+        sourceFileTextData = sourceFileTextData.replaceAll("\\}( *);", "}");
+        sourceFileTextData = SourceCodeFixerUpper.getWithoutExtraSpaces(sourceFileTextData);
+        sourceFileTextData = SourceCodeFixerUpper.getWithGenericStringValues(sourceFileTextData);
+        sourceFileTextData = SourceCodeFixerUpper.getWithGenericCommentValues(sourceFileTextData);
+        sourceFileTextData = SourceCodeFixerUpper.getWithSingleBracketTryCatch(sourceFileTextData);
+        return sourceFileTextData;
+    }
+}